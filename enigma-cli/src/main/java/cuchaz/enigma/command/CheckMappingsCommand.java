@@ -34,7 +34,7 @@ public class CheckMappingsCommand extends Command {
 		Path fileJarIn = getReadableFile(getArg(args, 0, "in jar", true)).toPath();
 		Path fileMappings = getReadablePath(getArg(args, 1, "mappings file", true));
 
-		Enigma enigma = Enigma.create();
+		Enigma enigma = createEnigma();
 
 		System.out.println("Reading JAR...");
 		EnigmaProject project = enigma.openJar(fileJarIn, new ClasspathClassProvider(), ProgressListener.none());
@@ -15,12 +15,14 @@ import cuchaz.enigma.Enigma;
 import cuchaz.enigma.EnigmaProject;
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.classprovider.ClasspathClassProvider;
+import cuchaz.enigma.config.ConfigPaths;
 import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.serde.MappingFormat;
 import cuchaz.enigma.translation.mapping.serde.MappingIoConverter;
 import cuchaz.enigma.translation.mapping.serde.MappingParseException;
 import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.FlatEntryTree;
 
 public abstract class Command {
 	public final String name;
@@ -38,7 +40,7 @@ public abstract class Command {
 	protected static EnigmaProject openProject(Path fileJarIn, Path fileMappings) throws Exception {
 		ProgressListener progress = new ConsoleProgressListener();
 
-		Enigma enigma = Enigma.create();
+		Enigma enigma = createEnigma();
 
 		System.out.println("Reading jar...");
 		EnigmaProject project = enigma.openJar(fileJarIn, new ClasspathClassProvider(), progress);
@@ -49,18 +51,27 @@ public abstract class Command {
 			MappingSaveParameters saveParameters = enigma.getProfile().getMappingSaveParameters();
 			EntryTree<EntryMapping> mappings = readMappings(fileMappings, progress, saveParameters);
 
-			project.setMappings(mappings);
+			// the project is only exported, so the mappings are never changed
+			project.setMappings(FlatEntryTree.copyOf(mappings));
 		}
 
 		return project;
 	}
 
+	protected static Enigma createEnigma() {
+		return Enigma.builder().setIndexCacheDirectory(ConfigPaths.getIndexCachePath()).build();
+	}
+
 	protected static EntryTree<EntryMapping> readMappings(Path path, ProgressListener progress, MappingSaveParameters saveParameters) throws IOException, MappingParseException {
 		// Legacy
 		if ("zip".equalsIgnoreCase(MoreFiles.getFileExtension(path))) {
 			return MappingFormat.ENIGMA_ZIP.read(path, progress, saveParameters, null);
 		}
 
+		if ("bmapping".equalsIgnoreCase(MoreFiles.getFileExtension(path))) {
+			return MappingFormat.ENIGMA_BINARY.read(path, progress, saveParameters, null);
+		}
+
 		net.fabricmc.mappingio.format.MappingFormat format = MappingReader.detectFormat(path);
 		if (format == null) throw new IllegalArgumentException("Unknown mapping format!");
 
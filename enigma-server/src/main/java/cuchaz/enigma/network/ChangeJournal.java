@@ -0,0 +1,301 @@
+package cuchaz.enigma.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import cuchaz.enigma.network.packet.PacketHelper;
+import cuchaz.enigma.translation.mapping.EntryChange;
+
+/**
+ * An append-only journal of the entry changes accepted by a server, so that the changes made since the mappings were
+ * last saved survive a crash.
+ *
+ * <p>The journal is a directory of numbered segments. Each record in a segment is the length of the change, as an int,
+ * a CRC32 of the change, and the change itself. Changes are appended on the server thread and handed to the journal
+ * thread on {@link #flush()}, which writes them and syncs them to disk. A change only survives a crash once the future
+ * returned by the flush has completed, so the server holds back sending it to the clients until then. Flushes queued
+ * while a sync is in progress are synced together once they have been written, so that a burst of changes costs a
+ * single sync.
+ *
+ * <p>When the mappings are saved, {@link #rotate()} starts a new segment for the changes that come after the snapshot
+ * being saved, and once the snapshot has been written, {@link #compact(int)} deletes the segments it holds the changes
+ * of. When the server starts, {@link #replay()} reads the segments that are left over, to be applied on top of the
+ * saved mappings. A record cut off by a crash ends its segment.
+ */
+public class ChangeJournal {
+	private static final Pattern SEGMENT_NAME = Pattern.compile("(\\d+)\\.journal");
+	private static final int HEADER_SIZE = Integer.BYTES * 2;
+	private static final int MAX_RECORD_SIZE = EnigmaServer.MAX_C2S_PACKET_SIZE;
+
+	private final Path directory;
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+		Thread thread = new Thread(task, "Journal thread");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final AtomicInteger queuedWrites = new AtomicInteger();
+
+	// only used on the journal thread
+	private FileChannel channel;
+	private final List<CompletableFuture<Void>> unsynced = new ArrayList<>();
+
+	// guarded by this
+	private final List<ByteBuffer> pending = new ArrayList<>();
+	private int segment;
+	private boolean closed;
+
+	/**
+	 * Opens the journal in a directory, creating it if needed. The changes appended to the journal go to a new segment,
+	 * after the ones that are left over.
+	 */
+	public ChangeJournal(Path directory) throws IOException {
+		this.directory = directory;
+		Files.createDirectories(directory);
+
+		List<Integer> segments = listSegments();
+		this.segment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1;
+		this.channel = openSegment(segment);
+	}
+
+	/**
+	 * Reads the changes of the segments that were left over when the journal was opened, in the order they were
+	 * appended.
+	 */
+	public List<EntryChange<?>> replay() throws IOException {
+		List<EntryChange<?>> changes = new ArrayList<>();
+
+		for (int segment : listSegments()) {
+			if (segment < this.segment) {
+				replaySegment(segment, changes);
+			}
+		}
+
+		return changes;
+	}
+
+	private void replaySegment(int segment, List<EntryChange<?>> changes) throws IOException {
+		ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(getSegmentPath(segment)));
+		CRC32 crc = new CRC32();
+
+		while (records.remaining() >= HEADER_SIZE) {
+			int length = records.getInt();
+			int checksum = records.getInt();
+
+			if (length <= 0 || length > MAX_RECORD_SIZE || length > records.remaining()) {
+				System.err.println("Journal segment " + segment + " ends with an incomplete change, skipping it");
+				return;
+			}
+
+			crc.reset();
+			crc.update(records.array(), records.position(), length);
+
+			if ((int) crc.getValue() != checksum) {
+				System.err.println("Journal segment " + segment + " ends with a corrupt change, skipping it");
+				return;
+			}
+
+			changes.add(PacketHelper.readEntryChange(new DataInputStream(new ByteArrayInputStream(records.array(), records.position(), length))));
+			records.position(records.position() + length);
+		}
+	}
+
+	/**
+	 * Appends a change to the journal, to be written on the next {@link #flush()}.
+	 *
+	 * @throws IOException if the change can't be encoded
+	 */
+	public void append(EntryChange<?> change) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		output.writeInt(0); // length, filled in below
+		output.writeInt(0); // checksum, filled in below
+		PacketHelper.writeEntryChange(output, change);
+
+		ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), HEADER_SIZE, record.limit() - HEADER_SIZE);
+		record.putInt(0, record.limit() - HEADER_SIZE);
+		record.putInt(Integer.BYTES, (int) crc.getValue());
+
+		synchronized (this) {
+			pending.add(record);
+		}
+	}
+
+	/**
+	 * Hands the changes appended since the last flush to the journal thread, to be written and synced to disk.
+	 *
+	 * @return a future completed once the changes have been synced, or have failed to be, which is already complete if
+	 *         there were no changes
+	 */
+	public synchronized CompletableFuture<Void> flush() {
+		if (closed || pending.isEmpty()) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		ByteBuffer[] records = pending.toArray(new ByteBuffer[0]);
+		pending.clear();
+		queuedWrites.incrementAndGet();
+		CompletableFuture<Void> synced = new CompletableFuture<>();
+		executor.execute(() -> write(records, synced));
+		return synced;
+	}
+
+	/**
+	 * Flushes the journal and starts a new segment, which the changes appended from now on go to.
+	 *
+	 * @return the new segment, to be passed to {@link #compact(int)} once the mappings as they are now have been saved
+	 */
+	public synchronized int rotate() {
+		flush();
+
+		if (!closed) {
+			int next = ++segment;
+			executor.execute(() -> switchSegment(next));
+		}
+
+		return segment;
+	}
+
+	/**
+	 * Deletes the segments before a segment returned by {@link #rotate()}, as their changes have been saved.
+	 */
+	public synchronized void compact(int segment) {
+		if (!closed) {
+			executor.execute(() -> deleteSegmentsBefore(segment));
+		}
+	}
+
+	/**
+	 * Flushes the journal and waits for the changes to be written.
+	 */
+	public void close() {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+
+			flush();
+			closed = true;
+			executor.execute(this::closeSegment);
+		}
+
+		executor.shutdown();
+
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void write(ByteBuffer[] records, CompletableFuture<Void> synced) {
+		try {
+			while (records[records.length - 1].hasRemaining()) {
+				channel.write(records);
+			}
+		} catch (IOException e) {
+			System.err.println("Failed to write to the journal");
+			e.printStackTrace();
+		}
+
+		unsynced.add(synced);
+
+		// the writes queued behind this one are synced along with it once they are done
+		if (queuedWrites.decrementAndGet() == 0) {
+			sync();
+		}
+	}
+
+	private void sync() {
+		try {
+			channel.force(false);
+		} catch (IOException e) {
+			System.err.println("Failed to sync the journal");
+			e.printStackTrace();
+		}
+
+		// a failed sync isn't retried, so the changes are released either way
+		unsynced.forEach(future -> future.complete(null));
+		unsynced.clear();
+	}
+
+	private void switchSegment(int segment) {
+		closeSegment();
+
+		try {
+			channel = openSegment(segment);
+		} catch (IOException e) {
+			System.err.println("Failed to open journal segment " + segment);
+			e.printStackTrace();
+		}
+	}
+
+	private void closeSegment() {
+		sync();
+
+		try {
+			channel.close();
+		} catch (IOException e) {
+			System.err.println("Failed to close the journal");
+			e.printStackTrace();
+		}
+	}
+
+	private void deleteSegmentsBefore(int segment) {
+		try {
+			for (int oldSegment : listSegments()) {
+				if (oldSegment < segment) {
+					Files.deleteIfExists(getSegmentPath(oldSegment));
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Failed to delete old journal segments");
+			e.printStackTrace();
+		}
+	}
+
+	private FileChannel openSegment(int segment) throws IOException {
+		return FileChannel.open(getSegmentPath(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	private Path getSegmentPath(int segment) {
+		return directory.resolve(segment + ".journal");
+	}
+
+	private List<Integer> listSegments() throws IOException {
+		List<Integer> segments = new ArrayList<>();
+
+		try (Stream<Path> files = Files.list(directory)) {
+			files.forEach(file -> {
+				Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+
+				if (matcher.matches()) {
+					segments.add(Integer.parseInt(matcher.group(1)));
+				}
+			});
+		}
+
+		segments.sort(null);
+		return segments;
+	}
+}
@@ -10,6 +10,13 @@ import cuchaz.enigma.translation.mapping.tree.EntryTree;
 public interface ClientPacketHandler {
 	void openMappings(EntryTree<EntryMapping> mappings);
 
+	/**
+	 * Adds mappings to the ones opened by {@link #openMappings(EntryTree)}, as the rest of the initial sync arrives.
+	 *
+	 * @param last whether these are the last mappings of the sync
+	 */
+	void addMappings(EntryTree<EntryMapping> mappings, boolean last);
+
 	boolean applyChangeFromServer(EntryChange<?> change);
 
 	void disconnectIfConnected(String reason);
@@ -0,0 +1,381 @@
+package cuchaz.enigma.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+import javax.annotation.Nullable;
+
+import cuchaz.enigma.network.packet.Packet;
+
+/**
+ * A connection exchanging packets over a non-blocking socket channel, whose I/O is done by a {@link ConnectionLoop}.
+ *
+ * <p>Each packet is framed by its length, as an int. Packets can be sent from any thread. {@link #write(Packet)}
+ * encodes a packet on the sending thread and buffers it, and {@link #flush()} hands everything buffered since the last
+ * flush to the loop as one batch, which the loop writes out with as few writes to the socket as the peer allows. Bursts
+ * of packets, like the ones sent to every client at once, should be written first and flushed once. The loop writes as
+ * fast as the peer reads, so a slow peer never blocks the sender. The amount of buffered data is bounded. Above
+ * {@link #PAUSE_READING_BYTES}, the connection stops reading from the peer until the queue has drained to
+ * {@link #RESUME_READING_BYTES}, so that a peer can't grow the queue by sending requests without reading the
+ * responses. Above {@link #MAX_QUEUED_BYTES}, the peer is too slow to keep up, and the connection is closed.
+ *
+ * <p>Received bytes are buffered until a whole frame has arrived, and received packets are passed to the
+ * {@link Listener} on the thread of the loop.
+ *
+ * @param <I> the handler of received packets
+ * @param <O> the handler of sent packets
+ */
+public class Connection<I, O> implements ConnectionLoop.Handler {
+	public static final int PAUSE_READING_BYTES = 1 << 20;
+	public static final int RESUME_READING_BYTES = 1 << 18;
+	public static final int MAX_QUEUED_BYTES = 1 << 26;
+	private static final int INITIAL_BUFFER_SIZE = 1 << 13;
+
+	private final ConnectionLoop loop;
+	private final SocketChannel channel;
+	private final SelectionKey key;
+	private final IntFunction<Packet<I>> packetFactory;
+	private final ToIntFunction<Packet<O>> packetIds;
+	private final int maxPacketSize;
+	private final Listener<I> listener;
+
+	// only used on the thread of the loop
+	private ByteBuffer inbound = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+	private boolean closed;
+
+	// guarded by this
+	private final List<ByteBuffer> pending = new ArrayList<>();
+	private final Deque<ByteBuffer> outbound = new ArrayDeque<>();
+	private long queuedBytes;
+	private long writtenPackets;
+	private boolean flushScheduled;
+	private boolean closing;
+
+	/**
+	 * Creates a connection over a connected channel. Must be called on the thread of the loop, or before the loop is
+	 * started.
+	 *
+	 * @param packetFactory creates a received packet from its id, or returns {@code null} if the id is unknown
+	 * @param packetIds gets the id of a sent packet
+	 * @param maxPacketSize the size of the largest packet that can be received, including its id
+	 */
+	public Connection(ConnectionLoop loop, SocketChannel channel, IntFunction<Packet<I>> packetFactory, ToIntFunction<Packet<O>> packetIds, int maxPacketSize, Listener<I> listener) throws IOException {
+		this.loop = loop;
+		this.channel = channel;
+		this.packetFactory = packetFactory;
+		this.packetIds = packetIds;
+		this.maxPacketSize = maxPacketSize;
+		this.listener = listener;
+		this.key = loop.register(channel, SelectionKey.OP_READ, this);
+	}
+
+	public Socket getSocket() {
+		return channel.socket();
+	}
+
+	/**
+	 * Buffers a packet to be sent on the next {@link #flush()}. Does nothing if the connection is closing.
+	 *
+	 * @throws IOException if the packet can't be encoded
+	 */
+	public void write(Packet<O> packet) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		output.writeInt(0); // length, filled in below
+		output.writeByte(packetIds.applyAsInt(packet));
+		packet.write(output);
+
+		ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+		frame.putInt(0, frame.remaining() - Integer.BYTES);
+
+		synchronized (this) {
+			if (closing) {
+				return;
+			}
+
+			// a single packet is always let through, so that large packets can still be sent to a peer that keeps up
+			if (queuedBytes > 0 && queuedBytes + frame.remaining() > MAX_QUEUED_BYTES) {
+				closing = true;
+				pending.clear();
+				outbound.clear();
+				queuedBytes = 0;
+				loop.execute(() -> close(new IOException("Peer is too slow, more than " + MAX_QUEUED_BYTES + " bytes are queued")));
+				return;
+			}
+
+			pending.add(frame);
+			queuedBytes += frame.remaining();
+			writtenPackets++;
+		}
+	}
+
+	/**
+	 * Marks the packets written so far, so that they can be flushed with {@link #flush(long)} without the packets
+	 * written after them.
+	 */
+	public synchronized long mark() {
+		return writtenPackets;
+	}
+
+	/**
+	 * Hands the packets buffered since the last flush to the loop, to be written as one batch.
+	 */
+	public void flush() {
+		flush(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Hands the packets buffered since the last flush that were written before a {@link #mark()} to the loop, to be
+	 * written as one batch.
+	 */
+	public void flush(long mark) {
+		synchronized (this) {
+			// the pending packets are the last ones written
+			long count = Math.min(pending.size(), mark - (writtenPackets - pending.size()));
+
+			if (count <= 0) {
+				return;
+			}
+
+			List<ByteBuffer> flushed = pending.subList(0, (int) count);
+			outbound.addAll(flushed);
+			flushed.clear();
+
+			if (flushScheduled) {
+				return;
+			}
+
+			flushScheduled = true;
+		}
+
+		loop.execute(this::flushOnLoop);
+	}
+
+	/**
+	 * Writes a packet and flushes it along with any other buffered packet.
+	 *
+	 * @throws IOException if the packet can't be encoded
+	 */
+	public void send(Packet<O> packet) throws IOException {
+		write(packet);
+		flush();
+	}
+
+	/**
+	 * Flushes the connection and closes it once the packets buffered so far have been written, as far as the peer
+	 * takes them without waiting.
+	 */
+	public void disconnect() {
+		flush();
+
+		synchronized (this) {
+			closing = true;
+		}
+
+		loop.execute(() -> {
+			if (closed) {
+				return;
+			}
+
+			try {
+				write();
+			} catch (IOException e) {
+				close(e);
+				return;
+			}
+
+			close(null);
+		});
+	}
+
+	@Override
+	public void handleSelected(SelectionKey key) {
+		try {
+			if (key.isReadable()) {
+				read();
+			}
+
+			if (!closed && key.isWritable()) {
+				write();
+			}
+		} catch (IOException e) {
+			close(e);
+		}
+	}
+
+	@Override
+	public void handleLoopStopped() {
+		close(null);
+	}
+
+	private void read() throws IOException {
+		int read = channel.read(inbound);
+		decode();
+
+		if (read == -1) {
+			close(null);
+		}
+	}
+
+	private void decode() throws IOException {
+		inbound.flip();
+		int frameSize = 0;
+
+		while (!closed && inbound.remaining() >= Integer.BYTES) {
+			int length = inbound.getInt(inbound.position());
+
+			if (length <= 0 || length > maxPacketSize) {
+				throw new IOException("Received packet with invalid length " + length);
+			}
+
+			if (inbound.remaining() < Integer.BYTES + length) {
+				// the rest of the packet hasn't been received yet
+				frameSize = Integer.BYTES + length;
+				break;
+			}
+
+			int start = inbound.position() + Integer.BYTES;
+			inbound.position(start + length);
+			listener.onPacket(readPacket(new ByteArrayInputStream(inbound.array(), start, length)));
+		}
+
+		inbound.compact();
+
+		if (frameSize > inbound.capacity()) {
+			// make room for the whole packet, so that it's read without growing the buffer again
+			ByteBuffer grown = ByteBuffer.allocate(frameSize);
+			inbound.flip();
+			grown.put(inbound);
+			inbound = grown;
+		} else if (inbound.position() == 0 && inbound.capacity() > INITIAL_BUFFER_SIZE) {
+			// let go of the buffer grown for a large packet once it has been read
+			inbound = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+		}
+	}
+
+	private Packet<I> readPacket(ByteArrayInputStream bytes) throws IOException {
+		DataInputStream input = new DataInputStream(bytes);
+		int packetId = input.readUnsignedByte();
+		Packet<I> packet = packetFactory.apply(packetId);
+
+		if (packet == null) {
+			throw new IOException("Received invalid packet id " + packetId);
+		}
+
+		packet.read(input);
+
+		if (bytes.available() > 0) {
+			throw new IOException("Packet with id " + packetId + " was " + bytes.available() + " bytes longer than expected");
+		}
+
+		return packet;
+	}
+
+	private void flushOnLoop() {
+		synchronized (this) {
+			flushScheduled = false;
+		}
+
+		if (closed) {
+			return;
+		}
+
+		try {
+			write();
+		} catch (IOException e) {
+			close(e);
+		}
+	}
+
+	private void write() throws IOException {
+		ByteBuffer[] buffers;
+
+		synchronized (this) {
+			buffers = outbound.toArray(new ByteBuffer[0]);
+		}
+
+		if (buffers.length > 0) {
+			// write every flushed packet at once, the socket takes as much as fits
+			channel.write(buffers);
+			long written = 0;
+
+			synchronized (this) {
+				while (!outbound.isEmpty() && !outbound.peek().hasRemaining()) {
+					written += outbound.poll().limit();
+				}
+
+				queuedBytes -= written;
+			}
+		}
+
+		updateInterest();
+	}
+
+	private void updateInterest() {
+		boolean reading = (key.interestOps() & SelectionKey.OP_READ) != 0;
+		int ops = 0;
+
+		synchronized (this) {
+			if (!outbound.isEmpty()) {
+				ops |= SelectionKey.OP_WRITE;
+			}
+
+			if (!closing && (reading ? queuedBytes < PAUSE_READING_BYTES : queuedBytes <= RESUME_READING_BYTES)) {
+				ops |= SelectionKey.OP_READ;
+			}
+		}
+
+		key.interestOps(ops);
+	}
+
+	private void close(@Nullable IOException cause) {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+
+		synchronized (this) {
+			closing = true;
+			pending.clear();
+			outbound.clear();
+			queuedBytes = 0;
+		}
+
+		try {
+			channel.close();
+		} catch (IOException e) {
+			System.err.println("Failed to close socket");
+			e.printStackTrace();
+		}
+
+		listener.onDisconnect(cause);
+	}
+
+	public interface Listener<I> {
+		/**
+		 * Handles a received packet, on the thread of the loop.
+		 */
+		void onPacket(Packet<I> packet);
+
+		/**
+		 * Handles the connection being closed, on the thread of the loop.
+		 *
+		 * @param cause the error that closed the connection, or {@code null} if either side closed it normally
+		 */
+		void onDisconnect(@Nullable IOException cause);
+	}
+}
@@ -0,0 +1,128 @@
+package cuchaz.enigma.network;
+
+import java.io.IOException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A thread running a selector, which does all the I/O of a set of channels.
+ *
+ * <p>Other threads hand work to the loop through {@link #execute(Runnable)}, which wakes the selector up, so that the
+ * channels are only ever read from, written to and closed on the thread of the loop.
+ */
+public class ConnectionLoop {
+	private final Selector selector;
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	private final Thread thread;
+	private volatile boolean running = true;
+
+	public ConnectionLoop(String name) throws IOException {
+		this.selector = Selector.open();
+		this.thread = new Thread(this::run);
+		this.thread.setName(name);
+		this.thread.setDaemon(true);
+	}
+
+	public void start() {
+		thread.start();
+	}
+
+	/**
+	 * Registers a channel with the loop. Must be called on the thread of the loop, or before the loop is started.
+	 */
+	public SelectionKey register(SelectableChannel channel, int ops, Handler handler) throws IOException {
+		channel.configureBlocking(false);
+		return channel.register(selector, ops, handler);
+	}
+
+	/**
+	 * Runs a task on the thread of the loop. Tasks run in the order they are handed to the loop.
+	 */
+	public void execute(Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	/**
+	 * Stops the loop once the tasks handed to it so far have run, closing every channel that is still registered.
+	 */
+	public void stop() {
+		execute(() -> running = false);
+	}
+
+	private void run() {
+		try {
+			while (running) {
+				selector.select();
+				runTasks();
+
+				if (!running) {
+					break;
+				}
+
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+
+					if (key.isValid()) {
+						((Handler) key.attachment()).handleSelected(key);
+					}
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			closeAll();
+		}
+	}
+
+	private void runTasks() {
+		Runnable task;
+
+		while ((task = tasks.poll()) != null) {
+			try {
+				task.run();
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private void closeAll() {
+		for (SelectionKey key : selector.keys()) {
+			((Handler) key.attachment()).handleLoopStopped();
+
+			try {
+				key.channel().close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		try {
+			selector.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@FunctionalInterface
+	public interface Handler {
+		/**
+		 * Handles a channel being ready for the operations it is registered for.
+		 */
+		void handleSelected(SelectionKey key);
+
+		/**
+		 * Handles the loop stopping, right before the channel is closed.
+		 */
+		default void handleLoopStopped() {
+		}
+	}
+}
@@ -5,12 +5,17 @@ import java.io.PrintWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.io.MoreFiles;
+import com.google.common.util.concurrent.Futures;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
@@ -21,24 +26,43 @@ import cuchaz.enigma.EnigmaProfile;
 import cuchaz.enigma.EnigmaProject;
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.classprovider.ClasspathClassProvider;
+import cuchaz.enigma.config.ConfigPaths;
+import cuchaz.enigma.translation.mapping.EntryChange;
+import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.mapping.EntryUtil;
 import cuchaz.enigma.translation.mapping.serde.MappingFormat;
 import cuchaz.enigma.translation.mapping.serde.MappingParseException;
+import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
 import cuchaz.enigma.utils.Utils;
+import cuchaz.enigma.utils.validation.PrintValidatable;
+import cuchaz.enigma.utils.validation.ValidationContext;
 
 public class DedicatedEnigmaServer extends EnigmaServer {
 	private final EnigmaProfile profile;
 	private final MappingFormat mappingFormat;
 	private final Path mappingsFile;
 	private final PrintWriter log;
+	private final ChangeJournal journal;
 	private BlockingQueue<Runnable> tasks = new LinkedBlockingDeque<>();
-
-	public DedicatedEnigmaServer(byte[] jarChecksum, char[] password, EnigmaProfile profile, MappingFormat mappingFormat, Path mappingsFile, PrintWriter log, EntryRemapper mappings, int port) {
-		super(jarChecksum, password, mappings, port);
+	// only used on the server thread
+	private boolean stopping;
+	private final CountDownLatch stopped = new CountDownLatch(1);
+	private final ExecutorService saveExecutor = Executors.newSingleThreadExecutor(task -> {
+		Thread thread = new Thread(task, "Mappings save thread");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final Object saveLock = new Object();
+	private Future<?> pendingSave;
+
+	public DedicatedEnigmaServer(byte[] jarChecksum, char[] password, EnigmaProfile profile, MappingFormat mappingFormat, Path mappingsFile, PrintWriter log, EntryRemapper mappings, ChangeJournal journal, int port) {
+		super(jarChecksum, password, mappings, port, journal);
 		this.profile = profile;
 		this.mappingFormat = mappingFormat;
 		this.mappingsFile = mappingsFile;
 		this.log = log;
+		this.journal = journal;
 	}
 
 	@Override
@@ -88,7 +112,7 @@ public class DedicatedEnigmaServer extends EnigmaServer {
 			byte[] checksum = Utils.zipSha1(parsedArgs.valueOf(jarOpt));
 
 			EnigmaProfile profile = EnigmaProfile.read(profileFile);
-			Enigma enigma = Enigma.builder().setProfile(profile).build();
+			Enigma enigma = Enigma.builder().setProfile(profile).setIndexCacheDirectory(ConfigPaths.getIndexCachePath()).build();
 			System.out.println("Indexing Jar...");
 			EnigmaProject project = enigma.openJar(jar, new ClasspathClassProvider(), ProgressListener.none());
 
@@ -111,9 +135,23 @@ public class DedicatedEnigmaServer extends EnigmaServer {
 				mappings = EntryRemapper.mapped(project.getJarIndex(), mappingFormat.read(mappingsFile, ProgressListener.none(), profile.getMappingSaveParameters(), project.getJarIndex()));
 			}
 
+			// the changes made since the mappings were last saved
+			ChangeJournal journal = new ChangeJournal(mappingsFile.resolveSibling(mappingsFile.getFileName() + ".journal"));
+			ValidationContext vc = new ValidationContext();
+			vc.setActiveElement(PrintValidatable.INSTANCE);
+			List<EntryChange<?>> changes = journal.replay();
+
+			for (EntryChange<?> change : changes) {
+				EntryUtil.applyChange(vc, mappings, change);
+			}
+
+			if (!changes.isEmpty()) {
+				System.out.println("Replayed " + changes.size() + " changes from the journal");
+			}
+
 			PrintWriter log = new PrintWriter(Files.newBufferedWriter(logFile));
 
-			server = new DedicatedEnigmaServer(checksum, password, profile, mappingFormat, mappingsFile, log, mappings, port);
+			server = new DedicatedEnigmaServer(checksum, password, profile, mappingFormat, mappingsFile, log, mappings, journal, port);
 			server.start();
 			System.out.println("Server started");
 		} catch (IOException | MappingParseException e) {
@@ -126,26 +164,102 @@ public class DedicatedEnigmaServer extends EnigmaServer {
 		// noinspection RedundantSuppression
 		// noinspection Convert2MethodRef - javac 8 bug
 		Executors.newScheduledThreadPool(1).scheduleAtFixedRate(() -> server.runOnThread(() -> server.saveMappings()), 0, 1, TimeUnit.MINUTES);
-		Runtime.getRuntime().addShutdownHook(new Thread(server::saveMappings));
+		Runtime.getRuntime().addShutdownHook(new Thread(server::shutDown));
+		server.runTasks();
 
-		while (true) {
-			try {
-				server.tasks.take().run();
-			} catch (InterruptedException e) {
-				break;
+		// the shutdown hook saves the mappings
+		System.exit(0);
+	}
+
+	private void runTasks() {
+		try {
+			while (!stopping) {
+				tasks.take().run();
 			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			stopped.countDown();
 		}
 	}
 
 	@Override
 	public synchronized void stop() {
 		super.stop();
-		System.exit(0);
+		runOnThread(() -> stopping = true);
+	}
+
+	/**
+	 * Stops the server thread, so that the mappings don't change anymore, then saves them and closes the journal. Runs
+	 * on the shutdown hook, whether the server was stopped or the process was terminated.
+	 */
+	private void shutDown() {
+		runOnThread(() -> stopping = true);
+
+		try {
+			if (stopped.await(1, TimeUnit.MINUTES)) {
+				saveMappingsAndWait();
+			} else {
+				System.err.println("Server thread didn't stop, keeping the changes since the last save in the journal");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		journal.close();
 	}
 
+	/**
+	 * Starts saving the mappings on the save thread. Only a snapshot of the mappings is taken here, so that packets keep
+	 * being handled while the mappings are written. Does nothing if the previous save is still being written, as the
+	 * next save picks up the changes.
+	 */
 	private void saveMappings() {
-		mappingFormat.write(getMappings().getObfToDeobf(), getMappings().takeMappingDelta(), mappingsFile, ProgressListener.none(), profile.getMappingSaveParameters());
 		log.flush();
+
+		synchronized (saveLock) {
+			if ((pendingSave != null && !pendingSave.isDone()) || !getMappings().isDirty()) {
+				return;
+			}
+
+			DeltaTrackingTree.Snapshot<EntryMapping> snapshot = getMappings().takeMappingSnapshot();
+			int segment = journal.rotate();
+			pendingSave = saveExecutor.submit(() -> writeMappings(snapshot, segment));
+		}
+	}
+
+	/**
+	 * Saves the mappings and waits until they have been written, after the save in progress if there is one.
+	 */
+	private void saveMappingsAndWait() {
+		waitForSave();
+		saveMappings();
+		waitForSave();
+	}
+
+	private void waitForSave() {
+		Future<?> save;
+
+		synchronized (saveLock) {
+			save = pendingSave;
+		}
+
+		if (save != null) {
+			Futures.getUnchecked(save);
+		}
+	}
+
+	private void writeMappings(DeltaTrackingTree.Snapshot<EntryMapping> snapshot, int journalSegment) {
+		try {
+			mappingFormat.write(snapshot.mappings(), snapshot.delta(), mappingsFile, ProgressListener.none(), profile.getMappingSaveParameters());
+			journal.compact(journalSegment);
+		} catch (RuntimeException e) {
+			System.err.println("Failed to save mappings");
+			e.printStackTrace();
+
+			// the changes are written again by the next save, against the mappings that were saved last
+			getMappings().getObfToDeobf().restoreDelta(snapshot.delta());
+		}
 	}
 
 	public static class PathConverter implements ValueConverter<Path> {
@@ -1,26 +1,24 @@
 package cuchaz.enigma.network;
 
-import java.io.DataInput;
-import java.io.DataInputStream;
-import java.io.DataOutput;
-import java.io.DataOutputStream;
-import java.io.EOFException;
 import java.io.IOException;
-import java.net.Socket;
-import java.net.SocketException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
 
+import javax.annotation.Nullable;
 import javax.swing.SwingUtilities;
 
 import cuchaz.enigma.network.packet.Packet;
 import cuchaz.enigma.network.packet.PacketRegistry;
 
 public class EnigmaClient {
+	public static final int MAX_S2C_PACKET_SIZE = 1 << 30;
+
 	private final ClientPacketHandler controller;
 
 	private final String ip;
 	private final int port;
-	private Socket socket;
-	private DataOutput output;
+	private ConnectionLoop loop;
+	private Connection<ClientPacketHandler, ServerPacketHandler> connection;
 
 	public EnigmaClient(ClientPacketHandler controller, String ip, int port) {
 		this.controller = controller;
@@ -29,57 +27,39 @@ public class EnigmaClient {
 	}
 
 	public void connect() throws IOException {
-		socket = new Socket(ip, port);
-		output = new DataOutputStream(socket.getOutputStream());
-		Thread thread = new Thread(() -> {
-			try {
-				DataInput input = new DataInputStream(socket.getInputStream());
-
-				while (true) {
-					int packetId;
-
-					try {
-						packetId = input.readUnsignedByte();
-					} catch (EOFException | SocketException e) {
-						break;
-					}
-
-					Packet<ClientPacketHandler> packet = PacketRegistry.createS2CPacket(packetId);
-
-					if (packet == null) {
-						throw new IOException("Received invalid packet id " + packetId);
-					}
+		SocketChannel channel = SocketChannel.open(new InetSocketAddress(ip, port));
 
-					packet.read(input);
+		try {
+			loop = new ConnectionLoop("Client network thread");
+			connection = new Connection<>(loop, channel, PacketRegistry::createS2CPacket, PacketRegistry::getC2SId, MAX_S2C_PACKET_SIZE, new Connection.Listener<>() {
+				@Override
+				public void onPacket(Packet<ClientPacketHandler> packet) {
 					SwingUtilities.invokeLater(() -> packet.handle(controller));
 				}
-			} catch (IOException e) {
-				controller.disconnectIfConnected(e.toString());
-				return;
-			}
 
-			controller.disconnectIfConnected("Disconnected");
-		});
-		thread.setName("Client I/O thread");
-		thread.setDaemon(true);
-		thread.start();
+				@Override
+				public void onDisconnect(@Nullable IOException cause) {
+					controller.disconnectIfConnected(cause != null ? cause.toString() : "Disconnected");
+				}
+			});
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+
+		loop.start();
 	}
 
 	public synchronized void disconnect() {
-		if (socket != null && !socket.isClosed()) {
-			try {
-				socket.close();
-			} catch (IOException e1) {
-				System.err.println("Failed to close socket");
-				e1.printStackTrace();
-			}
+		if (connection != null) {
+			connection.disconnect();
+			loop.stop();
 		}
 	}
 
 	public void sendPacket(Packet<ServerPacketHandler> packet) {
 		try {
-			output.writeByte(PacketRegistry.getC2SId(packet));
-			packet.write(output);
+			connection.send(packet);
 		} catch (IOException e) {
 			controller.disconnectIfConnected(e.toString());
 		}
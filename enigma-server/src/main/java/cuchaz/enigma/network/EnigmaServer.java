@@ -1,44 +1,53 @@
 package cuchaz.enigma.network;
 
-import java.io.DataInput;
-import java.io.DataInputStream;
-import java.io.DataOutput;
-import java.io.DataOutputStream;
-import java.io.EOFException;
 import java.io.IOException;
-import java.net.ServerSocket;
+import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.net.SocketException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+import javax.annotation.Nullable;
+
 import cuchaz.enigma.network.packet.EntryChangeS2CPacket;
 import cuchaz.enigma.network.packet.KickS2CPacket;
 import cuchaz.enigma.network.packet.MessageS2CPacket;
 import cuchaz.enigma.network.packet.Packet;
 import cuchaz.enigma.network.packet.PacketRegistry;
+import cuchaz.enigma.network.packet.SyncMappingsS2CPacket;
 import cuchaz.enigma.network.packet.UserListS2CPacket;
 import cuchaz.enigma.translation.mapping.EntryChange;
 import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
 import cuchaz.enigma.translation.representation.entry.Entry;
 
 public abstract class EnigmaServer {
 	// https://discordapp.com/channels/507304429255393322/566418023372816394/700292322918793347
 	public static final int DEFAULT_PORT = 34712;
-	public static final int PROTOCOL_VERSION = 1;
+	public static final int PROTOCOL_VERSION = 3;
 	public static final int CHECKSUM_SIZE = 20;
 	public static final int MAX_PASSWORD_LENGTH = 255; // length is written as a byte in the login packet
+	public static final int MAX_C2S_PACKET_SIZE = 1 << 20;
 
 	private final int port;
-	private ServerSocket socket;
+	private ServerSocketChannel serverChannel;
+	private ConnectionLoop loop;
 	private List<Socket> clients = new CopyOnWriteArrayList<>();
+	private Map<Socket, Connection<ServerPacketHandler, ClientPacketHandler>> connections = new ConcurrentHashMap<>();
+	private Set<Connection<ServerPacketHandler, ClientPacketHandler>> unflushedConnections = new LinkedHashSet<>();
+	private int batchDepth;
 	private Map<Socket, String> usernames = new HashMap<>();
 	private Set<Socket> unapprovedClients = new HashSet<>();
 
@@ -47,90 +56,96 @@ public abstract class EnigmaServer {
 
 	public static final int DUMMY_SYNC_ID = 0;
 	private final EntryRemapper mappings;
+	@Nullable
+	private final ChangeJournal journal;
+	private final HeldPackets heldPackets = new HeldPackets();
 	private Map<Entry<?>, Integer> syncIds = new HashMap<>();
 	private Map<Integer, Entry<?>> inverseSyncIds = new HashMap<>();
 	private Map<Integer, Set<Socket>> clientsNeedingConfirmation = new HashMap<>();
 	private int nextSyncId = DUMMY_SYNC_ID + 1;
 
-	private static int nextIoId = 0;
-
 	public EnigmaServer(byte[] jarChecksum, char[] password, EntryRemapper mappings, int port) {
+		this(jarChecksum, password, mappings, port, null);
+	}
+
+	/**
+	 * @param journal the journal the changes accepted from clients are appended to, or {@code null} to not keep one
+	 */
+	public EnigmaServer(byte[] jarChecksum, char[] password, EntryRemapper mappings, int port, @Nullable ChangeJournal journal) {
 		this.jarChecksum = jarChecksum;
 		this.password = password;
 		this.mappings = mappings;
 		this.port = port;
+		this.journal = journal;
 	}
 
 	public void start() throws IOException {
-		socket = new ServerSocket(port);
-		log("Server started on " + socket.getInetAddress() + ":" + port);
-		Thread thread = new Thread(() -> {
-			try {
-				while (!socket.isClosed()) {
-					acceptClient();
-				}
-			} catch (SocketException e) {
-				System.out.println("Server closed");
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-		});
-		thread.setName("Server client listener");
-		thread.setDaemon(true);
-		thread.start();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(port));
+		log("Server started on " + serverChannel.socket().getInetAddress() + ":" + port);
+		loop = new ConnectionLoop("Server network thread");
+		loop.register(serverChannel, SelectionKey.OP_ACCEPT, key -> acceptClients());
+		loop.start();
 	}
 
-	private void acceptClient() throws IOException {
-		Socket client = socket.accept();
-		clients.add(client);
-		Thread thread = new Thread(() -> {
-			try {
-				DataInput input = new DataInputStream(client.getInputStream());
+	private void acceptClients() {
+		try {
+			SocketChannel channel;
 
-				while (true) {
-					int packetId;
+			while ((channel = serverChannel.accept()) != null) {
+				acceptClient(channel);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
 
-					try {
-						packetId = input.readUnsignedByte();
-					} catch (EOFException | SocketException e) {
-						break;
-					}
+	private void acceptClient(SocketChannel channel) throws IOException {
+		Socket client = channel.socket();
+		Connection<ServerPacketHandler, ClientPacketHandler> connection;
 
-					Packet<ServerPacketHandler> packet = PacketRegistry.createC2SPacket(packetId);
+		try {
+			connection = new Connection<>(loop, channel, PacketRegistry::createC2SPacket, PacketRegistry::getS2CId, MAX_C2S_PACKET_SIZE, new Connection.Listener<>() {
+				@Override
+				public void onPacket(Packet<ServerPacketHandler> packet) {
+					runOnThread(() -> batch(() -> packet.handle(new ServerPacketHandler(client, EnigmaServer.this))));
+				}
 
-					if (packet == null) {
-						throw new IOException("Received invalid packet id " + packetId);
+				@Override
+				public void onDisconnect(@Nullable IOException cause) {
+					if (cause != null) {
+						cause.printStackTrace();
 					}
 
-					packet.read(input);
-					runOnThread(() -> packet.handle(new ServerPacketHandler(client, this)));
+					runOnThread(() -> batch(() -> kick(client, cause != null ? cause.toString() : "disconnect.disconnected")));
 				}
-			} catch (IOException e) {
-				kick(client, e.toString());
-				e.printStackTrace();
-				return;
-			}
+			});
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
 
-			kick(client, "disconnect.disconnected");
-		});
-		thread.setName("Server I/O thread #" + (nextIoId++));
-		thread.setDaemon(true);
-		thread.start();
+		connections.put(client, connection);
+		clients.add(client);
 	}
 
 	public void stop() {
 		runOnThread(() -> {
-			if (socket != null && !socket.isClosed()) {
-				for (Socket client : clients) {
-					kick(client, "disconnect.server_closed");
-				}
+			if (serverChannel != null && serverChannel.isOpen()) {
+				batch(() -> {
+					for (Socket client : clients) {
+						kick(client, "disconnect.server_closed");
+					}
+				});
 
 				try {
-					socket.close();
+					serverChannel.close();
 				} catch (IOException e) {
 					System.err.println("Failed to close server socket");
 					e.printStackTrace();
 				}
+
+				loop.stop();
 			}
 		});
 	}
@@ -147,12 +162,10 @@ public abstract class EnigmaServer {
 			return list.isEmpty();
 		});
 		String username = usernames.remove(client);
+		Connection<ServerPacketHandler, ClientPacketHandler> connection = connections.remove(client);
 
-		try {
-			client.close();
-		} catch (IOException e) {
-			System.err.println("Failed to close server client socket");
-			e.printStackTrace();
+		if (connection != null) {
+			connection.disconnect();
 		}
 
 		if (username != null) {
@@ -183,13 +196,19 @@ public abstract class EnigmaServer {
 	}
 
 	public void sendPacket(Socket client, Packet<ClientPacketHandler> packet) {
-		if (!client.isClosed()) {
-			int packetId = PacketRegistry.getS2CId(packet);
+		Connection<ServerPacketHandler, ClientPacketHandler> connection = connections.get(client);
 
+		if (connection != null) {
 			try {
-				DataOutput output = new DataOutputStream(client.getOutputStream());
-				output.writeByte(packetId);
-				packet.write(output);
+				connection.write(packet);
+
+				if (batchDepth > 0) {
+					unflushedConnections.add(connection);
+				} else if (!heldPackets.isEmpty()) {
+					heldPackets.holdWithLast(List.of(connection));
+				} else {
+					connection.flush();
+				}
 			} catch (IOException e) {
 				if (!(packet instanceof KickS2CPacket)) {
 					kick(client, e.toString());
@@ -200,19 +219,87 @@ public abstract class EnigmaServer {
 	}
 
 	public void sendToAll(Packet<ClientPacketHandler> packet) {
-		for (Socket client : clients) {
-			sendPacket(client, packet);
-		}
+		batch(() -> {
+			for (Socket client : clients) {
+				sendPacket(client, packet);
+			}
+		});
 	}
 
 	public void sendToAllExcept(Socket excluded, Packet<ClientPacketHandler> packet) {
-		for (Socket client : clients) {
-			if (client != excluded) {
-				sendPacket(client, packet);
+		batch(() -> {
+			for (Socket client : clients) {
+				if (client != excluded) {
+					sendPacket(client, packet);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Runs a task, holding back the packets it sends until it is done, so that each client gets them in a single
+	 * batch. Must be called on the server thread. Batches can be nested, the packets are sent when the outermost one is
+	 * done, and once the changes it journaled have been synced if there are any.
+	 */
+	public void batch(Runnable task) {
+		batchDepth++;
+
+		try {
+			task.run();
+		} finally {
+			batchDepth--;
+
+			if (batchDepth == 0) {
+				// the clients only get the changes once they are synced to the journal, so that they survive a crash
+				CompletableFuture<Void> sync = journal != null ? journal.flush() : CompletableFuture.completedFuture(null);
+
+				if (!sync.isDone()) {
+					heldPackets.hold(sync, unflushedConnections);
+					sync.thenRun(() -> runOnThread(heldPackets::release));
+				} else if (!heldPackets.isEmpty()) {
+					heldPackets.holdWithLast(unflushedConnections);
+				} else {
+					for (Connection<ServerPacketHandler, ClientPacketHandler> connection : unflushedConnections) {
+						connection.flush();
+					}
+				}
+
+				unflushedConnections.clear();
 			}
 		}
 	}
 
+	/**
+	 * Sends the mappings to a client that just logged in, in chunks. Each chunk is sent by a task of its own, so that
+	 * the packets of other clients are handled in between.
+	 */
+	public void sendMappings(Socket client) {
+		sendMappingsChunk(client, SyncMappingsS2CPacket.splitIntoChunks(mappings.getObfToDeobf()), 0);
+	}
+
+	private void sendMappingsChunk(Socket client, List<List<Entry<?>>> chunks, int index) {
+		if (!clients.contains(client)) {
+			return;
+		}
+
+		// the classes are looked up when the chunk is sent, changes made before are broadcast to the client anyway
+		List<EntryTreeNode<EntryMapping>> roots = new ArrayList<>();
+
+		for (Entry<?> root : chunks.get(index)) {
+			EntryTreeNode<EntryMapping> node = mappings.getObfToDeobf().findNode(root);
+
+			if (node != null) {
+				roots.add(node);
+			}
+		}
+
+		sendPacket(client, new SyncMappingsS2CPacket(index, chunks.size(), roots));
+
+		if (index + 1 < chunks.size()) {
+			runOnThread(() -> batch(() -> sendMappingsChunk(client, chunks, index + 1)));
+		}
+	}
+
 	public boolean canModifyEntry(Socket client, Entry<?> entry) {
 		if (unapprovedClients.contains(client)) {
 			return false;
@@ -268,6 +355,23 @@ public abstract class EnigmaServer {
 		}
 	}
 
+	/**
+	 * Appends a change accepted from a client to the journal, if the server keeps one. The change is written out when
+	 * the current batch is done.
+	 */
+	public void journalChange(EntryChange<?> change) {
+		if (journal == null) {
+			return;
+		}
+
+		try {
+			journal.append(change);
+		} catch (IOException e) {
+			System.err.println("Failed to append change to the journal");
+			e.printStackTrace();
+		}
+	}
+
 	public void sendCorrectMapping(Socket client, Entry<?> entry, boolean refreshClassTree) {
 		EntryMapping oldMapping = mappings.getDeobfMapping(entry);
 		String oldName = oldMapping.targetName();
@@ -286,7 +390,7 @@ public abstract class EnigmaServer {
 	}
 
 	protected boolean isRunning() {
-		return !socket.isClosed();
+		return serverChannel.isOpen();
 	}
 
 	public byte[] getJarChecksum() {
@@ -0,0 +1,57 @@
+package cuchaz.enigma.network;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The packets written to connections that are held back until the journal has synced the changes they announce.
+ *
+ * <p>The packets are held in groups, one for each sync, and each group is flushed as soon as its own sync and the ones
+ * before it are done, so that a steady stream of changes doesn't hold back every packet until the stream stops.
+ * Packets that don't wait for a sync of their own still can't overtake held ones, so they join the last group. Only
+ * used on the server thread.
+ */
+final class HeldPackets {
+	private final Deque<Group> groups = new ArrayDeque<>();
+
+	boolean isEmpty() {
+		return groups.isEmpty();
+	}
+
+	/**
+	 * Holds back the packets written to the connections so far, until a sync is done.
+	 */
+	void hold(CompletableFuture<?> sync, Collection<? extends Connection<?, ?>> connections) {
+		Group group = new Group(sync, new HashMap<>());
+		group.mark(connections);
+		groups.add(group);
+	}
+
+	/**
+	 * Holds back the packets written to the connections so far along with the last group. There must be a group.
+	 */
+	void holdWithLast(Collection<? extends Connection<?, ?>> connections) {
+		groups.getLast().mark(connections);
+	}
+
+	/**
+	 * Flushes the groups whose syncs are done, up to the first one whose sync isn't.
+	 */
+	void release() {
+		while (!groups.isEmpty() && groups.getFirst().sync().isDone()) {
+			groups.removeFirst().marks().forEach(Connection::flush);
+		}
+	}
+
+	private record Group(CompletableFuture<?> sync, Map<Connection<?, ?>, Long> marks) {
+		void mark(Collection<? extends Connection<?, ?>> connections) {
+			for (Connection<?, ?> connection : connections) {
+				marks.put(connection, connection.mark());
+			}
+		}
+	}
+}
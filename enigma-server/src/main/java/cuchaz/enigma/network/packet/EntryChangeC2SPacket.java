@@ -48,6 +48,7 @@ public class EntryChangeC2SPacket implements Packet<ServerPacketHandler> {
 			return;
 		}
 
+		handler.getServer().journalChange(this.change);
 		int syncId = handler.getServer().lockEntry(handler.getClient(), this.change.getTarget());
 		handler.getServer().sendToAllExcept(handler.getClient(), new EntryChangeS2CPacket(syncId, this.change));
 
@@ -74,7 +74,7 @@ public class LoginC2SPacket implements Packet<ServerPacketHandler> {
 			return;
 		}
 
-		handler.getServer().sendPacket(handler.getClient(), new SyncMappingsS2CPacket(handler.getServer().getMappings().getObfToDeobf()));
+		handler.getServer().sendMappings(handler.getClient());
 		handler.getServer().sendMessage(Message.connect(username));
 	}
 }
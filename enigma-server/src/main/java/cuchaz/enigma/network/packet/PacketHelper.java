@@ -144,6 +144,30 @@ public class PacketHelper {
 		output.write(bytes);
 	}
 
+	public static int readVarInt(DataInput input) throws IOException {
+		int value = 0;
+
+		for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+			int b = input.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		throw new IOException("VarInt is too long");
+	}
+
+	public static void writeVarInt(DataOutput output, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			output.writeByte(value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+
+		output.writeByte(value);
+	}
+
 	public static EntryChange<?> readEntryChange(DataInput input) throws IOException {
 		Entry<?> e = readEntry(input);
 		EntryChange<?> change = EntryChange.modify(e);
@@ -1,83 +1,313 @@
 package cuchaz.enigma.network.packet;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.Lists;
 
 import cuchaz.enigma.network.ClientPacketHandler;
 import cuchaz.enigma.network.EnigmaServer;
+import cuchaz.enigma.translation.mapping.AccessModifier;
 import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
 import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
 import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
 
+/**
+ * A chunk of the mappings sent to a client that just logged in.
+ *
+ * <p>The mappings are split by package, so that the client can start working with the classes it has received while
+ * the rest are still on their way. Each chunk holds the subtrees of some top-level classes, deflated. Within a chunk,
+ * each string is only written the first time it occurs, and referred to by its index afterwards, as names and
+ * descriptors repeat a lot.
+ */
 public class SyncMappingsS2CPacket implements Packet<ClientPacketHandler> {
+	public static final int MAX_CLASSES_PER_CHUNK = 256;
+
+	private static final int ENTRY_CLASS = 0, ENTRY_FIELD = 1, ENTRY_METHOD = 2, ENTRY_LOCAL_VAR = 3;
+	private static final int ENTRY_TYPE_MASK = 0x3;
+	private static final int HAS_MAPPING = 0x4;
+	private static final int ACCESS_SHIFT = 3;
+	private static final int NULL_STRING = 0, NEW_STRING = 1, FIRST_POOLED_STRING = 2;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private int index;
+	private int count;
+	private Collection<EntryTreeNode<EntryMapping>> roots;
 	private EntryTree<EntryMapping> mappings;
 
 	SyncMappingsS2CPacket() {
 	}
 
-	public SyncMappingsS2CPacket(EntryTree<EntryMapping> mappings) {
-		this.mappings = mappings;
+	/**
+	 * @param index the index of the chunk
+	 * @param count the number of chunks the mappings are sent in
+	 * @param roots the top-level classes of the chunk, with everything below them
+	 */
+	public SyncMappingsS2CPacket(int index, int count, Collection<EntryTreeNode<EntryMapping>> roots) {
+		this.index = index;
+		this.count = count;
+		this.roots = roots;
+	}
+
+	/**
+	 * Splits the top-level classes of mappings into the chunks they are sent in. Each chunk holds classes of one
+	 * package, at most {@link #MAX_CLASSES_PER_CHUNK} of them. There is always at least one chunk.
+	 */
+	public static List<List<Entry<?>>> splitIntoChunks(EntryTree<EntryMapping> mappings) {
+		Map<String, List<Entry<?>>> packages = new TreeMap<>();
+
+		mappings.getRootNodes().forEach(node -> {
+			Entry<?> root = node.getEntry();
+			String packageName = root instanceof ClassEntry classEntry ? classEntry.getPackageName() : null;
+			packages.computeIfAbsent(packageName != null ? packageName : "", name -> new ArrayList<>()).add(root);
+		});
+
+		List<List<Entry<?>>> chunks = new ArrayList<>();
+
+		for (List<Entry<?>> classes : packages.values()) {
+			chunks.addAll(Lists.partition(classes, MAX_CLASSES_PER_CHUNK));
+		}
+
+		if (chunks.isEmpty()) {
+			chunks.add(List.of());
+		}
+
+		return chunks;
 	}
 
 	@Override
 	public void read(DataInput input) throws IOException {
+		index = input.readInt();
+		count = input.readInt();
+		byte[] compressed = new byte[input.readInt()];
+		input.readFully(compressed);
+
 		mappings = new HashEntryTree<>();
-		int size = input.readInt();
+		Inflater inflater = new Inflater();
 
-		for (int i = 0; i < size; i++) {
-			readEntryTreeNode(input, null);
+		try (DataInputStream chunk = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed), inflater), BUFFER_SIZE))) {
+			List<String> pool = new ArrayList<>();
+			int size = PacketHelper.readVarInt(chunk);
+
+			for (int i = 0; i < size; i++) {
+				readEntryTreeNode(chunk, null, pool);
+			}
+		} finally {
+			inflater.end();
 		}
 	}
 
-	private void readEntryTreeNode(DataInput input, Entry<?> parent) throws IOException {
-		Entry<?> entry = PacketHelper.readEntry(input, parent, false);
-		String name = PacketHelper.readString(input);
-		String javadoc = PacketHelper.readString(input);
-		EntryMapping mapping = new EntryMapping(!name.isEmpty() ? name : null, !javadoc.isEmpty() ? javadoc : null);
-		mappings.insert(entry, mapping);
-		int size = input.readUnsignedShort();
+	private void readEntryTreeNode(DataInput input, @Nullable Entry<?> parent, List<String> pool) throws IOException {
+		int flags = input.readUnsignedByte();
+		Entry<?> entry = readEntry(input, flags & ENTRY_TYPE_MASK, parent, pool);
+
+		if ((flags & HAS_MAPPING) != 0) {
+			AccessModifier access = AccessModifier.values()[flags >> ACCESS_SHIFT & 0x3];
+			String targetName = readPooledString(input, pool);
+			String javadoc = readPooledString(input, pool);
+			mappings.insert(entry, new EntryMapping(targetName, access, javadoc));
+		}
+
+		int size = PacketHelper.readVarInt(input);
 
 		for (int i = 0; i < size; i++) {
-			readEntryTreeNode(input, entry);
+			readEntryTreeNode(input, entry, pool);
 		}
 	}
 
+	private static Entry<?> readEntry(DataInput input, int type, @Nullable Entry<?> parent, List<String> pool) throws IOException {
+		String name = readPooledString(input, pool);
+		String javadocs = readPooledString(input, pool);
+
+		if (name == null) {
+			throw new IOException("Entry has no name");
+		}
+
+		switch (type) {
+		case ENTRY_CLASS: {
+			if (parent != null && !(parent instanceof ClassEntry)) {
+				throw new IOException("Class requires class parent");
+			}
+
+			return new ClassEntry((ClassEntry) parent, name, javadocs);
+		}
+		case ENTRY_FIELD: {
+			if (!(parent instanceof ClassEntry parentClass)) {
+				throw new IOException("Field requires class parent");
+			}
+
+			return new FieldEntry(parentClass, name, new TypeDescriptor(readPooledString(input, pool)), javadocs);
+		}
+		case ENTRY_METHOD: {
+			if (!(parent instanceof ClassEntry parentClass)) {
+				throw new IOException("Method requires class parent");
+			}
+
+			return new MethodEntry(parentClass, name, new MethodDescriptor(readPooledString(input, pool)), javadocs);
+		}
+		case ENTRY_LOCAL_VAR: {
+			if (!(parent instanceof MethodEntry parentMethod)) {
+				throw new IOException("Local variable requires method parent");
+			}
+
+			int index = PacketHelper.readVarInt(input);
+			boolean parameter = input.readBoolean();
+			return new LocalVariableEntry(parentMethod, index, name, parameter, javadocs);
+		}
+		default:
+			throw new IOException("Received unknown entry type " + type);
+		}
+	}
+
+	@Nullable
+	private static String readPooledString(DataInput input, List<String> pool) throws IOException {
+		int id = PacketHelper.readVarInt(input);
+
+		if (id == NULL_STRING) {
+			return null;
+		}
+
+		if (id == NEW_STRING) {
+			String string = PacketHelper.readString(input);
+			pool.add(string);
+			return string;
+		}
+
+		if (id < 0 || id - FIRST_POOLED_STRING >= pool.size()) {
+			throw new IOException("Received unknown pooled string " + id);
+		}
+
+		return pool.get(id - FIRST_POOLED_STRING);
+	}
+
 	@Override
 	public void write(DataOutput output) throws IOException {
-		List<EntryTreeNode<EntryMapping>> roots = mappings.getRootNodes().toList();
-		output.writeInt(roots.size());
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		Deflater deflater = new Deflater();
 
-		for (EntryTreeNode<EntryMapping> node : roots) {
-			writeEntryTreeNode(output, node);
+		try (DataOutputStream chunk = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(compressed, deflater), BUFFER_SIZE))) {
+			Map<String, Integer> pool = new HashMap<>();
+			PacketHelper.writeVarInt(chunk, roots.size());
+
+			for (EntryTreeNode<EntryMapping> node : roots) {
+				writeEntryTreeNode(chunk, node, pool);
+			}
+		} finally {
+			deflater.end();
 		}
+
+		output.writeInt(index);
+		output.writeInt(count);
+		output.writeInt(compressed.size());
+		output.write(compressed.toByteArray());
 	}
 
-	private static void writeEntryTreeNode(DataOutput output, EntryTreeNode<EntryMapping> node) throws IOException {
-		PacketHelper.writeEntry(output, node.getEntry(), false);
-		EntryMapping value = node.getValue();
+	private static void writeEntryTreeNode(DataOutput output, EntryTreeNode<EntryMapping> node, Map<String, Integer> pool) throws IOException {
+		Entry<?> entry = node.getEntry();
+		EntryMapping mapping = node.getValue();
+		int flags = getEntryType(entry);
 
-		if (value == null) {
-			value = EntryMapping.DEFAULT;
+		if (mapping != null) {
+			flags |= HAS_MAPPING | mapping.accessModifier().ordinal() << ACCESS_SHIFT;
+		}
+
+		output.writeByte(flags);
+		writePooledString(output, entry.getName(), pool);
+		writePooledString(output, entry.getJavadocs(), pool);
+
+		if (entry instanceof FieldEntry field) {
+			writePooledString(output, field.getDesc().toString(), pool);
+		} else if (entry instanceof MethodEntry method) {
+			writePooledString(output, method.getDesc().toString(), pool);
+		} else if (entry instanceof LocalVariableEntry localVar) {
+			PacketHelper.writeVarInt(output, localVar.getIndex());
+			output.writeBoolean(localVar.isArgument());
+		}
+
+		if (mapping != null) {
+			writePooledString(output, mapping.targetName(), pool);
+			writePooledString(output, mapping.javadoc(), pool);
 		}
 
-		PacketHelper.writeString(output, value.targetName() != null ? value.targetName() : "");
-		PacketHelper.writeString(output, value.javadoc() != null ? value.javadoc() : "");
 		Collection<? extends EntryTreeNode<EntryMapping>> children = node.getChildNodes();
-		output.writeShort(children.size());
+		PacketHelper.writeVarInt(output, children.size());
 
 		for (EntryTreeNode<EntryMapping> child : children) {
-			writeEntryTreeNode(output, child);
+			writeEntryTreeNode(output, child, pool);
+		}
+	}
+
+	private static int getEntryType(Entry<?> entry) throws IOException {
+		if (entry instanceof ClassEntry) {
+			return ENTRY_CLASS;
+		} else if (entry instanceof FieldEntry) {
+			return ENTRY_FIELD;
+		} else if (entry instanceof MethodEntry) {
+			return ENTRY_METHOD;
+		} else if (entry instanceof LocalVariableEntry) {
+			return ENTRY_LOCAL_VAR;
+		} else {
+			throw new IOException("Don't know how to serialize entry of type " + entry.getClass().getSimpleName());
 		}
 	}
 
+	private static void writePooledString(DataOutput output, @Nullable String string, Map<String, Integer> pool) throws IOException {
+		if (string == null) {
+			PacketHelper.writeVarInt(output, NULL_STRING);
+			return;
+		}
+
+		Integer id = pool.get(string);
+
+		if (id != null) {
+			PacketHelper.writeVarInt(output, id + FIRST_POOLED_STRING);
+			return;
+		}
+
+		pool.put(string, pool.size());
+		PacketHelper.writeVarInt(output, NEW_STRING);
+		PacketHelper.writeString(output, string);
+	}
+
 	@Override
 	public void handle(ClientPacketHandler controller) {
-		controller.openMappings(mappings);
-		controller.sendPacket(new ConfirmChangeC2SPacket(EnigmaServer.DUMMY_SYNC_ID));
+		boolean last = index == count - 1;
+
+		if (index == 0) {
+			controller.openMappings(mappings);
+		} else {
+			controller.addMappings(mappings, last);
+		}
+
+		if (last) {
+			controller.sendPacket(new ConfirmChangeC2SPacket(EnigmaServer.DUMMY_SYNC_ID));
+		}
 	}
 }
@@ -0,0 +1,115 @@
+package cuchaz.enigma.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cuchaz.enigma.translation.mapping.AccessModifier;
+import cuchaz.enigma.translation.mapping.EntryChange;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+public class TestChangeJournal {
+	private static final EntryChange<?> RENAME = EntryChange.modify(new ClassEntry("a")).withDeobfName("pkg/First");
+	private static final EntryChange<?> DOCS = EntryChange.modify(MethodEntry.parse("a", "b", "(I)V")).withJavadoc("Docs").withAccess(AccessModifier.PUBLIC);
+	private static final EntryChange<?> RESET = EntryChange.modify(FieldEntry.parse("a", "c", "I")).clearDeobfName();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void replaysChanges() throws IOException {
+		Path directory = folder.getRoot().toPath();
+
+		ChangeJournal journal = new ChangeJournal(directory);
+		assertTrue(journal.replay().isEmpty());
+		journal.append(RENAME);
+		journal.append(DOCS);
+		journal.flush();
+		journal.append(RESET);
+		journal.close();
+
+		ChangeJournal reopened = new ChangeJournal(directory);
+		assertEquals(List.of(RENAME, DOCS, RESET), reopened.replay());
+		reopened.close();
+	}
+
+	@Test
+	public void flushCompletesOnceSynced() throws Exception {
+		Path directory = folder.getRoot().toPath();
+
+		ChangeJournal journal = new ChangeJournal(directory);
+		assertTrue(journal.flush().isDone());
+		journal.append(RENAME);
+		journal.flush().get(1, TimeUnit.MINUTES);
+
+		// the change is on disk without closing the journal, as it would be after a crash
+		ChangeJournal reopened = new ChangeJournal(directory);
+		assertEquals(List.of(RENAME), reopened.replay());
+		reopened.close();
+		journal.close();
+	}
+
+	@Test
+	public void compactsSavedChanges() throws IOException {
+		Path directory = folder.getRoot().toPath();
+
+		ChangeJournal journal = new ChangeJournal(directory);
+		journal.append(RENAME);
+		int segment = journal.rotate();
+		journal.append(DOCS);
+		journal.rotate();
+		journal.append(RESET);
+
+		// only the changes before the first rotation have been saved
+		journal.compact(segment);
+		journal.close();
+
+		ChangeJournal reopened = new ChangeJournal(directory);
+		assertEquals(List.of(DOCS, RESET), reopened.replay());
+		reopened.close();
+	}
+
+	@Test
+	public void skipsIncompleteChange() throws IOException {
+		Path directory = folder.getRoot().toPath();
+
+		ChangeJournal journal = new ChangeJournal(directory);
+		journal.append(RENAME);
+		journal.append(DOCS);
+		journal.close();
+
+		// cut the last change off, as a crash in the middle of a write would
+		Path segment;
+
+		try (Stream<Path> files = Files.list(directory)) {
+			segment = files.filter(file -> file.toFile().length() > 0).findFirst().orElseThrow();
+		}
+
+		byte[] bytes = Files.readAllBytes(segment);
+		Files.write(segment, Arrays.copyOf(bytes, bytes.length - 3), StandardOpenOption.TRUNCATE_EXISTING);
+
+		ChangeJournal reopened = new ChangeJournal(directory);
+		assertEquals(List.of(RENAME), reopened.replay());
+		reopened.append(RESET);
+		reopened.close();
+
+		// the rest of the journal is still read after the incomplete change
+		ChangeJournal again = new ChangeJournal(directory);
+		assertEquals(List.of(RENAME, RESET), again.replay());
+		again.close();
+	}
+}
@@ -0,0 +1,195 @@
+package cuchaz.enigma.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import cuchaz.enigma.network.packet.Packet;
+import cuchaz.enigma.network.packet.PacketHelper;
+
+public class TestConnection {
+	private static final int STRING_PACKET_ID = 3;
+
+	@Test
+	public void receivesPacketsSplitAcrossReads() throws Exception {
+		try (Peer peer = new Peer()) {
+			byte[] bytes = encode("first", "second");
+			OutputStream output = peer.socket.getOutputStream();
+
+			// split in the length of the first packet, then in the middle of it
+			output.write(bytes, 0, 2);
+			output.flush();
+			Thread.sleep(50);
+			output.write(bytes, 2, 5);
+			output.flush();
+			Thread.sleep(50);
+			output.write(bytes, 7, bytes.length - 7);
+			output.flush();
+
+			assertEquals("first", peer.received.poll(5, TimeUnit.SECONDS));
+			assertEquals("second", peer.received.poll(5, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	public void sendsPacketsInOrder() throws Exception {
+		try (Peer peer = new Peer()) {
+			for (int i = 0; i < 1000; i++) {
+				peer.connection.send(new StringPacket("packet " + i));
+			}
+
+			DataInputStream input = new DataInputStream(peer.socket.getInputStream());
+
+			for (int i = 0; i < 1000; i++) {
+				assertEquals("packet " + i, readPacket(input));
+			}
+		}
+	}
+
+	@Test
+	public void sendsWrittenPacketsOnFlush() throws Exception {
+		try (Peer peer = new Peer()) {
+			peer.connection.write(new StringPacket("first"));
+			peer.connection.write(new StringPacket("second"));
+			peer.connection.flush();
+
+			DataInputStream input = new DataInputStream(peer.socket.getInputStream());
+			assertEquals("first", readPacket(input));
+			assertEquals("second", readPacket(input));
+		}
+	}
+
+	@Test
+	public void disconnectsPeerSendingInvalidLength() throws Exception {
+		try (Peer peer = new Peer()) {
+			new DataOutputStream(peer.socket.getOutputStream()).writeInt(-1);
+
+			IOException cause = peer.disconnects.poll(5, TimeUnit.SECONDS);
+			assertNotNull(cause);
+			assertTrue(cause.getMessage().contains("invalid length"));
+		}
+	}
+
+	@Test
+	public void disconnectsPeerThatDoesNotRead() throws Exception {
+		try (Peer peer = new Peer()) {
+			char[] chars = new char[65535];
+			Arrays.fill(chars, 'a');
+			StringPacket packet = new StringPacket(new String(chars));
+
+			for (long sent = 0; sent <= Connection.MAX_QUEUED_BYTES * 2L; sent += chars.length) {
+				peer.connection.send(packet);
+			}
+
+			IOException cause = peer.disconnects.poll(5, TimeUnit.SECONDS);
+			assertNotNull(cause);
+			assertTrue(cause.getMessage().contains("too slow"));
+		}
+	}
+
+	private static byte[] encode(String... strings) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+
+		for (String string : strings) {
+			output.writeInt(1 + 2 + string.length());
+			output.writeByte(STRING_PACKET_ID);
+			new StringPacket(string).write(output);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	static String readPacket(DataInputStream input) throws IOException {
+		int length = input.readInt();
+		assertEquals(STRING_PACKET_ID, input.readUnsignedByte());
+		String string = PacketHelper.readString(input);
+		assertEquals(length, 1 + 2 + string.length());
+		return string;
+	}
+
+	static class Peer implements AutoCloseable {
+		final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+		final BlockingQueue<IOException> disconnects = new LinkedBlockingQueue<>();
+		final ConnectionLoop loop;
+		final Connection<BlockingQueue<String>, BlockingQueue<String>> connection;
+		final Socket socket;
+
+		Peer() throws IOException {
+			try (ServerSocketChannel server = ServerSocketChannel.open()) {
+				server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+				socket = new Socket(InetAddress.getLoopbackAddress(), server.socket().getLocalPort());
+				SocketChannel channel = server.accept();
+
+				loop = new ConnectionLoop("Test network thread");
+				connection = new Connection<>(loop, channel, id -> id == STRING_PACKET_ID ? new StringPacket() : null, packet -> STRING_PACKET_ID, 1 << 16, new Connection.Listener<>() {
+					@Override
+					public void onPacket(Packet<BlockingQueue<String>> packet) {
+						packet.handle(received);
+					}
+
+					@Override
+					public void onDisconnect(@Nullable IOException cause) {
+						if (cause != null) {
+							disconnects.add(cause);
+						}
+					}
+				});
+				loop.start();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			loop.stop();
+			socket.close();
+		}
+	}
+
+	static class StringPacket implements Packet<BlockingQueue<String>> {
+		private String string;
+
+		StringPacket() {
+		}
+
+		StringPacket(String string) {
+			this.string = string;
+		}
+
+		@Override
+		public void read(DataInput input) throws IOException {
+			string = PacketHelper.readString(input);
+		}
+
+		@Override
+		public void write(DataOutput output) throws IOException {
+			PacketHelper.writeString(output, string);
+		}
+
+		@Override
+		public void handle(BlockingQueue<String> handler) {
+			handler.add(string);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package cuchaz.enigma.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+public class TestHeldPackets {
+	@Test
+	public void releasesEachSyncOnItsOwn() throws Exception {
+		try (TestConnection.Peer peer = new TestConnection.Peer()) {
+			HeldPackets held = new HeldPackets();
+			CompletableFuture<Void> first = new CompletableFuture<>();
+			CompletableFuture<Void> second = new CompletableFuture<>();
+
+			peer.connection.write(new TestConnection.StringPacket("first"));
+			held.hold(first, List.of(peer.connection));
+
+			// changes keep coming in while the first sync is in progress
+			peer.connection.write(new TestConnection.StringPacket("second"));
+			held.hold(second, List.of(peer.connection));
+			peer.connection.write(new TestConnection.StringPacket("unjournaled"));
+			held.holdWithLast(List.of(peer.connection));
+
+			held.release();
+			first.complete(null);
+			held.release();
+
+			DataInputStream input = new DataInputStream(peer.socket.getInputStream());
+			assertEquals("first", TestConnection.readPacket(input));
+			assertNothingReceived(peer, input);
+
+			second.complete(null);
+			held.release();
+			assertEquals("second", TestConnection.readPacket(input));
+			assertEquals("unjournaled", TestConnection.readPacket(input));
+			assertTrue(held.isEmpty());
+		}
+	}
+
+	private static void assertNothingReceived(TestConnection.Peer peer, DataInputStream input) throws IOException {
+		peer.socket.setSoTimeout(200);
+
+		try {
+			TestConnection.readPacket(input);
+			fail("Received a packet that is still held back");
+		} catch (SocketTimeoutException e) {
+			// expected
+		} finally {
+			peer.socket.setSoTimeout(0);
+		}
+	}
+}
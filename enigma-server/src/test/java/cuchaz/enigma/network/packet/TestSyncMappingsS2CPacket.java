@@ -0,0 +1,150 @@
+package cuchaz.enigma.network.packet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.junit.Test;
+
+import cuchaz.enigma.network.ClientPacketHandler;
+import cuchaz.enigma.network.Message;
+import cuchaz.enigma.network.ServerPacketHandler;
+import cuchaz.enigma.translation.mapping.AccessModifier;
+import cuchaz.enigma.translation.mapping.EntryChange;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+public class TestSyncMappingsS2CPacket {
+	@Test
+	public void splitsByPackage() {
+		HashEntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(new ClassEntry("a/A"), new EntryMapping("a/First"));
+		mappings.insert(new ClassEntry("b/B"), new EntryMapping("b/Second"));
+		mappings.insert(new ClassEntry("a/C"), new EntryMapping("a/Third"));
+		mappings.insert(new ClassEntry("D"), new EntryMapping("Fourth"));
+
+		for (int i = 0; i < SyncMappingsS2CPacket.MAX_CLASSES_PER_CHUNK + 1; i++) {
+			mappings.insert(new ClassEntry("c/C" + i), new EntryMapping("c/Class" + i));
+		}
+
+		List<List<Entry<?>>> chunks = SyncMappingsS2CPacket.splitIntoChunks(mappings);
+
+		// the default package, a, b, and c in two chunks
+		assertEquals(5, chunks.size());
+		assertEquals(List.of(new ClassEntry("D")), chunks.get(0));
+		assertEquals(2, chunks.get(1).size());
+		assertEquals(List.of(new ClassEntry("b/B")), chunks.get(2));
+		assertEquals(SyncMappingsS2CPacket.MAX_CLASSES_PER_CHUNK, chunks.get(3).size());
+		assertEquals(1, chunks.get(4).size());
+	}
+
+	@Test
+	public void splitsEmptyMappingsIntoOneChunk() {
+		assertEquals(List.of(List.of()), SyncMappingsS2CPacket.splitIntoChunks(new HashEntryTree<>()));
+	}
+
+	@Test
+	public void syncsMappingsInChunks() throws IOException {
+		ClassEntry first = new ClassEntry("a/A");
+		ClassEntry inner = new ClassEntry(first, "B");
+		MethodEntry method = MethodEntry.parse("a/A", "c", "(ILa/A;)V");
+		FieldEntry field = FieldEntry.parse("a/A$B", "d", "I");
+		ClassEntry second = new ClassEntry("b/E");
+
+		HashEntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(first, new EntryMapping("a/First", "Docs"));
+		mappings.insert(inner, new EntryMapping("Inner", AccessModifier.PUBLIC));
+		mappings.insert(new LocalVariableEntry(method, 1, "", true, null), new EntryMapping("value"));
+		mappings.insert(field, new EntryMapping("count", AccessModifier.PRIVATE, "The count"));
+		mappings.insert(second, new EntryMapping("b/Second"));
+
+		List<List<Entry<?>>> chunks = SyncMappingsS2CPacket.splitIntoChunks(mappings);
+		RecordingHandler handler = new RecordingHandler();
+
+		for (int i = 0; i < chunks.size(); i++) {
+			List<EntryTreeNode<EntryMapping>> roots = chunks.get(i).stream().<EntryTreeNode<EntryMapping>>map(mappings::findNode).filter(Objects::nonNull).toList();
+			roundTrip(new SyncMappingsS2CPacket(i, chunks.size(), roots)).handle(handler);
+		}
+
+		assertEquals(2, handler.received.size());
+		assertEquals(List.of(false, true), handler.last);
+		assertEquals(1, handler.confirmations);
+
+		HashEntryTree<EntryMapping> received = new HashEntryTree<>();
+		handler.received.forEach(chunk -> chunk.forEach(node -> received.insert(node.getEntry(), node.getValue())));
+
+		for (EntryTreeNode<EntryMapping> node : mappings) {
+			assertEquals(node.getValue(), received.get(node.getEntry()));
+		}
+
+		assertEquals(mappings.getAllEntries().count(), received.getAllEntries().count());
+		assertTrue(received.findNode(method) != null && !received.findNode(method).hasValue());
+	}
+
+	private static SyncMappingsS2CPacket roundTrip(SyncMappingsS2CPacket packet) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		packet.write(new DataOutputStream(bytes));
+
+		SyncMappingsS2CPacket read = new SyncMappingsS2CPacket();
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		read.read(input);
+		assertEquals(0, input.available());
+		return read;
+	}
+
+	private static class RecordingHandler implements ClientPacketHandler {
+		final List<EntryTree<EntryMapping>> received = new ArrayList<>();
+		final List<Boolean> last = new ArrayList<>();
+		int confirmations;
+
+		@Override
+		public void openMappings(EntryTree<EntryMapping> mappings) {
+			received.add(mappings);
+			last.add(false);
+		}
+
+		@Override
+		public void addMappings(EntryTree<EntryMapping> mappings, boolean last) {
+			received.add(mappings);
+			this.last.add(last);
+		}
+
+		@Override
+		public boolean applyChangeFromServer(EntryChange<?> change) {
+			return true;
+		}
+
+		@Override
+		public void disconnectIfConnected(String reason) {
+		}
+
+		@Override
+		public void sendPacket(Packet<ServerPacketHandler> packet) {
+			assertTrue(packet instanceof ConfirmChangeC2SPacket);
+			confirmations++;
+		}
+
+		@Override
+		public void addMessage(Message message) {
+		}
+
+		@Override
+		public void updateUserList(List<String> users) {
+		}
+	}
+}
@@ -49,6 +49,7 @@ import cuchaz.enigma.api.service.ObfuscationTestService;
 import cuchaz.enigma.classhandle.ClassHandle;
 import cuchaz.enigma.classhandle.ClassHandleProvider;
 import cuchaz.enigma.classprovider.ClasspathClassProvider;
+import cuchaz.enigma.config.ConfigPaths;
 import cuchaz.enigma.gui.config.NetConfig;
 import cuchaz.enigma.gui.config.UiConfig;
 import cuchaz.enigma.gui.dialog.ProgressDialog;
@@ -80,8 +81,8 @@ import cuchaz.enigma.translation.mapping.ResolutionStrategy;
 import cuchaz.enigma.translation.mapping.serde.MappingFormat;
 import cuchaz.enigma.translation.mapping.serde.MappingParseException;
 import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.tree.ConcurrentEntryTree;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
-import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
@@ -107,12 +108,14 @@ public class GuiController implements ClientPacketHandler {
 
 	private EnigmaClient client;
 	private EnigmaServer server;
+	// the mappings received from the server, which the rest of the initial sync is added to
+	private ConcurrentEntryTree<EntryMapping> syncedMappings;
 
 	private History<EntryReference<Entry<?>, Entry<?>>> referenceHistory;
 
 	public GuiController(Gui gui, EnigmaProfile profile) {
 		this.gui = gui;
-		this.enigma = Enigma.builder().setProfile(profile).build();
+		this.enigma = Enigma.builder().setProfile(profile).setIndexCacheDirectory(ConfigPaths.getIndexCachePath()).setSourceCacheDirectory(ConfigPaths.getSourceCachePath()).build();
 	}
 
 	public boolean isDirty() {
@@ -156,7 +159,9 @@ public class GuiController implements ClientPacketHandler {
 		return ProgressDialog.runOffThread(gui.getFrame(), progress -> {
 			try {
 				MappingSaveParameters saveParameters = enigma.getProfile().getMappingSaveParameters();
-				project.setMappings(format.read(path, progress, saveParameters, project.getJarIndex()));
+
+				// only parse the classes that get opened where the format allows it, the class tree just needs their names
+				project.setMappings(format.readLazily(path, progress, saveParameters, project.getJarIndex()));
 
 				loadedMappingFormat = format;
 				loadedMappingPath = path;
@@ -175,11 +180,30 @@ public class GuiController implements ClientPacketHandler {
 			return;
 		}
 
-		project.setMappings(mappings);
+		syncedMappings = new ConcurrentEntryTree<>(mappings);
+		project.setMappings(syncedMappings);
 		refreshClasses();
 		chp.invalidateJavadoc();
 	}
 
+	@Override
+	public void addMappings(EntryTree<EntryMapping> mappings, boolean last) {
+		if (project == null || syncedMappings == null) {
+			return;
+		}
+
+		// insert below the remapper, these aren't changes of the user
+		syncedMappings.insertAll(mappings);
+
+		if (last) {
+			refreshClasses();
+			chp.invalidateMapped();
+			chp.invalidateJavadoc();
+		} else {
+			mappings.getRootNodes().forEach(node -> chp.invalidateMapped((ClassEntry) node.getEntry()));
+		}
+	}
+
 	public MappingFormat getLoadedMappingFormat() {
 		return loadedMappingFormat;
 	}
@@ -555,7 +579,7 @@ public class GuiController implements ClientPacketHandler {
 		}
 
 		if (!Objects.equals(prev.targetName(), mapping.targetName())) {
-			this.chp.invalidateMapped();
+			this.chp.invalidateRenamed(target);
 		}
 
 		if (!Objects.equals(prev.javadoc(), mapping.javadoc())) {
@@ -609,7 +633,7 @@ public class GuiController implements ClientPacketHandler {
 	}
 
 	public void createServer(int port, char[] password) throws IOException {
-		server = new IntegratedEnigmaServer(project.getJarChecksum(), password, EntryRemapper.mapped(project.getJarIndex(), new HashEntryTree<>(project.getMapper().getObfToDeobf())), port);
+		server = new IntegratedEnigmaServer(project.getJarChecksum(), password, EntryRemapper.mapped(project.getJarIndex(), new ConcurrentEntryTree<>(project.getMapper().getObfToDeobf())), port);
 		server.start();
 		client = new EnigmaClient(this, "127.0.0.1", port);
 		client.connect();
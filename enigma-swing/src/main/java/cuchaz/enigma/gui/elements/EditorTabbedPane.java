@@ -29,11 +29,15 @@ public class EditorTabbedPane {
 	private final EditorTabPopupMenu editorTabPopupMenu;
 	private final Gui gui;
 
+	@Nullable
+	private EditorPanel focusedEditor;
+
 	public EditorTabbedPane(Gui gui) {
 		this.gui = gui;
 		this.editorTabPopupMenu = new EditorTabPopupMenu(this);
 
 		this.openFiles.addMouseListener(GuiUtil.onMousePress(this::onTabPressed));
+		this.openFiles.addChangeListener(e -> this.onTabSelected());
 	}
 
 	public EditorPanel openClass(ClassEntry entry) {
@@ -65,6 +69,10 @@ public class EditorTabbedPane {
 				public void onClassHandleChanged(EditorPanel editor, ClassEntry old, ClassHandle ch) {
 					EditorTabbedPane.this.editors.remove(old);
 					EditorTabbedPane.this.editors.put(ch.getRef(), editor);
+
+					if (editor == getActiveEditor()) {
+						ch.setPriority(ClassHandle.Priority.FOCUSED);
+					}
 				}
 
 				@Override
@@ -142,6 +150,28 @@ public class EditorTabbedPane {
 		return EditorPanel.byUi(this.openFiles.getSelectedComponent());
 	}
 
+	/**
+	 * Decompiles the class of the selected tab first, and the classes of tabs left in the background last.
+	 */
+	private void onTabSelected() {
+		EditorPanel active = this.getActiveEditor();
+
+		if (active == this.focusedEditor) {
+			return;
+		}
+
+		// editors that were closed already gave up their handle
+		if (this.focusedEditor != null && this.editors.containsValue(this.focusedEditor)) {
+			this.focusedEditor.getClassHandle().setPriority(ClassHandle.Priority.BACKGROUND);
+		}
+
+		if (active != null) {
+			active.getClassHandle().setPriority(ClassHandle.Priority.FOCUSED);
+		}
+
+		this.focusedEditor = active;
+	}
+
 	private void onTabPressed(MouseEvent e) {
 		if (SwingUtilities.isRightMouseButton(e)) {
 			int i = this.openFiles.getUI().tabForCoordinate(this.openFiles, e.getX(), e.getY());
@@ -17,11 +17,14 @@ import java.util.List;
 import java.util.ServiceLoader;
 import java.util.Set;
 
+import javax.annotation.Nullable;
+
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableListMultimap;
 import org.objectweb.asm.Opcodes;
 
 import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.analysis.index.JarIndexCache;
 import cuchaz.enigma.api.EnigmaPlugin;
 import cuchaz.enigma.api.EnigmaPluginContext;
 import cuchaz.enigma.api.service.EnigmaService;
@@ -42,10 +45,18 @@ public class Enigma {
 
 	private final EnigmaProfile profile;
 	private final EnigmaServices services;
+	private final int indexingParallelism;
+	private final @Nullable Path indexCacheDirectory;
+	private final long classCacheSize;
+	private final @Nullable Path sourceCacheDirectory;
 
-	private Enigma(EnigmaProfile profile, EnigmaServices services) {
+	private Enigma(EnigmaProfile profile, EnigmaServices services, int indexingParallelism, @Nullable Path indexCacheDirectory, long classCacheSize, @Nullable Path sourceCacheDirectory) {
 		this.profile = profile;
 		this.services = services;
+		this.indexingParallelism = indexingParallelism;
+		this.indexCacheDirectory = indexCacheDirectory;
+		this.classCacheSize = classCacheSize;
+		this.sourceCacheDirectory = sourceCacheDirectory;
 	}
 
 	public static Enigma create() {
@@ -58,14 +69,32 @@ public class Enigma {
 
 	public EnigmaProject openJar(Path path, ClassProvider libraryClassProvider, ProgressListener progress) throws IOException {
 		JarClassProvider jarClassProvider = new JarClassProvider(path);
-		ClassProvider classProvider = new CachingClassProvider(new CombiningClassProvider(jarClassProvider, libraryClassProvider));
+		ClassProvider classProvider = new CachingClassProvider(new CombiningClassProvider(jarClassProvider, libraryClassProvider), classCacheSize);
 		Set<String> scope = jarClassProvider.getClassNames();
+		byte[] jarChecksum = Utils.zipSha1(path);
 
-		JarIndex index = JarIndex.empty();
-		index.indexJar(scope, classProvider, progress);
+		JarIndex index = indexJar(scope, classProvider, jarChecksum, progress);
 		services.get(JarIndexerService.TYPE).forEach(indexer -> indexer.acceptJar(scope, classProvider, index));
 
-		return new EnigmaProject(this, path, classProvider, index, Utils.zipSha1(path));
+		return new EnigmaProject(this, path, classProvider, index, jarChecksum);
+	}
+
+	private JarIndex indexJar(Set<String> scope, ClassProvider classProvider, byte[] jarChecksum, ProgressListener progress) {
+		if (indexCacheDirectory == null) {
+			JarIndex index = JarIndex.empty();
+			index.indexJar(scope, classProvider, progress, indexingParallelism);
+			return index;
+		}
+
+		JarIndexCache cache = new JarIndexCache(indexCacheDirectory);
+		JarIndex index = cache.load(jarChecksum, progress);
+
+		if (index == null) {
+			index = JarIndex.empty();
+			cache.indexAndStore(jarChecksum, index, scope, classProvider, progress, indexingParallelism);
+		}
+
+		return index;
 	}
 
 	public EnigmaProfile getProfile() {
@@ -76,9 +105,21 @@ public class Enigma {
 		return services;
 	}
 
+	/**
+	 * Gets the directory decompiled sources are cached in, or {@code null} if they aren't cached.
+	 */
+	@Nullable
+	public Path getSourceCacheDirectory() {
+		return sourceCacheDirectory;
+	}
+
 	public static class Builder {
 		private EnigmaProfile profile = EnigmaProfile.EMPTY;
 		private Iterable<EnigmaPlugin> plugins = ServiceLoader.load(EnigmaPlugin.class);
+		private int indexingParallelism = Runtime.getRuntime().availableProcessors();
+		private @Nullable Path indexCacheDirectory;
+		private long classCacheSize = CachingClassProvider.DEFAULT_MAXIMUM_WEIGHT;
+		private @Nullable Path sourceCacheDirectory;
 
 		private Builder() {
 		}
@@ -95,6 +136,40 @@ public class Enigma {
 			return this;
 		}
 
+		/**
+		 * Sets the number of threads used to index opened jars. {@code 1} indexes on the calling thread.
+		 */
+		public Builder setIndexingParallelism(int indexingParallelism) {
+			Preconditions.checkArgument(indexingParallelism > 0, "indexingParallelism must be positive");
+			this.indexingParallelism = indexingParallelism;
+			return this;
+		}
+
+		/**
+		 * Sets the directory indexed jars are cached in, or {@code null} to always index jars from scratch.
+		 */
+		public Builder setIndexCacheDirectory(@Nullable Path indexCacheDirectory) {
+			this.indexCacheDirectory = indexCacheDirectory;
+			return this;
+		}
+
+		/**
+		 * Sets the heap budget, in bytes, of the class cache of opened jars.
+		 */
+		public Builder setClassCacheSize(long classCacheSize) {
+			Preconditions.checkArgument(classCacheSize > 0, "classCacheSize must be positive");
+			this.classCacheSize = classCacheSize;
+			return this;
+		}
+
+		/**
+		 * Sets the directory decompiled sources are cached in, or {@code null} to not cache them.
+		 */
+		public Builder setSourceCacheDirectory(@Nullable Path sourceCacheDirectory) {
+			this.sourceCacheDirectory = sourceCacheDirectory;
+			return this;
+		}
+
 		public Enigma build() {
 			PluginContext pluginContext = new PluginContext(profile);
 
@@ -103,7 +178,7 @@ public class Enigma {
 			}
 
 			EnigmaServices services = pluginContext.buildServices();
-			return new Enigma(profile, services);
+			return new Enigma(profile, services, indexingParallelism, indexCacheDirectory, classCacheSize, sourceCacheDirectory);
 		}
 	}
 
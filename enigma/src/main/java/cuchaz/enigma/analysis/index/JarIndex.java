@@ -11,11 +11,21 @@
 
 package cuchaz.enigma.analysis.index;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
 
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ListMultimap;
@@ -44,7 +54,8 @@ public class JarIndex implements JarIndexer {
 	private final ReferenceIndex referenceIndex;
 	private final BridgeMethodIndex bridgeMethodIndex;
 	private final PackageVisibilityIndex packageVisibilityIndex;
-	private final EntryResolver entryResolver;
+	private final MethodEquivalenceIndex methodEquivalenceIndex = new MethodEquivalenceIndex();
+	private final IndexEntryResolver entryResolver;
 
 	private final Collection<JarIndexer> indexers;
 
@@ -72,25 +83,71 @@ public class JarIndex implements JarIndexer {
 	}
 
 	public void indexJar(Set<String> classNames, ClassProvider classProvider, ProgressListener progress) {
+		indexJar(classNames, classProvider, progress, 1);
+	}
+
+	/**
+	 * Indexes the given classes, walking them on up to {@code parallelism} threads.
+	 *
+	 * <p>Workers only read the class provider (and, for references, the already merged entry and inheritance
+	 * indices), so the class provider must be safe to use from multiple threads when {@code parallelism > 1}.
+	 * The result is identical to the one of a sequential index.
+	 */
+	public void indexJar(Set<String> classNames, ClassProvider classProvider, ProgressListener progress, int parallelism) {
+		indexJar(classNames, classProvider, progress, parallelism, this);
+	}
+
+	/**
+	 * @param sink receives the indexing events in the order this index has to see them, and must pass them on to it
+	 */
+	void indexJar(Set<String> classNames, ClassProvider classProvider, ProgressListener progress, int parallelism, JarIndexer sink) {
+		Preconditions.checkArgument(parallelism > 0, "parallelism must be positive");
+
 		indexedClasses.addAll(classNames);
 		progress.init(4, I18n.translate("progress.jar.indexing"));
 
-		progress.step(1, I18n.translate("progress.jar.indexing.entries"));
+		List<String> classes = List.copyOf(classNames);
+		ExecutorService executor = parallelism > 1 && classes.size() > 1 ? Executors.newFixedThreadPool(parallelism) : null;
 
-		for (String className : classNames) {
-			classProvider.get(className).accept(new IndexClassVisitor(this, Enigma.ASM_VERSION));
-		}
+		try {
+			progress.step(1, I18n.translate("progress.jar.indexing.entries"));
 
-		progress.step(2, I18n.translate("progress.jar.indexing.references"));
+			forEachShard(classes, executor, parallelism, sink, (className, indexer) -> {
+				classProvider.get(className).accept(new IndexClassVisitor(indexer, Enigma.ASM_VERSION));
+			});
 
-		for (String className : classNames) {
-			try {
-				classProvider.get(className).accept(new IndexReferenceVisitor(this, entryIndex, inheritanceIndex, Enigma.ASM_VERSION));
-			} catch (Exception e) {
-				throw new RuntimeException("Exception while indexing class: " + className, e);
+			progress.step(2, I18n.translate("progress.jar.indexing.references"));
+
+			forEachShard(classes, executor, parallelism, sink, (className, indexer) -> {
+				try {
+					classProvider.get(className).accept(new IndexReferenceVisitor(indexer, entryIndex, inheritanceIndex, Enigma.ASM_VERSION));
+				} catch (Exception e) {
+					throw new RuntimeException("Exception while indexing class: " + className, e);
+				}
+			});
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
 			}
 		}
 
+		processJar(progress);
+	}
+
+	/**
+	 * Restores the classes of a jar indexed earlier, whose indexing events are replayed by {@code replay}.
+	 */
+	void indexCached(Collection<String> classNames, ProgressListener progress, IndexReplay replay) throws IOException {
+		indexedClasses.addAll(classNames);
+		progress.init(4, I18n.translate("progress.jar.indexing"));
+
+		progress.step(1, I18n.translate("progress.jar.indexing.cache"));
+		replay.replay(this);
+
+		processJar(progress);
+	}
+
+	private void processJar(ProgressListener progress) {
 		progress.step(3, I18n.translate("progress.jar.indexing.methods"));
 		bridgeMethodIndex.findBridgeMethods();
 
@@ -98,9 +155,58 @@ public class JarIndex implements JarIndexer {
 		processIndex(this);
 	}
 
+	private void forEachShard(List<String> classes, @Nullable ExecutorService executor, int parallelism, JarIndexer sink, BiConsumer<String, JarIndexer> action) {
+		if (executor == null) {
+			for (String className : classes) {
+				action.accept(className, sink);
+			}
+
+			return;
+		}
+
+		// a few shards per thread keep the workers busy when some classes are much larger than others
+		int shardSize = Math.max(1, classes.size() / (parallelism * 4));
+		List<Future<JarIndexShard>> shards = new ArrayList<>();
+
+		for (int start = 0; start < classes.size(); start += shardSize) {
+			List<String> shardClasses = classes.subList(start, Math.min(start + shardSize, classes.size()));
+			shards.add(executor.submit(() -> {
+				JarIndexShard shard = new JarIndexShard();
+
+				for (String className : shardClasses) {
+					action.accept(className, shard);
+				}
+
+				return shard;
+			}));
+		}
+
+		// merge in class order so the result doesn't depend on scheduling
+		for (Future<JarIndexShard> shard : shards) {
+			try {
+				shard.get().mergeInto(sink);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException runtimeException) {
+					throw runtimeException;
+				}
+
+				throw new RuntimeException(e.getCause());
+			}
+		}
+	}
+
 	@Override
 	public void processIndex(JarIndex index) {
 		indexers.forEach(indexer -> indexer.processIndex(index));
+
+		// anything resolved while indexing may be outdated now
+		entryResolver.invalidateCaches();
+
+		// groups methods by resolving them, so it has to come after everything else
+		methodEquivalenceIndex.processIndex(index);
 	}
 
 	@Override
@@ -208,6 +314,10 @@ public class JarIndex implements JarIndexer {
 		return packageVisibilityIndex;
 	}
 
+	public MethodEquivalenceIndex getMethodEquivalenceIndex() {
+		return methodEquivalenceIndex;
+	}
+
 	public EntryResolver getEntryResolver() {
 		return entryResolver;
 	}
@@ -219,4 +329,9 @@ public class JarIndex implements JarIndexer {
 	public boolean isIndexed(String internalName) {
 		return indexedClasses.contains(internalName);
 	}
+
+	@FunctionalInterface
+	interface IndexReplay {
+		void replay(JarIndexer indexer) throws IOException;
+	}
 }
@@ -0,0 +1,534 @@
+package cuchaz.enigma.analysis.index;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+import com.google.common.io.BaseEncoding;
+
+import cuchaz.enigma.Enigma;
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.analysis.ReferenceTargetType;
+import cuchaz.enigma.classprovider.ClassProvider;
+import cuchaz.enigma.translation.representation.AccessFlags;
+import cuchaz.enigma.translation.representation.Lambda;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.Signature;
+import cuchaz.enigma.translation.representation.entry.ClassDefEntry;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldDefEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.translation.representation.entry.ParentedEntry;
+
+/**
+ * Stores {@link JarIndex}es on disk, keyed by the checksum of the indexed jar and the Enigma version.
+ *
+ * <p>The cache holds the indexing events the class visitors produced, in a compact string pooled form. Loading
+ * an index replays them and runs the bridge method and processing steps, so a cached index is identical to a
+ * freshly built one, without having to read or analyze any class.
+ *
+ * <p>As every new jar or Enigma version leaves the indexes of the old ones behind, the cache is kept to
+ * {@link #MAX_SIZE} and {@link #MAX_AGE}, dropping the least recently used indexes first.
+ */
+public class JarIndexCache {
+	private static final int MAGIC = 0x454E4958; // "ENIX"
+	private static final int FORMAT_VERSION = 1;
+
+	public static final long MAX_SIZE = 512L * 1024 * 1024;
+	public static final Duration MAX_AGE = Duration.ofDays(30);
+
+	private static final int CLASS = 0;
+	private static final int FIELD = 1;
+	private static final int METHOD = 2;
+	private static final int CLASS_REFERENCE = 3;
+	private static final int METHOD_REFERENCE = 4;
+	private static final int FIELD_REFERENCE = 5;
+	private static final int LAMBDA = 6;
+	private static final int END = 7;
+
+	private final Path directory;
+
+	public JarIndexCache(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Loads the cached index of a jar.
+	 *
+	 * @return the index, or {@code null} if there is no usable cache entry for the jar
+	 */
+	@Nullable
+	public JarIndex load(byte[] jarChecksum, ProgressListener progress) {
+		Path file = getCacheFile(jarChecksum);
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(Enigma.VERSION)) {
+				return null;
+			}
+
+			byte[] checksum = new byte[jarChecksum.length];
+			in.readFully(checksum);
+
+			if (!Arrays.equals(checksum, jarChecksum)) {
+				return null;
+			}
+
+			EventReader reader = new EventReader(in);
+			List<String> classNames = reader.readClassNames();
+			JarIndex index = JarIndex.empty();
+			index.indexCached(classNames, progress, reader::readEvents);
+			// the last modified time tells eviction which indexes are still in use
+			Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+			return index;
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Ignoring unreadable jar index cache " + file + ": " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * Indexes a jar like {@link JarIndex#indexJar(Set, ClassProvider, ProgressListener, int)} does, and stores
+	 * the result in the cache. Failing to store the index is reported, but doesn't fail indexing.
+	 */
+	public void indexAndStore(byte[] jarChecksum, JarIndex index, Set<String> classNames, ClassProvider classProvider, ProgressListener progress, int parallelism) {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		EventWriter writer = new EventWriter(index, new DataOutputStream(buffer));
+
+		try {
+			writer.writeClassNames(classNames);
+			index.indexJar(classNames, classProvider, progress, parallelism, writer);
+			writer.writeEnd();
+		} catch (IOException e) {
+			// the buffer doesn't throw
+			throw new UncheckedIOException(e);
+		}
+
+		Path file = getCacheFile(jarChecksum);
+		evict(MAX_SIZE, MAX_AGE);
+
+		try {
+			Files.createDirectories(directory);
+			Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+			try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tempFile))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeUTF(Enigma.VERSION);
+				out.write(jarChecksum);
+				buffer.writeTo(out);
+			}
+
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println("Failed to write jar index cache " + file + ": " + e);
+		}
+	}
+
+	/**
+	 * Deletes the cached indexes that haven't been used for longer than the given age, then the least recently used
+	 * ones until the cache fits in the given size.
+	 */
+	public void evict(long maxSize, Duration maxAge) {
+		List<CacheFile> files = new ArrayList<>();
+
+		try (Stream<Path> paths = Files.list(directory)) {
+			for (Path path : (Iterable<Path>) paths::iterator) {
+				BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+				if (attributes.isRegularFile()) {
+					files.add(new CacheFile(path, attributes.size(), attributes.lastModifiedTime().toInstant()));
+				}
+			}
+		} catch (NoSuchFileException e) {
+			return;
+		} catch (IOException | UncheckedIOException e) {
+			System.err.println("Failed to list jar index caches in " + directory + ": " + e);
+			return;
+		}
+
+		files.sort(Comparator.comparing(CacheFile::lastUsed).reversed());
+		Instant oldest = Instant.now().minus(maxAge);
+		long size = 0;
+
+		for (CacheFile file : files) {
+			if (size + file.size() <= maxSize && !file.lastUsed().isBefore(oldest)) {
+				size += file.size();
+				continue;
+			}
+
+			try {
+				Files.deleteIfExists(file.path());
+			} catch (IOException e) {
+				System.err.println("Failed to delete jar index cache " + file.path() + ": " + e);
+			}
+		}
+	}
+
+	private Path getCacheFile(byte[] jarChecksum) {
+		String version = Enigma.VERSION.replaceAll("[^A-Za-z0-9._-]", "_");
+		return directory.resolve(BaseEncoding.base16().lowerCase().encode(jarChecksum) + "-" + version + ".index");
+	}
+
+	private record CacheFile(Path path, long size, Instant lastUsed) {
+	}
+
+	/**
+	 * Encodes every event it receives, and passes it on to the index.
+	 */
+	private static final class EventWriter implements JarIndexer {
+		private final JarIndexer delegate;
+		private final DataOutput out;
+		private final Map<String, Integer> strings = new HashMap<>();
+		private final Map<MethodDefEntry, Integer> callers = new IdentityHashMap<>();
+		private @Nullable ClassDefEntry lastClass;
+
+		EventWriter(JarIndexer delegate, DataOutput out) {
+			this.delegate = delegate;
+			this.out = out;
+		}
+
+		@Override
+		public void indexClass(ClassDefEntry classEntry) {
+			delegate.indexClass(classEntry);
+			lastClass = classEntry;
+
+			try {
+				out.writeByte(CLASS);
+				writeVarInt(classEntry.getAccess().getFlags());
+				writeString(classEntry.getFullName());
+				writeString(classEntry.getSignature().getSignature());
+				writeString(classEntry.getSuperClass() != null ? classEntry.getSuperClass().getFullName() : null);
+				writeVarInt(classEntry.getInterfaces().length);
+
+				for (ClassEntry interfaceEntry : classEntry.getInterfaces()) {
+					writeString(interfaceEntry.getFullName());
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void indexField(FieldDefEntry fieldEntry) {
+			delegate.indexField(fieldEntry);
+
+			try {
+				out.writeByte(FIELD);
+				writeOwner(fieldEntry.getParent());
+				writeVarInt(fieldEntry.getAccess().getFlags());
+				writeString(fieldEntry.getName());
+				writeString(fieldEntry.getDesc().toString());
+				writeString(fieldEntry.getSignature().getSignature());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void indexMethod(MethodDefEntry methodEntry) {
+			delegate.indexMethod(methodEntry);
+
+			try {
+				out.writeByte(METHOD);
+				writeOwner(methodEntry.getParent());
+				writeVarInt(methodEntry.getAccess().getFlags());
+				writeString(methodEntry.getName());
+				writeString(methodEntry.getDesc().toString());
+				writeString(methodEntry.getSignature().getSignature());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void indexClassReference(MethodDefEntry callerEntry, ClassEntry referencedEntry, ReferenceTargetType targetType) {
+			delegate.indexClassReference(callerEntry, referencedEntry, targetType);
+
+			try {
+				out.writeByte(CLASS_REFERENCE);
+				writeCaller(callerEntry);
+				writeString(referencedEntry.getFullName());
+				writeTargetType(targetType);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void indexMethodReference(MethodDefEntry callerEntry, MethodEntry referencedEntry, ReferenceTargetType targetType) {
+			delegate.indexMethodReference(callerEntry, referencedEntry, targetType);
+
+			try {
+				out.writeByte(METHOD_REFERENCE);
+				writeCaller(callerEntry);
+				writeMember(referencedEntry);
+				writeTargetType(targetType);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void indexFieldReference(MethodDefEntry callerEntry, FieldEntry referencedEntry, ReferenceTargetType targetType) {
+			delegate.indexFieldReference(callerEntry, referencedEntry, targetType);
+
+			try {
+				out.writeByte(FIELD_REFERENCE);
+				writeCaller(callerEntry);
+				writeMember(referencedEntry);
+				writeTargetType(targetType);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void indexLambda(MethodDefEntry callerEntry, Lambda lambda, ReferenceTargetType targetType) {
+			delegate.indexLambda(callerEntry, lambda, targetType);
+
+			try {
+				out.writeByte(LAMBDA);
+				writeCaller(callerEntry);
+				writeString(lambda.getInvokedName());
+				writeString(lambda.getInvokedType().toString());
+				writeString(lambda.getSamMethodType().toString());
+				out.writeBoolean(lambda.getImplMethod() instanceof MethodEntry);
+				writeMember(lambda.getImplMethod());
+				writeString(lambda.getInstantiatedMethodType().toString());
+				writeTargetType(targetType);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		void writeClassNames(Set<String> classNames) throws IOException {
+			writeVarInt(classNames.size());
+
+			for (String className : classNames) {
+				writeString(className);
+			}
+		}
+
+		void writeEnd() throws IOException {
+			out.writeByte(END);
+		}
+
+		private void writeOwner(ClassEntry owner) throws IOException {
+			// members are visited right after their class, so their owner is almost always its definition
+			boolean isLastClass = owner == lastClass;
+			out.writeBoolean(isLastClass);
+
+			if (!isLastClass) {
+				writeString(owner.getFullName());
+			}
+		}
+
+		private void writeCaller(MethodDefEntry caller) throws IOException {
+			Integer id = callers.get(caller);
+
+			if (id != null) {
+				writeVarInt(id + 1);
+				return;
+			}
+
+			callers.put(caller, callers.size());
+			writeVarInt(0);
+			writeString(caller.getParent().getFullName());
+			writeVarInt(caller.getAccess().getFlags());
+			writeString(caller.getName());
+			writeString(caller.getDesc().toString());
+			writeString(caller.getSignature().getSignature());
+		}
+
+		private void writeMember(ParentedEntry<?> member) throws IOException {
+			writeString(member.getParent().getFullName());
+			writeString(member.getName());
+			writeString(member instanceof MethodEntry method ? method.getDesc().toString() : ((FieldEntry) member).getDesc().toString());
+		}
+
+		private void writeTargetType(ReferenceTargetType targetType) throws IOException {
+			out.writeByte(targetType.getKind().ordinal());
+
+			if (targetType instanceof ReferenceTargetType.ClassType classType) {
+				writeString(classType.getEntry().getFullName());
+			}
+		}
+
+		/**
+		 * Writes {@code 0} for {@code null}, {@code 1} followed by the string for new strings,
+		 * and the pool index plus 2 for strings that were written before.
+		 */
+		private void writeString(@Nullable String string) throws IOException {
+			if (string == null) {
+				writeVarInt(0);
+				return;
+			}
+
+			Integer id = strings.get(string);
+
+			if (id != null) {
+				writeVarInt(id + 2);
+				return;
+			}
+
+			strings.put(string, strings.size());
+			writeVarInt(1);
+			out.writeUTF(string);
+		}
+
+		private void writeVarInt(int value) throws IOException {
+			while ((value & ~0x7F) != 0) {
+				out.writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+
+			out.writeByte(value);
+		}
+	}
+
+	private static final class EventReader {
+		private final DataInput in;
+		private final List<String> strings = new ArrayList<>();
+		private final List<MethodDefEntry> callers = new ArrayList<>();
+		private @Nullable ClassDefEntry lastClass;
+
+		EventReader(DataInput in) {
+			this.in = in;
+		}
+
+		List<String> readClassNames() throws IOException {
+			int count = readVarInt();
+			List<String> classNames = new ArrayList<>(count);
+
+			for (int i = 0; i < count; i++) {
+				classNames.add(readString());
+			}
+
+			return classNames;
+		}
+
+		void readEvents(JarIndexer indexer) throws IOException {
+			while (true) {
+				int event = in.readUnsignedByte();
+
+				switch (event) {
+				case CLASS -> {
+					int access = readVarInt();
+					String name = readString();
+					String signature = readString();
+					String superName = readString();
+					String[] interfaces = new String[readVarInt()];
+
+					for (int i = 0; i < interfaces.length; i++) {
+						interfaces[i] = readString();
+					}
+
+					lastClass = ClassDefEntry.parse(access, name, signature, superName, interfaces);
+					indexer.indexClass(lastClass);
+				}
+				case FIELD -> indexer.indexField(FieldDefEntry.parse(readOwner(), readVarInt(), readString(), readString(), readString()));
+				case METHOD -> indexer.indexMethod(MethodDefEntry.parse(readOwner(), readVarInt(), readString(), readString(), readString()));
+				case CLASS_REFERENCE -> indexer.indexClassReference(readCaller(), new ClassEntry(readString()), readTargetType());
+				case METHOD_REFERENCE -> indexer.indexMethodReference(readCaller(), MethodEntry.parse(readString(), readString(), readString()), readTargetType());
+				case FIELD_REFERENCE -> indexer.indexFieldReference(readCaller(), FieldEntry.parse(readString(), readString(), readString()), readTargetType());
+				case LAMBDA -> {
+					MethodDefEntry caller = readCaller();
+					String invokedName = readString();
+					MethodDescriptor invokedType = new MethodDescriptor(readString());
+					MethodDescriptor samMethodType = new MethodDescriptor(readString());
+					ParentedEntry<?> implMethod = in.readBoolean() ? MethodEntry.parse(readString(), readString(), readString()) : FieldEntry.parse(readString(), readString(), readString());
+					MethodDescriptor instantiatedMethodType = new MethodDescriptor(readString());
+					indexer.indexLambda(caller, new Lambda(invokedName, invokedType, samMethodType, implMethod, instantiatedMethodType), readTargetType());
+				}
+				case END -> {
+					return;
+				}
+				default -> throw new IOException("Unknown index event " + event);
+				}
+			}
+		}
+
+		private ClassEntry readOwner() throws IOException {
+			return in.readBoolean() ? lastClass : new ClassEntry(readString());
+		}
+
+		private MethodDefEntry readCaller() throws IOException {
+			int id = readVarInt();
+
+			if (id != 0) {
+				return callers.get(id - 1);
+			}
+
+			ClassEntry owner = new ClassEntry(readString());
+			int access = readVarInt();
+			MethodDefEntry caller = new MethodDefEntry(owner, readString(), new MethodDescriptor(readString()), Signature.createSignature(readString()), new AccessFlags(access));
+			callers.add(caller);
+			return caller;
+		}
+
+		private ReferenceTargetType readTargetType() throws IOException {
+			return switch (ReferenceTargetType.Kind.values()[in.readUnsignedByte()]) {
+			case NONE -> ReferenceTargetType.none();
+			case UNINITIALIZED -> ReferenceTargetType.uninitialized();
+			case CLASS_TYPE -> ReferenceTargetType.classType(new ClassEntry(readString()));
+			};
+		}
+
+		@Nullable
+		private String readString() throws IOException {
+			int id = readVarInt();
+
+			if (id == 0) {
+				return null;
+			} else if (id == 1) {
+				String string = in.readUTF();
+				strings.add(string);
+				return string;
+			}
+
+			return strings.get(id - 2);
+		}
+
+		private int readVarInt() throws IOException {
+			int value = 0;
+			int shift = 0;
+			int b;
+
+			do {
+				b = in.readUnsignedByte();
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+
+			return value;
+		}
+	}
+}
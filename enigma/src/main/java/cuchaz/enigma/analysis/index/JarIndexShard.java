@@ -0,0 +1,66 @@
+package cuchaz.enigma.analysis.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import cuchaz.enigma.analysis.ReferenceTargetType;
+import cuchaz.enigma.translation.representation.Lambda;
+import cuchaz.enigma.translation.representation.entry.ClassDefEntry;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldDefEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+/**
+ * Collects the indexing events of a contiguous range of classes on a worker thread.
+ *
+ * <p>The events are replayed into the real {@link JarIndex} in the order they were produced, so merging
+ * the shards in class order feeds the index exactly what a sequential pass would have. This matters because
+ * the hash based indices and {@link JarIndex#getChildrenByClass()} depend on insertion order.
+ */
+final class JarIndexShard implements JarIndexer {
+	private final List<Consumer<JarIndexer>> events = new ArrayList<>();
+
+	@Override
+	public void indexClass(ClassDefEntry classEntry) {
+		events.add(indexer -> indexer.indexClass(classEntry));
+	}
+
+	@Override
+	public void indexField(FieldDefEntry fieldEntry) {
+		events.add(indexer -> indexer.indexField(fieldEntry));
+	}
+
+	@Override
+	public void indexMethod(MethodDefEntry methodEntry) {
+		events.add(indexer -> indexer.indexMethod(methodEntry));
+	}
+
+	@Override
+	public void indexClassReference(MethodDefEntry callerEntry, ClassEntry referencedEntry, ReferenceTargetType targetType) {
+		events.add(indexer -> indexer.indexClassReference(callerEntry, referencedEntry, targetType));
+	}
+
+	@Override
+	public void indexMethodReference(MethodDefEntry callerEntry, MethodEntry referencedEntry, ReferenceTargetType targetType) {
+		events.add(indexer -> indexer.indexMethodReference(callerEntry, referencedEntry, targetType));
+	}
+
+	@Override
+	public void indexFieldReference(MethodDefEntry callerEntry, FieldEntry referencedEntry, ReferenceTargetType targetType) {
+		events.add(indexer -> indexer.indexFieldReference(callerEntry, referencedEntry, targetType));
+	}
+
+	@Override
+	public void indexLambda(MethodDefEntry callerEntry, Lambda lambda, ReferenceTargetType targetType) {
+		events.add(indexer -> indexer.indexLambda(callerEntry, lambda, targetType));
+	}
+
+	void mergeInto(JarIndexer indexer) {
+		for (Consumer<JarIndexer> event : events) {
+			event.accept(indexer);
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package cuchaz.enigma.analysis.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import cuchaz.enigma.translation.mapping.EntryResolver;
+import cuchaz.enigma.translation.mapping.ResolutionStrategy;
+import cuchaz.enigma.translation.representation.AccessFlags;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+/**
+ * Groups the methods of a jar that have to share a name, as they override each other or bridge to each other.
+ *
+ * <p>The groups are built once every other index is processed, by joining each method that can be overridden with the
+ * methods it resolves to as root, and each specialized method with its bridge, in a union-find structure. Looking up
+ * the group of a method afterwards is a single map lookup.
+ */
+public class MethodEquivalenceIndex implements JarIndexer {
+	private final Map<MethodEntry, Integer> methodGroups = new HashMap<>();
+	private final List<List<MethodEntry>> groups = new ArrayList<>();
+
+	@Override
+	public void processIndex(JarIndex index) {
+		EntryIndex entryIndex = index.getEntryIndex();
+		EntryResolver resolver = index.getEntryResolver();
+
+		List<MethodEntry> methods = List.copyOf(entryIndex.getMethods());
+		Map<MethodEntry, Integer> ids = new HashMap<>(methods.size() * 2);
+
+		for (int i = 0; i < methods.size(); i++) {
+			ids.put(methods.get(i), i);
+		}
+
+		UnionFind unionFind = new UnionFind(methods.size());
+
+		for (int i = 0; i < methods.size(); i++) {
+			MethodEntry method = methods.get(i);
+			AccessFlags access = entryIndex.getMethodAccess(method);
+
+			if (access == null || method.isConstructor() || access.isPrivate() || access.isStatic()) {
+				continue;
+			}
+
+			for (MethodEntry root : resolver.resolveEntry(method, ResolutionStrategy.RESOLVE_ROOT)) {
+				Integer rootId = ids.get(root);
+
+				if (rootId != null) {
+					unionFind.union(i, rootId);
+				}
+			}
+		}
+
+		for (Map.Entry<MethodEntry, MethodEntry> bridge : index.getBridgeMethodIndex().getSpecializedToBridge().entrySet()) {
+			Integer specializedId = ids.get(bridge.getKey());
+			Integer bridgeId = ids.get(bridge.getValue());
+
+			if (specializedId != null && bridgeId != null) {
+				unionFind.union(specializedId, bridgeId);
+			}
+		}
+
+		methodGroups.clear();
+		groups.clear();
+
+		int[] groupsByRoot = new int[methods.size()];
+		Arrays.fill(groupsByRoot, -1);
+		List<List<MethodEntry>> members = new ArrayList<>();
+
+		for (int i = 0; i < methods.size(); i++) {
+			int root = unionFind.find(i);
+
+			if (groupsByRoot[root] == -1) {
+				groupsByRoot[root] = members.size();
+				members.add(new ArrayList<>());
+			}
+
+			// strip the definition, so that groups hold plain entries like the ones resolved from references
+			MethodEntry method = methods.get(i);
+			MethodEntry plainMethod = new MethodEntry(method.getParent(), method.getName(), method.getDesc());
+
+			methodGroups.put(plainMethod, groupsByRoot[root]);
+			members.get(groupsByRoot[root]).add(plainMethod);
+		}
+
+		for (List<MethodEntry> group : members) {
+			groups.add(Collections.unmodifiableList(group));
+		}
+	}
+
+	/**
+	 * Gets the id of the group of a method, or -1 if the method isn't indexed.
+	 */
+	public int getGroup(MethodEntry method) {
+		Integer group = methodGroups.get(method);
+		return group != null ? group : -1;
+	}
+
+	/**
+	 * Gets the methods of a group, including the ones that can't be renamed.
+	 */
+	public List<MethodEntry> getGroupMethods(int group) {
+		return groups.get(group);
+	}
+
+	/**
+	 * Gets the methods that have to share a name with a method, including the method itself, or an empty collection
+	 * if the method isn't indexed.
+	 */
+	public Collection<MethodEntry> getEquivalentMethods(MethodEntry method) {
+		int group = getGroup(method);
+		return group != -1 ? groups.get(group) : Collections.emptyList();
+	}
+
+	public int getGroupCount() {
+		return groups.size();
+	}
+
+	private static final class UnionFind {
+		private final int[] parents;
+		private final int[] sizes;
+
+		UnionFind(int size) {
+			this.parents = new int[size];
+			this.sizes = new int[size];
+
+			for (int i = 0; i < size; i++) {
+				parents[i] = i;
+				sizes[i] = 1;
+			}
+		}
+
+		int find(int element) {
+			while (parents[element] != element) {
+				// path halving
+				parents[element] = parents[parents[element]];
+				element = parents[element];
+			}
+
+			return element;
+		}
+
+		void union(int a, int b) {
+			int rootA = find(a);
+			int rootB = find(b);
+
+			if (rootA == rootB) {
+				return;
+			}
+
+			if (sizes[rootA] < sizes[rootB]) {
+				int swap = rootA;
+				rootA = rootB;
+				rootB = swap;
+			}
+
+			parents[rootB] = rootA;
+			sizes[rootA] += sizes[rootB];
+		}
+	}
+}
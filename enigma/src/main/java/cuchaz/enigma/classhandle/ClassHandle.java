@@ -66,6 +66,17 @@ public interface ClassHandle extends AutoCloseable {
 
 	void invalidateJavadoc();
 
+	/**
+	 * Sets how urgently the class is wanted through this handle. Pending work
+	 * for classes is done in order of the highest priority of their handles.
+	 * New handles start out as {@link Priority#VISIBLE}. Does nothing if the
+	 * class handle is closed, as the priority of a closed handle doesn't
+	 * matter anymore.
+	 *
+	 * @param priority the new priority of this handle
+	 */
+	void setPriority(Priority priority);
+
 	/**
 	 * Adds a listener for this class handle.
 	 *
@@ -103,4 +114,22 @@ public interface ClassHandle extends AutoCloseable {
 	 */
 	@Override
 	void close();
+
+	/**
+	 * How urgently a class is wanted, from most to least urgent.
+	 */
+	enum Priority {
+		/**
+		 * The class is what the user is looking at.
+		 */
+		FOCUSED,
+		/**
+		 * The class is shown, or about to be.
+		 */
+		VISIBLE,
+		/**
+		 * The class is open, but not shown.
+		 */
+		BACKGROUND
+	}
 }
@@ -2,8 +2,10 @@ package cuchaz.enigma.classhandle;
 
 import static cuchaz.enigma.utils.Utils.withLock;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -11,15 +13,18 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
 
 import javax.annotation.Nullable;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+
 import cuchaz.enigma.EnigmaProject;
 import cuchaz.enigma.classprovider.CachingClassProvider;
 import cuchaz.enigma.classprovider.ObfuscationFixClassProvider;
@@ -29,31 +34,68 @@ import cuchaz.enigma.source.DecompiledClassSource;
 import cuchaz.enigma.source.Decompiler;
 import cuchaz.enigma.source.DecompilerService;
 import cuchaz.enigma.source.Source;
+import cuchaz.enigma.source.SourceCache;
 import cuchaz.enigma.source.SourceIndex;
 import cuchaz.enigma.source.SourceSettings;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.utils.Result;
 
 public final class ClassHandleProvider {
+	private static final int DEFAULT_DECOMPILER_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+	// the project's class cache already holds the classes, this one only saves fixing them again while they're decompiled
+	private static final long DECOMPILER_CLASS_CACHE_SIZE = 16L << 20;
+	private static final long RETAINED_BUDGET = Runtime.getRuntime().maxMemory() / 32;
+	// the sources, their indices and the decompiler's own trees all grow with the length of the text
+	private static final int RETAINED_BYTES_PER_CHAR = 16;
+
 	private final EnigmaProject project;
 
-	private final ExecutorService pool = Executors.newWorkStealingPool();
+	private final DecompileScheduler scheduler;
 	private DecompilerService ds;
 	private Decompiler decompiler;
 
 	private final Map<ClassEntry, Entry> handles = new HashMap<>();
+	// recently closed classes, kept so reopening them doesn't decompile them again
+	private final Cache<ClassEntry, Entry> retained;
 
 	private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
 	public ClassHandleProvider(EnigmaProject project, DecompilerService ds) {
+		this(project, ds, DEFAULT_DECOMPILER_THREADS);
+	}
+
+	/**
+	 * @param decompilerThreads the maximum number of classes decompiled at once
+	 */
+	public ClassHandleProvider(EnigmaProject project, DecompilerService ds, int decompilerThreads) {
+		this(project, ds, decompilerThreads, RETAINED_BUDGET);
+	}
+
+	/**
+	 * @param retainedBudget the approximate number of bytes the sources of closed classes may take up
+	 */
+	ClassHandleProvider(EnigmaProject project, DecompilerService ds, int decompilerThreads, long retainedBudget) {
 		this.project = project;
 		this.ds = ds;
 		this.decompiler = createDecompiler();
+		this.scheduler = new DecompileScheduler(decompilerThreads);
+		this.retained = CacheBuilder.newBuilder()
+				.maximumWeight(retainedBudget)
+				.weigher((ClassEntry classEntry, Entry entry) -> entry.getRetainedWeight())
+				.removalListener((RemovalNotification<ClassEntry, Entry> notification) -> {
+					// stages of an evicted class may still be queued, and nothing would read their results
+					if (notification.wasEvicted()) {
+						notification.getValue().cancel();
+					}
+				})
+				.concurrencyLevel(1)
+				.build();
 	}
 
 	/**
 	 * Open a class by entry. Schedules decompilation immediately if this is the
-	 * only handle to the class.
+	 * only handle to the class, unless the class was closed recently and its
+	 * source is still retained.
 	 *
 	 * @param entry the entry of the class to open
 	 * @return a handle to the class, {@code null} if a class by that name does
@@ -66,11 +108,22 @@ public final class ClassHandleProvider {
 		}
 
 		return withLock(lock.writeLock(), () -> {
-			Entry e = handles.computeIfAbsent(entry, entry1 -> new Entry(this, entry1));
+			Entry e = handles.computeIfAbsent(entry, this::reopenEntry);
 			return e.createHandle();
 		});
 	}
 
+	private Entry reopenEntry(ClassEntry entry) {
+		Entry e = retained.asMap().remove(entry);
+
+		if (e == null) {
+			return new Entry(this, entry);
+		}
+
+		e.reopen();
+		return e;
+	}
+
 	/**
 	 * Set the decompiler service to use when decompiling classes. Invalidates
 	 * all currently open classes.
@@ -89,6 +142,8 @@ public final class ClassHandleProvider {
 		this.decompiler = createDecompiler();
 		withLock(lock.readLock(), () -> {
 			handles.values().forEach(Entry::invalidate);
+			retained.asMap().values().forEach(Entry::cancel);
+			retained.invalidateAll();
 		});
 	}
 
@@ -102,7 +157,15 @@ public final class ClassHandleProvider {
 	}
 
 	private Decompiler createDecompiler() {
-		return ds.create(new CachingClassProvider(new ObfuscationFixClassProvider(project.getClassProvider(), project.getJarIndex())), new SourceSettings(true, true));
+		SourceSettings settings = new SourceSettings(true, true);
+		Decompiler decompiler = ds.create(new CachingClassProvider(new ObfuscationFixClassProvider(project.getClassProvider(), project.getJarIndex()), DECOMPILER_CLASS_CACHE_SIZE), settings);
+		Path sourceCacheDirectory = project.getEnigma().getSourceCacheDirectory();
+
+		if (sourceCacheDirectory != null && ds.getId() != null) {
+			decompiler = new SourceCache(sourceCacheDirectory, project.getJarChecksum()).wrap(decompiler, ds.getId(), settings);
+		}
+
+		return decompiler;
 	}
 
 	/**
@@ -110,8 +173,34 @@ public final class ClassHandleProvider {
 	 * re-remapped.
 	 */
 	public void invalidateMapped() {
+		// classes only move between the open and the retained ones under the write lock, so none is missed
 		withLock(lock.readLock(), () -> {
 			handles.values().forEach(Entry::invalidateMapped);
+			retained.asMap().values().forEach(e -> e.markStale(InvalidationType.MAPPINGS));
+		});
+	}
+
+	/**
+	 * Invalidates the mappings of an entry after it was renamed. Only the
+	 * open classes whose source may name the entry are invalidated, and they
+	 * remap only the tokens naming the entry or one of its equivalents,
+	 * instead of their whole source.
+	 *
+	 * @param entry the renamed entry
+	 */
+	public void invalidateRenamed(cuchaz.enigma.translation.representation.entry.Entry<?> entry) {
+		RenamedEntries renamed = RenamedEntries.of(project, entry);
+		withLock(lock.readLock(), () -> {
+			handles.forEach((classEntry, e) -> {
+				if (renamed.mayBeNamedIn(classEntry)) {
+					e.invalidateRenamed(renamed);
+				}
+			});
+			retained.asMap().forEach((classEntry, e) -> {
+				if (renamed.mayBeNamedIn(classEntry)) {
+					e.markStale(InvalidationType.MAPPINGS);
+				}
+			});
 		});
 	}
 
@@ -129,6 +218,8 @@ public final class ClassHandleProvider {
 
 			if (e != null) {
 				e.invalidateMapped();
+			} else {
+				markRetainedStale(entry, InvalidationType.MAPPINGS);
 			}
 		});
 	}
@@ -140,6 +231,7 @@ public final class ClassHandleProvider {
 	public void invalidateJavadoc() {
 		withLock(lock.readLock(), () -> {
 			handles.values().forEach(Entry::invalidateJavadoc);
+			retained.asMap().values().forEach(e -> e.markStale(InvalidationType.JAVADOC));
 		});
 	}
 
@@ -155,6 +247,8 @@ public final class ClassHandleProvider {
 
 			if (e != null) {
 				e.invalidateJavadoc();
+			} else {
+				markRetainedStale(entry, InvalidationType.JAVADOC);
 			}
 
 			if (entry.isInnerClass()) {
@@ -163,9 +257,26 @@ public final class ClassHandleProvider {
 		});
 	}
 
-	private void deleteEntry(Entry entry) {
+	private void markRetainedStale(ClassEntry entry, InvalidationType type) {
+		Entry e = retained.asMap().get(entry);
+
+		if (e != null) {
+			e.markStale(type);
+		}
+	}
+
+	private void closeEntry(Entry entry) {
 		withLock(lock.writeLock(), () -> {
+			// the class may have been opened again in the meantime
+			if (handles.get(entry.entry) != entry || entry.hasHandles()) {
+				return;
+			}
+
 			handles.remove(entry.entry);
+
+			if (entry.canRetain()) {
+				retained.put(entry.entry, entry);
+			}
 		});
 	}
 
@@ -179,10 +290,10 @@ public final class ClassHandleProvider {
 	 * be used.
 	 */
 	public void destroy() {
-		pool.shutdown();
+		scheduler.shutdown();
 
 		try {
-			pool.awaitTermination(30, TimeUnit.SECONDS);
+			scheduler.awaitTermination(30, TimeUnit.SECONDS);
 		} catch (InterruptedException e) {
 			throw new RuntimeException(e);
 		}
@@ -190,10 +301,11 @@ public final class ClassHandleProvider {
 		withLock(lock.writeLock(), () -> {
 			handles.values().forEach(Entry::destroy);
 			handles.clear();
+			retained.invalidateAll();
 		});
 	}
 
-	private static final class Entry {
+	private static final class Entry implements DecompileScheduler.Owner {
 		private final ClassHandleProvider p;
 		private final ClassEntry entry;
 		private ClassEntry deobfRef;
@@ -208,6 +320,13 @@ public final class ClassHandleProvider {
 		private final AtomicInteger javadocVersion = new AtomicInteger();
 		private final AtomicInteger indexVersion = new AtomicInteger();
 		private final AtomicInteger mappedVersion = new AtomicInteger();
+		// the version of the remap that produced the current source
+		private volatile int sourceMappedVersion;
+
+		private volatile ClassHandle.Priority priority = ClassHandle.Priority.BACKGROUND;
+		// what needs to be redone once this class is reopened, while it is retained
+		@Nullable
+		private InvalidationType staleness;
 
 		private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
@@ -222,10 +341,22 @@ public final class ClassHandleProvider {
 			ClassHandleImpl handle = new ClassHandleImpl(this);
 			withLock(lock.writeLock(), () -> {
 				handles.add(handle);
+				updatePriority();
 			});
 			return handle;
 		}
 
+		@Override
+		public ClassHandle.Priority getPriority() {
+			return priority;
+		}
+
+		private void updatePriority() {
+			withLock(lock.writeLock(), () -> {
+				priority = handles.stream().map(h -> h.priority).min(Comparator.naturalOrder()).orElse(ClassHandle.Priority.BACKGROUND);
+			});
+		}
+
 		@Nullable
 		public ClassEntry getDeobfRef() {
 			return deobfRef;
@@ -259,60 +390,59 @@ public final class ClassHandleProvider {
 			continueMapSource(CompletableFuture.completedFuture(source));
 		}
 
+		public void invalidateRenamed(RenamedEntries renamed) {
+			Result<DecompiledClassSource, ClassHandleError> source = this.source;
+
+			// only a source that no other remap is pending for is up to date with every other name
+			if (source == null || !source.isOk() || sourceMappedVersion != mappedVersion.get()) {
+				invalidateMapped();
+				return;
+			}
+
+			checkDeobfRefForUpdate();
+			withLock(lock.readLock(), () -> new ArrayList<>(handles)).forEach(h -> h.onInvalidate(InvalidationType.MAPPINGS));
+			continueMapSource(CompletableFuture.completedFuture(source), s -> s.remapEntries(p.project, p.project.getMapper().getDeobfuscator(), renamed.entries()));
+		}
+
 		private CompletableFuture<Result<Source, ClassHandleError>> decompile() {
 			int v = decompileVersion.incrementAndGet();
-			return CompletableFuture.supplyAsync(() -> {
-				if (decompileVersion.get() != v) {
-					return null;
-				}
-
+			return p.scheduler.submit(this, DecompileScheduler.Stage.DECOMPILE, () -> decompileVersion.get() == v, () -> {
 				Result<Source, ClassHandleError> uncommentedSource = Result.ok(p.decompiler.getSource(entry.getFullName()));
 				Entry.this.uncommentedSource = uncommentedSource;
 				Entry.this.waitingUncommentedSources.forEach(f -> f.complete(uncommentedSource));
 				Entry.this.waitingUncommentedSources.clear();
 				withLock(lock.readLock(), () -> new ArrayList<>(handles)).forEach(h -> h.onUncommentedSourceChanged(uncommentedSource));
 				return uncommentedSource;
-			}, p.pool);
+			});
 		}
 
 		private CompletableFuture<Result<Source, ClassHandleError>> continueInsertJavadoc(CompletableFuture<Result<Source, ClassHandleError>> f) {
 			int v = javadocVersion.incrementAndGet();
-			return f.thenApplyAsync(res -> {
-				if (res == null || javadocVersion.get() != v) {
-					return null;
-				}
-
+			return f.thenCompose(res -> p.scheduler.submit(this, DecompileScheduler.Stage.JAVADOC, () -> res != null && javadocVersion.get() == v, () -> {
 				Result<Source, ClassHandleError> jdSource = res.map(s -> s.withJavadocs(p.project.getMapper()));
 				withLock(lock.readLock(), () -> new ArrayList<>(handles)).forEach(h -> h.onDocsChanged(jdSource));
 				return jdSource;
-			}, p.pool);
+			}));
 		}
 
 		private CompletableFuture<Result<DecompiledClassSource, ClassHandleError>> continueIndexSource(CompletableFuture<Result<Source, ClassHandleError>> f) {
 			int v = indexVersion.incrementAndGet();
-			return f.thenApplyAsync(res -> {
-				if (res == null || indexVersion.get() != v) {
-					return null;
-				}
-
-				return res.andThen(jdSource -> {
-					SourceIndex index = jdSource.index();
-					index.resolveReferences(p.project.getMapper().getObfResolver());
-					DecompiledClassSource source = new DecompiledClassSource(entry, index);
-					return Result.ok(source);
-				});
-			}, p.pool).exceptionally(e -> Result.err(ClassHandleError.decompile(e)));
+			return f.thenCompose(res -> p.scheduler.submit(this, DecompileScheduler.Stage.INDEX, () -> res != null && indexVersion.get() == v, () -> res.andThen(jdSource -> {
+				SourceIndex index = jdSource.index();
+				index.resolveReferences(p.project.getMapper().getObfResolver());
+				DecompiledClassSource source = new DecompiledClassSource(entry, index);
+				return Result.ok(source);
+			}))).exceptionally(e -> Result.err(ClassHandleError.decompile(e)));
 		}
 
 		private void continueMapSource(CompletableFuture<Result<DecompiledClassSource, ClassHandleError>> f) {
-			int v = mappedVersion.incrementAndGet();
-			f.thenApplyAsync(res -> {
-				if (res == null || mappedVersion.get() != v) {
-					return null;
-				}
+			continueMapSource(f, source -> source.remapSource(p.project, p.project.getMapper().getDeobfuscator()));
+		}
 
-				return res.andThen(source -> Result.ok(source.remapSource(p.project, p.project.getMapper().getDeobfuscator())));
-			}, p.pool).whenComplete((res, e) -> {
+		private void continueMapSource(CompletableFuture<Result<DecompiledClassSource, ClassHandleError>> f, UnaryOperator<DecompiledClassSource> remap) {
+			int v = mappedVersion.incrementAndGet();
+			f.thenCompose(res -> p.scheduler.submit(this, DecompileScheduler.Stage.REMAP, () -> res != null && mappedVersion.get() == v,
+					() -> res.andThen(source -> Result.ok(remap.apply(source))))).whenComplete((res, e) -> {
 				if (e != null) {
 					res = Result.err(ClassHandleError.remap(e));
 				}
@@ -322,6 +452,7 @@ public final class ClassHandleProvider {
 				}
 
 				Entry.this.source = res;
+				Entry.this.sourceMappedVersion = v;
 				Entry.this.waitingSources.forEach(s -> s.complete(source));
 				Entry.this.waitingSources.clear();
 				withLock(lock.readLock(), () -> new ArrayList<>(handles)).forEach(h -> h.onMappedSourceChanged(source));
@@ -330,15 +461,66 @@ public final class ClassHandleProvider {
 
 		public void closeHandle(ClassHandleImpl classHandle) {
 			classHandle.destroy();
-			withLock(lock.writeLock(), () -> {
+			boolean closed = withLock(lock.writeLock(), () -> {
 				handles.remove(classHandle);
+				updatePriority();
+				return handles.isEmpty();
+			});
+
+			if (closed) {
+				p.closeEntry(this);
+			}
+		}
+
+		private boolean hasHandles() {
+			return withLock(lock.readLock(), () -> !handles.isEmpty());
+		}
+
+		private boolean canRetain() {
+			return source != null && source.isOk();
+		}
+
+		private int getRetainedWeight() {
+			long length = source.ok().map(s -> s.getIndex().getSource().length()).orElse(0);
+			return (int) Math.min(length * RETAINED_BYTES_PER_CHAR, Integer.MAX_VALUE);
+		}
 
-				if (handles.isEmpty()) {
-					p.deleteEntry(this);
+		private void markStale(InvalidationType type) {
+			withLock(lock.writeLock(), () -> {
+				if (staleness == null || type.compareTo(staleness) < 0) {
+					staleness = type;
 				}
 			});
 		}
 
+		/**
+		 * Drops the stages of this class that haven't started yet, and the ones following those that have.
+		 */
+		private void cancel() {
+			decompileVersion.incrementAndGet();
+			javadocVersion.incrementAndGet();
+			indexVersion.incrementAndGet();
+			mappedVersion.incrementAndGet();
+		}
+
+		private void reopen() {
+			InvalidationType type = withLock(lock.writeLock(), () -> {
+				InvalidationType t = staleness;
+				staleness = null;
+				return t;
+			});
+
+			if (type == null) {
+				return;
+			}
+
+			switch (type) {
+			case FULL -> invalidate();
+			case JAVADOC -> invalidateJavadoc();
+			case MAPPINGS -> invalidateMapped();
+			}
+		}
+
 		public void destroy() {
 			withLock(lock.writeLock(), () -> {
 				handles.forEach(ClassHandleImpl::destroy);
@@ -371,6 +553,7 @@ public final class ClassHandleProvider {
 		private final Entry entry;
 
 		private boolean valid = true;
+		private volatile ClassHandle.Priority priority = ClassHandle.Priority.VISIBLE;
 
 		private final Set<ClassHandleListener> listeners = new HashSet<>();
 
@@ -422,6 +605,17 @@ public final class ClassHandleProvider {
 			this.entry.invalidateJavadoc();
 		}
 
+		@Override
+		public void setPriority(Priority priority) {
+			// editors may still change the priority of their handle while they are closed after the provider was destroyed
+			if (!valid) {
+				return;
+			}
+
+			this.priority = priority;
+			this.entry.updatePriority();
+		}
+
 		public void onUncommentedSourceChanged(Result<Source, ClassHandleError> source) {
 			listeners.forEach(l -> l.onUncommentedSourceChanged(this, source));
 		}
@@ -0,0 +1,262 @@
+package cuchaz.enigma.classhandle;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Runs the stages of open classes on a fixed set of worker threads, in order of how urgently the classes are
+ * wanted.
+ *
+ * <p>Tasks of focused classes run before visible ones, which run before background ones. Within a priority, later
+ * stages run first so that nearly finished classes reach the user sooner, and otherwise tasks run in submission
+ * order. A task that has been superseded by the time it would start is dropped and completes with {@code null}.
+ *
+ * <p>At most {@code maxDecompiles} decompile tasks run at once, on {@code maxDecompiles + 1} workers, so there is
+ * always a worker left for the cheaper stages.
+ */
+final class DecompileScheduler {
+	private static final Comparator<Task<?>> ORDER = Comparator.<Task<?>, ClassHandle.Priority>comparing(task -> task.owner.getPriority())
+			.thenComparing(task -> task.stage, Comparator.reverseOrder())
+			.thenComparingLong(task -> task.sequence);
+
+	private final int maxDecompiles;
+	private final List<Thread> workers = new ArrayList<>();
+
+	private final Lock lock = new ReentrantLock();
+	private final Condition changed = lock.newCondition();
+	private final List<Task<?>> pending = new ArrayList<>();
+	private int runningDecompiles;
+	private long nextSequence;
+	private boolean shutdown;
+
+	DecompileScheduler(int maxDecompiles) {
+		if (maxDecompiles <= 0) {
+			throw new IllegalArgumentException("maxDecompiles must be positive");
+		}
+
+		this.maxDecompiles = maxDecompiles;
+
+		for (int i = 0; i <= maxDecompiles; i++) {
+			Thread worker = new Thread(this::work, "Enigma decompile worker " + i);
+			worker.setDaemon(true);
+			workers.add(worker);
+			worker.start();
+		}
+	}
+
+	/**
+	 * Queues a stage of a class.
+	 *
+	 * @param owner   the class the task belongs to, which decides its priority
+	 * @param stage   the stage the task runs
+	 * @param current whether the task is still wanted, checked right before it starts
+	 * @param work    the task itself
+	 * @return a future completed with the result of the task, or with {@code null} if it was superseded
+	 */
+	<T> CompletableFuture<T> submit(Owner owner, Stage stage, BooleanSupplier current, Supplier<T> work) {
+		if (!current.getAsBoolean()) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		Task<T> task = new Task<>(owner, stage, current, work);
+		List<Task<?>> superseded = new ArrayList<>();
+
+		lock.lock();
+
+		try {
+			if (shutdown) {
+				throw new RejectedExecutionException("Scheduler has been shut down");
+			}
+
+			task.sequence = nextSequence++;
+			removeSuperseded(superseded);
+			pending.add(task);
+			changed.signal();
+		} finally {
+			lock.unlock();
+		}
+
+		// completing runs dependent stages, so do it without holding the lock
+		superseded.forEach(Task::cancel);
+		return task.future;
+	}
+
+	/**
+	 * Stops accepting new tasks. The workers exit once all pending tasks have run.
+	 */
+	void shutdown() {
+		lock.lock();
+
+		try {
+			shutdown = true;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+		for (Thread worker : workers) {
+			long remaining = deadline - System.nanoTime();
+
+			if (remaining > 0) {
+				TimeUnit.NANOSECONDS.timedJoin(worker, remaining);
+			}
+
+			if (worker.isAlive()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void work() {
+		while (true) {
+			Task<?> task;
+			List<Task<?>> superseded = new ArrayList<>();
+			boolean exit = false;
+
+			lock.lock();
+
+			try {
+				while (true) {
+					removeSuperseded(superseded);
+					task = poll();
+
+					// cancel superseded tasks outside the lock first, as that may queue new work
+					if (task != null || !superseded.isEmpty()) {
+						break;
+					}
+
+					if (shutdown && pending.isEmpty()) {
+						exit = true;
+						break;
+					}
+
+					changed.await();
+				}
+			} catch (InterruptedException e) {
+				return;
+			} finally {
+				lock.unlock();
+			}
+
+			superseded.forEach(Task::cancel);
+
+			if (exit) {
+				return;
+			}
+
+			if (task != null) {
+				run(task);
+			}
+		}
+	}
+
+	private void run(Task<?> task) {
+		try {
+			task.run();
+		} finally {
+			if (task.stage == Stage.DECOMPILE) {
+				lock.lock();
+
+				try {
+					runningDecompiles--;
+					changed.signalAll();
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+
+	private void removeSuperseded(List<Task<?>> superseded) {
+		for (Iterator<Task<?>> iter = pending.iterator(); iter.hasNext(); ) {
+			Task<?> task = iter.next();
+
+			if (!task.current.getAsBoolean()) {
+				iter.remove();
+				superseded.add(task);
+			}
+		}
+	}
+
+	private Task<?> poll() {
+		Task<?> best = null;
+
+		for (Task<?> task : pending) {
+			if (task.stage == Stage.DECOMPILE && runningDecompiles >= maxDecompiles) {
+				continue;
+			}
+
+			if (best == null || ORDER.compare(task, best) < 0) {
+				best = task;
+			}
+		}
+
+		if (best != null) {
+			pending.remove(best);
+
+			if (best.stage == Stage.DECOMPILE) {
+				runningDecompiles++;
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * The stages of a class, in the order they run in.
+	 */
+	enum Stage {
+		DECOMPILE,
+		JAVADOC,
+		INDEX,
+		REMAP
+	}
+
+	interface Owner {
+		ClassHandle.Priority getPriority();
+	}
+
+	private static final class Task<T> {
+		private final Owner owner;
+		private final Stage stage;
+		private final BooleanSupplier current;
+		private final Supplier<T> work;
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+		private long sequence;
+
+		private Task(Owner owner, Stage stage, BooleanSupplier current, Supplier<T> work) {
+			this.owner = owner;
+			this.stage = stage;
+			this.current = current;
+			this.work = work;
+		}
+
+		private void run() {
+			try {
+				future.complete(work.get());
+			} catch (Throwable t) {
+				future.completeExceptionally(t);
+			}
+		}
+
+		private void cancel() {
+			future.complete(null);
+		}
+	}
+}
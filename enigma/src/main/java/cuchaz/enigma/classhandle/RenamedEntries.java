@@ -0,0 +1,75 @@
+package cuchaz.enigma.classhandle;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import cuchaz.enigma.EnigmaProject;
+import cuchaz.enigma.analysis.index.ReferenceIndex;
+import cuchaz.enigma.translation.mapping.EntryResolver;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+/**
+ * The entries whose names change along with a renamed entry, and the classes whose source may name them.
+ *
+ * @param entries    the renamed entry and its equivalents
+ * @param dependents the top level classes whose source may name one of the entries, or {@code null} if any class
+ *                   may name them
+ */
+record RenamedEntries(Set<Entry<?>> entries, @Nullable Set<ClassEntry> dependents) {
+	static RenamedEntries of(EnigmaProject project, Entry<?> entry) {
+		EntryResolver resolver = project.getMapper().getObfResolver();
+		Set<Entry<?>> entries = new HashSet<>(resolver.resolveEquivalentEntries(entry));
+
+		if (entry instanceof FieldEntry field) {
+			// record component getters are renamed with their field
+			MethodEntry getter = project.getMapper().getRecordComponentGetter(field);
+
+			if (getter != null) {
+				entries.addAll(resolver.resolveEquivalentEntries(getter));
+			}
+		}
+
+		return new RenamedEntries(entries, getDependentClasses(project.getJarIndex().getReferenceIndex(), entries));
+	}
+
+	/**
+	 * Gets the top level classes whose source may name one of the given
+	 * entries: the classes declaring them, and the classes of the methods
+	 * referencing them. Overriding methods are among the entries already.
+	 *
+	 * @return the classes, or {@code null} if any class may name the entries
+	 */
+	@Nullable
+	private static Set<ClassEntry> getDependentClasses(ReferenceIndex referenceIndex, Set<Entry<?>> entries) {
+		Set<ClassEntry> classes = new HashSet<>();
+
+		for (Entry<?> entry : entries) {
+			if (entry instanceof ClassEntry) {
+				// types are named in signatures, locals, catch clauses and annotations, none of which are indexed
+				return null;
+			}
+
+			classes.add(entry.getTopLevelClass());
+
+			if (entry instanceof FieldEntry field) {
+				referenceIndex.getReferencesToField(field).forEach(reference -> classes.add(reference.context.getTopLevelClass()));
+			} else if (entry instanceof MethodEntry method) {
+				referenceIndex.getReferencesToMethod(method).forEach(reference -> classes.add(reference.context.getTopLevelClass()));
+			}
+		}
+
+		return classes;
+	}
+
+	/**
+	 * Checks whether the source of a class may name one of the entries.
+	 */
+	boolean mayBeNamedIn(ClassEntry classEntry) {
+		return dependents == null || dependents.contains(classEntry.getOutermostClass());
+	}
+}
@@ -7,19 +7,69 @@ import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
+import com.google.common.base.Preconditions;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
 
 /**
  * Wraps a ClassProvider to provide caching and synchronization.
+ *
+ * <p>Cached classes are weighed by their estimated heap size, and evicted once they exceed the budget given
+ * on construction. The cache is striped, so concurrent readers of different classes don't contend on a lock.
+ * Each stripe gets an even share of the budget, and a class heavier than that share is evicted as soon as it is
+ * loaded. Small budgets are therefore split into fewer stripes, none smaller than 4 MiB where the budget allows.
  */
 public class CachingClassProvider implements ClassProvider {
+	/**
+	 * The default heap budget, a sixteenth of the maximum heap size, between 32 and 512 MiB.
+	 */
+	public static final long DEFAULT_MAXIMUM_WEIGHT = Math.max(32L << 20, Math.min(512L << 20, Runtime.getRuntime().maxMemory() / 16));
+
+	private static final int MAX_CONCURRENCY_LEVEL = 16;
+	private static final long MIN_STRIPE_WEIGHT = 4L << 20;
+
+	// rough per-object heap costs, in bytes
+	private static final int CLASS_WEIGHT = 512;
+	private static final int MEMBER_WEIGHT = 160;
+	private static final int INSTRUCTION_WEIGHT = 48;
+	private static final int ENTRY_WEIGHT = 64;
+
 	private final ClassProvider classProvider;
-	private final Cache<String, Optional<ClassNode>> cache = CacheBuilder.newBuilder().maximumSize(128).expireAfterAccess(1, TimeUnit.MINUTES).concurrencyLevel(1).build();
+	private final Cache<String, Optional<ClassNode>> cache;
+	private final Cache<String, Optional<byte[]>> bytesCache;
 
 	public CachingClassProvider(ClassProvider classProvider) {
+		this(classProvider, DEFAULT_MAXIMUM_WEIGHT);
+	}
+
+	/**
+	 * @param maximumWeight the heap budget of the cache, in bytes. Three quarters of it are used for class nodes,
+	 *                      the rest for class bytes
+	 */
+	public CachingClassProvider(ClassProvider classProvider, long maximumWeight) {
+		Preconditions.checkArgument(maximumWeight > 0, "maximumWeight must be positive");
 		this.classProvider = classProvider;
+		this.cache = CacheBuilder.newBuilder()
+				.maximumWeight(maximumWeight - maximumWeight / 4)
+				.weigher((String name, Optional<ClassNode> node) -> node.map(CachingClassProvider::estimateWeight).orElse(ENTRY_WEIGHT))
+				.expireAfterAccess(1, TimeUnit.MINUTES)
+				.concurrencyLevel(concurrencyLevel(maximumWeight - maximumWeight / 4))
+				.recordStats()
+				.build();
+		this.bytesCache = CacheBuilder.newBuilder()
+				.maximumWeight(Math.max(1, maximumWeight / 4))
+				.weigher((String name, Optional<byte[]> bytes) -> ENTRY_WEIGHT + bytes.map(b -> b.length).orElse(0))
+				.expireAfterAccess(1, TimeUnit.MINUTES)
+				.concurrencyLevel(concurrencyLevel(maximumWeight / 4))
+				.recordStats()
+				.build();
+	}
+
+	private static int concurrencyLevel(long maximumWeight) {
+		return (int) Math.max(1, Math.min(MAX_CONCURRENCY_LEVEL, maximumWeight / MIN_STRIPE_WEIGHT));
 	}
 
 	@Override
@@ -36,4 +86,33 @@ public class CachingClassProvider implements ClassProvider {
 			throw new RuntimeException(e);
 		}
 	}
+
+	@Override
+	@Nullable
+	public byte[] getClassBytes(String name) {
+		try {
+			return bytesCache.get(name, () -> Optional.ofNullable(classProvider.getClassBytes(name))).orElse(null);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Gets the hit, miss and eviction counts of this cache since it was created, for both class nodes and
+	 * class bytes.
+	 */
+	public CacheStats getStats() {
+		return cache.stats().plus(bytesCache.stats());
+	}
+
+	private static int estimateWeight(ClassNode node) {
+		long weight = CLASS_WEIGHT + (long) node.fields.size() * MEMBER_WEIGHT;
+
+		for (MethodNode method : node.methods) {
+			weight += MEMBER_WEIGHT + (long) method.instructions.size() * INSTRUCTION_WEIGHT;
+		}
+
+		weight += (long) node.innerClasses.size() * ENTRY_WEIGHT;
+		return (int) Math.min(weight, Integer.MAX_VALUE);
+	}
 }
@@ -6,6 +6,8 @@ import javax.annotation.Nullable;
 
 import org.objectweb.asm.tree.ClassNode;
 
+import cuchaz.enigma.utils.AsmUtil;
+
 public interface ClassProvider {
 	/**
 	 * @return Internal names of all contained classes. May be empty if the provider is lazy.
@@ -21,4 +23,20 @@ public interface ClassProvider {
 	 */
 	@Nullable
 	ClassNode get(String name);
+
+	/**
+	 * Gets the class file contents of a class, for consumers that parse classes themselves. The class provider
+	 * may return a cached result, so it's important to not mutate it.
+	 *
+	 * <p>The default implementation writes the {@linkplain ClassNode} returned by {@link #get(String)}. Providers
+	 * that have the bytes at hand should return them directly.
+	 *
+	 * @param name the internal name of the class
+	 * @return the class file contents, or {@code null} if the class was not found
+	 */
+	@Nullable
+	default byte[] getClassBytes(String name) {
+		ClassNode node = get(name);
+		return node != null ? AsmUtil.nodeToBytes(node) : null;
+	}
 }
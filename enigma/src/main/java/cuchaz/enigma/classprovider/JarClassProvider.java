@@ -1,9 +1,8 @@
 package cuchaz.enigma.classprovider;
 
 import java.io.IOException;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.Set;
 
@@ -16,26 +15,27 @@ import cuchaz.enigma.utils.AsmUtil;
 
 /**
  * Provides classes by loading them from a JAR file.
+ *
+ * <p>The JAR is memory mapped once and classes are inflated on demand, so this provider can be used
+ * from multiple threads at once.
  */
 public class JarClassProvider implements AutoCloseable, ClassProvider {
-	private final FileSystem fileSystem;
+	private final MappedZipFile zipFile;
 	private final Set<String> classNames;
 
 	public JarClassProvider(Path jarPath) throws IOException {
-		this.fileSystem = FileSystems.newFileSystem(jarPath, (ClassLoader) null);
-		this.classNames = collectClassNames(fileSystem);
+		this.zipFile = new MappedZipFile(jarPath);
+		this.classNames = collectClassNames(zipFile);
 	}
 
-	private static ImmutableSet<String> collectClassNames(FileSystem fileSystem) throws IOException {
+	private static ImmutableSet<String> collectClassNames(MappedZipFile zipFile) {
 		ImmutableSet.Builder<String> classNames = ImmutableSet.builder();
 
-		for (Path root : fileSystem.getRootDirectories()) {
-			Files.walk(root).map(Path::toString).forEach(path -> {
-				if (path.endsWith(".class")) {
-					String name = path.substring(1, path.length() - ".class".length());
-					classNames.add(name);
-				}
-			});
+		for (String path : zipFile.getEntryNames()) {
+			if (path.endsWith(".class")) {
+				String name = path.substring(0, path.length() - ".class".length());
+				classNames.add(name);
+			}
 		}
 
 		return classNames.build();
@@ -54,14 +54,30 @@ public class JarClassProvider implements AutoCloseable, ClassProvider {
 		}
 
 		try {
-			return AsmUtil.bytesToNode(Files.readAllBytes(fileSystem.getPath(name + ".class")));
+			// the node doesn't keep a reference to the bytes, so the shared buffer can be parsed directly
+			ByteBuffer bytes = zipFile.readShared(name + ".class");
+			return AsmUtil.bytesToNode(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
 		} catch (IOException e) {
-			throw new RuntimeException(e);
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Nullable
+	@Override
+	public byte[] getClassBytes(String name) {
+		if (!classNames.contains(name)) {
+			return null;
+		}
+
+		try {
+			return zipFile.read(name + ".class");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 
 	@Override
 	public void close() throws Exception {
-		fileSystem.close();
+		zipFile.close();
 	}
 }
@@ -0,0 +1,281 @@
+package cuchaz.enigma.classprovider;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import javax.annotation.Nullable;
+
+/**
+ * A read-only zip file that is memory mapped once and indexed by its central directory.
+ *
+ * <p>Entries are inflated straight from the mapping into a per-thread buffer, so reading is lock free and
+ * doesn't allocate anything but the small entry views. All methods are safe to call from multiple threads.
+ *
+ * <p>Java has no supported way to unmap a file, so the mapping outlives {@link #close()} until it is garbage
+ * collected. Until then the file stays open, and on Windows it can't be deleted or replaced.
+ */
+final class MappedZipFile implements AutoCloseable {
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final int ZIP64_EXTRA_ID = 0x0001;
+
+	private static final int END_SIZE = 22;
+	private static final int ZIP64_LOCATOR_SIZE = 20;
+	private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+	private static final int STORED = 0;
+	private static final int DEFLATED = 8;
+
+	private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+	private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[64 * 1024]);
+
+	private final FileChannel channel;
+	private final ByteBuffer data;
+	private final Map<String, Entry> entries;
+
+	MappedZipFile(Path path) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+		try {
+			long size = channel.size();
+
+			if (size > Integer.MAX_VALUE) {
+				throw new ZipException("Zip file too large to map: " + path);
+			}
+
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			this.data = mapped.order(ByteOrder.LITTLE_ENDIAN);
+			this.entries = Collections.unmodifiableMap(readCentralDirectory(data));
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private static Map<String, Entry> readCentralDirectory(ByteBuffer data) throws ZipException {
+		try {
+			return readCentralDirectory(data, findEnd(data));
+		} catch (IndexOutOfBoundsException e) {
+			throw new ZipException("Truncated central directory");
+		}
+	}
+
+	private static Map<String, Entry> readCentralDirectory(ByteBuffer data, int end) throws ZipException {
+		long entryCount = Short.toUnsignedInt(data.getShort(end + 10));
+		long directoryOffset = Integer.toUnsignedLong(data.getInt(end + 16));
+
+		if (end >= ZIP64_LOCATOR_SIZE && data.getInt(end - ZIP64_LOCATOR_SIZE) == ZIP64_LOCATOR_SIGNATURE) {
+			int zip64End = checkedOffset(data.getLong(end - ZIP64_LOCATOR_SIZE + 8));
+
+			if (data.getInt(zip64End) != ZIP64_END_SIGNATURE) {
+				throw new ZipException("Invalid zip64 end of central directory");
+			}
+
+			entryCount = data.getLong(zip64End + 32);
+			directoryOffset = data.getLong(zip64End + 48);
+		}
+
+		Map<String, Entry> entries = new HashMap<>((int) Math.min(entryCount * 4 / 3 + 1, Integer.MAX_VALUE));
+		int position = checkedOffset(directoryOffset);
+
+		for (long i = 0; i < entryCount; i++) {
+			if (data.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+				throw new ZipException("Invalid central directory header at " + position);
+			}
+
+			int method = Short.toUnsignedInt(data.getShort(position + 10));
+			long compressedSize = Integer.toUnsignedLong(data.getInt(position + 20));
+			long size = Integer.toUnsignedLong(data.getInt(position + 24));
+			int nameLength = Short.toUnsignedInt(data.getShort(position + 28));
+			int extraLength = Short.toUnsignedInt(data.getShort(position + 30));
+			int commentLength = Short.toUnsignedInt(data.getShort(position + 32));
+			long localHeaderOffset = Integer.toUnsignedLong(data.getInt(position + 42));
+
+			byte[] nameBytes = new byte[nameLength];
+			data.get(position + 46, nameBytes);
+			String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+			// zip64 values are stored in the extra field, in this order, only for the fields that overflowed
+			int extra = position + 46 + nameLength;
+			int extraEnd = extra + extraLength;
+
+			while (extra + 4 <= extraEnd) {
+				int id = Short.toUnsignedInt(data.getShort(extra));
+				int length = Short.toUnsignedInt(data.getShort(extra + 2));
+
+				if (id == ZIP64_EXTRA_ID) {
+					int value = extra + 4;
+
+					if (size == 0xFFFFFFFFL) {
+						size = data.getLong(value);
+						value += 8;
+					}
+
+					if (compressedSize == 0xFFFFFFFFL) {
+						compressedSize = data.getLong(value);
+						value += 8;
+					}
+
+					if (localHeaderOffset == 0xFFFFFFFFL) {
+						localHeaderOffset = data.getLong(value);
+					}
+				}
+
+				extra += 4 + length;
+			}
+
+			if (!name.endsWith("/")) {
+				entries.putIfAbsent(name, new Entry(method, checkedOffset(localHeaderOffset), checkedOffset(compressedSize), checkedOffset(size)));
+			}
+
+			position = extraEnd + commentLength;
+		}
+
+		return entries;
+	}
+
+	private static int findEnd(ByteBuffer data) throws ZipException {
+		int lowest = Math.max(0, data.limit() - END_SIZE - MAX_COMMENT_SIZE);
+
+		for (int position = data.limit() - END_SIZE; position >= lowest; position--) {
+			if (data.getInt(position) == END_SIGNATURE) {
+				return position;
+			}
+		}
+
+		throw new ZipException("Missing end of central directory, not a zip file");
+	}
+
+	private static int checkedOffset(long value) throws ZipException {
+		if (value < 0 || value > Integer.MAX_VALUE) {
+			throw new ZipException("Invalid zip offset or size " + value);
+		}
+
+		return (int) value;
+	}
+
+	Set<String> getEntryNames() {
+		return entries.keySet();
+	}
+
+	/**
+	 * Reads an entry into a buffer owned by the calling thread. The buffer is only valid until the
+	 * next call of this method on the same thread.
+	 *
+	 * @return the buffer holding the entry, or {@code null} if there is no such entry
+	 */
+	@Nullable
+	ByteBuffer readShared(String name) throws IOException {
+		Entry entry = entries.get(name);
+
+		if (entry == null) {
+			return null;
+		}
+
+		byte[] buffer = BUFFER.get();
+
+		if (buffer.length < entry.size) {
+			buffer = new byte[Math.max(entry.size, buffer.length * 2)];
+			BUFFER.set(buffer);
+		}
+
+		read(name, entry, buffer);
+		return ByteBuffer.wrap(buffer, 0, entry.size);
+	}
+
+	/**
+	 * Reads an entry into a new array.
+	 *
+	 * @return the contents of the entry, or {@code null} if there is no such entry
+	 */
+	@Nullable
+	byte[] read(String name) throws IOException {
+		Entry entry = entries.get(name);
+
+		if (entry == null) {
+			return null;
+		}
+
+		byte[] bytes = new byte[entry.size];
+		read(name, entry, bytes);
+		return bytes;
+	}
+
+	private void read(String name, Entry entry, byte[] target) throws IOException {
+		int header = entry.localHeaderOffset;
+
+		if (header > data.limit() - 30 || data.getInt(header) != LOCAL_HEADER_SIGNATURE) {
+			throw new ZipException("Invalid local header for " + name);
+		}
+
+		int nameLength = Short.toUnsignedInt(data.getShort(header + 26));
+		int extraLength = Short.toUnsignedInt(data.getShort(header + 28));
+		ByteBuffer compressed;
+
+		try {
+			compressed = data.slice(header + 30 + nameLength + extraLength, entry.compressedSize);
+		} catch (IndexOutOfBoundsException e) {
+			throw new ZipException("Truncated entry " + name);
+		}
+
+		switch (entry.method) {
+		case STORED -> {
+			if (entry.compressedSize != entry.size) {
+				throw new ZipException("Invalid stored entry " + name);
+			}
+
+			compressed.get(target, 0, entry.size);
+		}
+		case DEFLATED -> {
+			Inflater inflater = INFLATER.get();
+
+			try {
+				inflater.setInput(compressed);
+				int read = 0;
+
+				while (read < entry.size) {
+					int n = inflater.inflate(target, read, entry.size - read);
+
+					if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+						throw new ZipException("Truncated entry " + name);
+					}
+
+					read += n;
+				}
+			} catch (DataFormatException e) {
+				throw new ZipException("Invalid compressed data for " + name + ": " + e.getMessage());
+			} finally {
+				inflater.reset();
+			}
+		}
+		default -> throw new ZipException("Unsupported compression method " + entry.method + " for " + name);
+		}
+	}
+
+	/**
+	 * Closes the file channel. The mapping stays valid and is only released once it is garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private record Entry(int method, int localHeaderOffset, int compressedSize, int size) {
+	}
+}
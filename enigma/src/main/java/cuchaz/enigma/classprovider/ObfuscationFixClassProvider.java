@@ -15,6 +15,7 @@ import cuchaz.enigma.Enigma;
 import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.bytecode.translators.LocalVariableFixVisitor;
 import cuchaz.enigma.bytecode.translators.SourceFixVisitor;
+import cuchaz.enigma.utils.AsmUtil;
 
 /**
  * Wraps a ClassProvider to apply fixes to the following problems introduced by the obfuscator,
@@ -30,6 +31,7 @@ import cuchaz.enigma.bytecode.translators.SourceFixVisitor;
  * </ul>
  *
  * <p>These fixes are only applied to classes that were indexed by the JarIndex provided, and not library classes.
+ * The class bytes of library classes are passed through untouched, without being parsed.
  */
 public class ObfuscationFixClassProvider implements ClassProvider {
 	private final ClassProvider classProvider;
@@ -64,6 +66,16 @@ public class ObfuscationFixClassProvider implements ClassProvider {
 		return fixedNode;
 	}
 
+	@Override
+	@Nullable
+	public byte[] getClassBytes(String name) {
+		if (!jarIndex.isIndexed(name)) {
+			return classProvider.getClassBytes(name);
+		}
+
+		return AsmUtil.nodeToBytes(get(name));
+	}
+
 	private void removeRedundantClassCalls(ClassNode node) {
 		// Removes .getClass() calls added by Proguard:
 		// DUP
@@ -1,10 +1,12 @@
 package cuchaz.enigma.source;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 
@@ -54,6 +56,87 @@ public class DecompiledClassSource {
 		return new DecompiledClassSource(this.classEntry, this.obfuscatedIndex, remappedIndex, tokenStore);
 	}
 
+	/**
+	 * Remaps only the tokens naming one of the given entries, after they were renamed. The text between the tokens
+	 * is copied from this source, and the tokens after a renamed one are shifted by the change in length.
+	 *
+	 * <p>Besides the entries themselves, this remaps the inner classes of renamed classes, whose names include
+	 * their outer class, and the unmapped local variables named after the type of a renamed class.
+	 *
+	 * @param entries the renamed entries, with all their equivalents
+	 * @return the remapped source, or this source if none of the entries appear in it
+	 */
+	public DecompiledClassSource remapEntries(EnigmaProject project, Translator translator, Set<? extends Entry<?>> entries) {
+		if (remappedIndex == obfuscatedIndex) {
+			return remapSource(project, translator);
+		}
+
+		String source = remappedIndex.getSource();
+		StringBuilder remappedSource = new StringBuilder(source.length());
+		Map<Token, Token> remappedTokens = new HashMap<>();
+		TokenStore tokenStore = TokenStore.create(obfuscatedIndex);
+
+		Iterator<Token> oldTokenItr = remappedIndex.referenceTokens().iterator();
+		int copied = 0;
+		int accumulatedOffset = 0;
+		boolean changed = false;
+
+		for (Token token : obfuscatedIndex.referenceTokens()) {
+			Token oldToken = oldTokenItr.next();
+			Token movedToken = oldToken.move(accumulatedOffset);
+
+			if (isAffected(obfuscatedIndex.getReference(token).getNameableEntry(), entries)) {
+				String remappedName = remapToken(tokenStore, project, token, movedToken, translator);
+				String name = remappedName != null ? remappedName : token.text;
+
+				remappedSource.append(source, copied, oldToken.start).append(name);
+				copied = oldToken.end;
+				accumulatedOffset += name.length() - oldToken.length();
+				movedToken.text = name;
+				movedToken.end = movedToken.start + name.length();
+				changed = true;
+			} else {
+				RenamableTokenType type = highlightedTokens.getType(oldToken);
+
+				if (type != null) {
+					tokenStore.add(type, movedToken);
+				}
+			}
+
+			if (!token.equals(movedToken)) {
+				remappedTokens.put(token, movedToken);
+			}
+		}
+
+		if (!changed) {
+			return this;
+		}
+
+		remappedSource.append(source, copied, source.length());
+		SourceIndex remappedIndex = obfuscatedIndex.remapTo(new SourceRemapper.Result(remappedSource.toString(), remappedTokens));
+		return new DecompiledClassSource(this.classEntry, this.obfuscatedIndex, remappedIndex, tokenStore);
+	}
+
+	private static boolean isAffected(Entry<?> entry, Set<? extends Entry<?>> entries) {
+		if (entries.contains(entry)) {
+			return true;
+		}
+
+		if (entry instanceof ClassEntry classEntry) {
+			// inner classes are named after their outer classes
+			for (ClassEntry outerClass = classEntry.getOuterClass(); outerClass != null; outerClass = outerClass.getOuterClass()) {
+				if (entries.contains(outerClass)) {
+					return true;
+				}
+			}
+		} else if (entry instanceof LocalVariableDefEntry localVariable && localVariable.getDesc().isType()) {
+			// unmapped local variables are named after their type
+			return isAffected(localVariable.getDesc().getTypeEntry(), entries);
+		}
+
+		return false;
+	}
+
 	private String remapToken(TokenStore target, EnigmaProject project, Token token, Token movedToken, Translator translator) {
 		EntryReference<Entry<?>, Entry<?>> reference = obfuscatedIndex.getReference(token);
 
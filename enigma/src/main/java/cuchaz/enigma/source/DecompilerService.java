@@ -1,5 +1,7 @@
 package cuchaz.enigma.source;
 
+import javax.annotation.Nullable;
+
 import cuchaz.enigma.api.service.EnigmaService;
 import cuchaz.enigma.api.service.EnigmaServiceType;
 import cuchaz.enigma.classprovider.ClassProvider;
@@ -8,4 +10,15 @@ public interface DecompilerService extends EnigmaService {
 	EnigmaServiceType<DecompilerService> TYPE = EnigmaServiceType.create("decompiler");
 
 	Decompiler create(ClassProvider classProvider, SourceSettings settings);
+
+	/**
+	 * Gets an id that identifies the output of this decompiler, which is used to cache decompiled sources
+	 * across sessions. Sources of decompilers without an id are never cached.
+	 *
+	 * @return the id of this decompiler, or {@code null} if its sources shouldn't be cached
+	 */
+	@Nullable
+	default String getId() {
+		return null;
+	}
 }
@@ -1,13 +1,28 @@
 package cuchaz.enigma.source;
 
+import cuchaz.enigma.classprovider.ClassProvider;
 import cuchaz.enigma.source.bytecode.BytecodeDecompiler;
 import cuchaz.enigma.source.cfr.CfrDecompiler;
 import cuchaz.enigma.source.procyon.ProcyonDecompiler;
 import cuchaz.enigma.source.vineflower.VineflowerDecompiler;
 
 public class Decompilers {
-	public static final DecompilerService VINEFLOWER = VineflowerDecompiler::new;
-	public static final DecompilerService CFR = CfrDecompiler::new;
-	public static final DecompilerService PROCYON = ProcyonDecompiler::new;
-	public static final DecompilerService BYTECODE = BytecodeDecompiler::new;
+	public static final DecompilerService VINEFLOWER = create("enigma:vineflower", VineflowerDecompiler::new);
+	public static final DecompilerService CFR = create("enigma:cfr", CfrDecompiler::new);
+	public static final DecompilerService PROCYON = create("enigma:procyon", ProcyonDecompiler::new);
+	public static final DecompilerService BYTECODE = create("enigma:bytecode", BytecodeDecompiler::new);
+
+	private static DecompilerService create(String id, DecompilerService factory) {
+		return new DecompilerService() {
+			@Override
+			public Decompiler create(ClassProvider classProvider, SourceSettings settings) {
+				return factory.create(classProvider, settings);
+			}
+
+			@Override
+			public String getId() {
+				return id;
+			}
+		};
+	}
 }
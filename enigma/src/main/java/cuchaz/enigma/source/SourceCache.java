@@ -0,0 +1,677 @@
+package cuchaz.enigma.source;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.Nullable;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+
+import cuchaz.enigma.Enigma;
+import cuchaz.enigma.analysis.EntryReference;
+import cuchaz.enigma.analysis.ReferenceTargetType;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.representation.AccessFlags;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.Signature;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.ClassDefEntry;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldDefEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableDefEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+/**
+ * Stores decompiled sources of a jar on disk, so classes only need to be decompiled once across sessions.
+ *
+ * <p>Sources are keyed by class, decompiler, source settings and Enigma version. The decompilers write
+ * javadocs from the mappings into the source, so the key also covers the javadocs of the class and its
+ * members. Everything else in the mappings is applied later by {@link DecompiledClassSource#remapSource},
+ * which is why renaming things doesn't invalidate cached sources.
+ *
+ * <p>As editing a javadoc leaves the source cached for the old javadocs behind, the cache is kept to
+ * {@link #MAX_SIZE} and {@link #MAX_AGE}, across all jars, dropping the least recently used sources first.
+ */
+public class SourceCache {
+	private static final int MAGIC = 0x454E5352; // "ENSR"
+	private static final int FORMAT_VERSION = 1;
+
+	public static final long MAX_SIZE = 512L * 1024 * 1024;
+	public static final Duration MAX_AGE = Duration.ofDays(30);
+
+	private static final int CLASS = 0;
+	private static final int CLASS_DEF = 1;
+	private static final int FIELD = 2;
+	private static final int FIELD_DEF = 3;
+	private static final int METHOD = 4;
+	private static final int METHOD_DEF = 5;
+	private static final int LOCAL = 6;
+	private static final int LOCAL_DEF = 7;
+
+	private final Path root;
+	private final Path directory;
+	private final AtomicBoolean evicted = new AtomicBoolean();
+
+	/**
+	 * @param directory   the directory holding the caches of all jars
+	 * @param jarChecksum the checksum of the jar the sources belong to
+	 */
+	public SourceCache(Path directory, byte[] jarChecksum) {
+		this.root = directory;
+		this.directory = directory.resolve(BaseEncoding.base16().lowerCase().encode(jarChecksum));
+	}
+
+	/**
+	 * Wraps a decompiler so its sources are read from the cache when possible, and stored in it otherwise.
+	 * The decompiler is only asked for the sources that aren't cached.
+	 *
+	 * @param decompilerId the id of the decompiler, see {@link DecompilerService#getId()}
+	 * @param settings     the settings the decompiler was created with
+	 */
+	public Decompiler wrap(Decompiler decompiler, String decompilerId, SourceSettings settings) {
+		String prefix = decompilerId + "\n" + settings.removeImports + "\n" + settings.removeVariableFinal + "\n" + Enigma.VERSION + "\n";
+		return (className, remapper) -> new CachedSource(() -> decompiler.getSource(className, remapper), prefix + className + "\n", className, remapper);
+	}
+
+	@Nullable
+	SourceIndex load(Path file) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				return null;
+			}
+
+			SourceIndex index = new IndexReader(in).read();
+			// the last modified time tells eviction which sources are still in use
+			Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+			return index;
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Ignoring unreadable cached source " + file + ": " + e);
+			return null;
+		}
+	}
+
+	void store(Path file, SourceIndex index) {
+		// sources are stored by the decompiler workers, so evicting the old ones doesn't hold up the gui
+		if (evicted.compareAndSet(false, true)) {
+			evict(MAX_SIZE, MAX_AGE);
+		}
+
+		try {
+			Files.createDirectories(directory);
+			Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+			try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(tempFile)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				new IndexWriter(out).write(index);
+			}
+
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println("Failed to write cached source " + file + ": " + e);
+		}
+	}
+
+	/**
+	 * Deletes the cached sources of all jars that haven't been used for longer than the given age, then the least
+	 * recently used ones until the cache fits in the given size.
+	 */
+	public void evict(long maxSize, Duration maxAge) {
+		List<CacheFile> files = new ArrayList<>();
+
+		try (Stream<Path> paths = Files.walk(root, 2)) {
+			for (Path path : (Iterable<Path>) paths::iterator) {
+				BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+				if (attributes.isRegularFile()) {
+					files.add(new CacheFile(path, attributes.size(), attributes.lastModifiedTime().toInstant()));
+				}
+			}
+		} catch (NoSuchFileException e) {
+			return;
+		} catch (IOException | UncheckedIOException e) {
+			System.err.println("Failed to list cached sources in " + root + ": " + e);
+			return;
+		}
+
+		files.sort(Comparator.comparing(CacheFile::lastUsed).reversed());
+		Instant oldest = Instant.now().minus(maxAge);
+		long size = 0;
+
+		for (CacheFile file : files) {
+			if (size + file.size() <= maxSize && !file.lastUsed().isBefore(oldest)) {
+				size += file.size();
+				continue;
+			}
+
+			try {
+				Files.deleteIfExists(file.path());
+			} catch (IOException e) {
+				System.err.println("Failed to delete cached source " + file.path() + ": " + e);
+			}
+		}
+	}
+
+	private Path getCacheFile(String key, String className, @Nullable EntryRemapper remapper) {
+		Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putString(key, StandardCharsets.UTF_8);
+
+		if (remapper == null) {
+			hasher.putByte((byte) 0);
+		} else {
+			hasher.putByte((byte) 1);
+			hashJavadocs(hasher, remapper, new ClassEntry(className));
+		}
+
+		return directory.resolve(hasher.hash() + ".src");
+	}
+
+	/**
+	 * Hashes everything the decompilers may write into javadocs of a class, inner classes included.
+	 */
+	private static void hashJavadocs(Hasher hasher, EntryRemapper remapper, ClassEntry classEntry) {
+		EntryTreeNode<EntryMapping> node = remapper.getObfToDeobf().findNode(classEntry);
+
+		if (node == null) {
+			return;
+		}
+
+		List<String> javadocs = new ArrayList<>();
+
+		for (EntryTreeNode<EntryMapping> child : node.getNodesRecursively()) {
+			EntryMapping mapping = child.getValue();
+
+			if (mapping != null && mapping.javadoc() != null) {
+				// parameter and record component docs are written with the name of what they document
+				javadocs.add(child.getEntry() + "\n" + mapping.targetName() + "\n" + mapping.javadoc());
+			}
+		}
+
+		// the order of the tree depends on its history, the order of the javadocs doesn't
+		javadocs.sort(null);
+		javadocs.forEach(javadoc -> hasher.putString(javadoc, StandardCharsets.UTF_8).putByte((byte) 0));
+	}
+
+	private record CacheFile(Path path, long size, Instant lastUsed) {
+	}
+
+	private final class CachedSource implements Source {
+		private final Supplier<Source> delegateFactory;
+		private final String key;
+		private final String className;
+		private final @Nullable EntryRemapper remapper;
+		private Source delegate;
+		private SourceIndex index;
+
+		private CachedSource(Supplier<Source> delegateFactory, String key, String className, @Nullable EntryRemapper remapper) {
+			this.delegateFactory = delegateFactory;
+			this.key = key;
+			this.className = className;
+			this.remapper = remapper;
+		}
+
+		@Override
+		public String asString() {
+			return index().getSource();
+		}
+
+		@Override
+		public Source withJavadocs(EntryRemapper remapper) {
+			return new CachedSource(() -> delegate().withJavadocs(remapper), key, className, remapper);
+		}
+
+		private Source delegate() {
+			// some decompilers decompile as soon as they are asked for a source, so that only happens on a miss
+			if (delegate == null) {
+				delegate = delegateFactory.get();
+			}
+
+			return delegate;
+		}
+
+		@Override
+		public SourceIndex index() {
+			if (index == null) {
+				Path file = getCacheFile(key, className, remapper);
+				index = load(file);
+
+				if (index == null) {
+					index = delegate().index();
+					store(file, index);
+				}
+			}
+
+			return index;
+		}
+	}
+
+	/**
+	 * Writes the source and its tokens. Tokens, references and entries are shared between the maps of
+	 * the index, so they are pooled to keep the file small and to keep them shared when reading it back.
+	 */
+	private static final class IndexWriter {
+		private final DataOutput out;
+		private final Map<Token, Integer> tokens = new IdentityHashMap<>();
+		private final Map<EntryReference<?, ?>, Integer> references = new IdentityHashMap<>();
+		private final Map<Entry<?>, Integer> entries = new HashMap<>();
+		private final List<Entry<?>> pooledEntries = new ArrayList<>();
+		private final Map<String, Integer> strings = new HashMap<>();
+
+		IndexWriter(DataOutput out) {
+			this.out = out;
+		}
+
+		void write(SourceIndex index) throws IOException {
+			byte[] source = index.getSource().getBytes(StandardCharsets.UTF_8);
+			writeVarInt(source.length);
+			out.write(source);
+
+			writeVarInt(index.getDeclarationToToken().size());
+
+			for (Map.Entry<Entry<?>, Token> declaration : index.getDeclarationToToken().entrySet()) {
+				writeEntry(declaration.getKey());
+				writeToken(declaration.getValue());
+			}
+
+			writeVarInt(index.getTokenToReference().size());
+
+			for (Map.Entry<Token, EntryReference<Entry<?>, Entry<?>>> reference : index.getTokenToReference().entrySet()) {
+				writeToken(reference.getKey());
+				writeReference(reference.getValue());
+			}
+
+			Map<EntryReference<Entry<?>, Entry<?>>, Collection<Token>> referenceToTokens = index.getReferenceToTokens().asMap();
+			writeVarInt(referenceToTokens.size());
+
+			for (Map.Entry<EntryReference<Entry<?>, Entry<?>>, Collection<Token>> reference : referenceToTokens.entrySet()) {
+				writeReference(reference.getKey());
+				writeVarInt(reference.getValue().size());
+
+				for (Token token : reference.getValue()) {
+					writeToken(token);
+				}
+			}
+		}
+
+		private void writeToken(Token token) throws IOException {
+			Integer id = tokens.get(token);
+
+			if (id != null) {
+				writeVarInt(id + 1);
+				return;
+			}
+
+			tokens.put(token, tokens.size());
+			writeVarInt(0);
+			writeVarInt(token.start);
+			writeVarInt(token.end);
+			writeString(token.text);
+		}
+
+		private void writeReference(EntryReference<?, ?> reference) throws IOException {
+			Integer id = references.get(reference);
+
+			if (id != null) {
+				writeVarInt(id + 1);
+				return;
+			}
+
+			references.put(reference, references.size());
+			writeVarInt(0);
+			writeEntry(reference.entry);
+			writeNullableEntry(reference.context);
+			out.writeBoolean(reference.isDeclaration());
+			out.writeBoolean(reference.isNamed());
+			out.writeByte(reference.targetType.getKind().ordinal());
+
+			if (reference.targetType instanceof ReferenceTargetType.ClassType classType) {
+				writeEntry(classType.getEntry());
+			}
+		}
+
+		private void writeNullableEntry(@Nullable Entry<?> entry) throws IOException {
+			out.writeBoolean(entry != null);
+
+			if (entry != null) {
+				writeEntry(entry);
+			}
+		}
+
+		private void writeEntry(Entry<?> entry) throws IOException {
+			Integer id = entries.get(entry);
+
+			// definitions are equal to the plain entries they define, but carry more information
+			if (id != null && pooledEntries.get(id).getClass() == entry.getClass()) {
+				writeVarInt(id + 1);
+				return;
+			}
+
+			writeVarInt(0);
+			writeNewEntry(entry);
+			entries.putIfAbsent(entry, pooledEntries.size());
+			pooledEntries.add(entry);
+		}
+
+		private void writeNewEntry(Entry<?> entry) throws IOException {
+			if (entry instanceof ClassDefEntry classEntry) {
+				out.writeByte(CLASS_DEF);
+				writeNullableEntry(classEntry.getParent());
+				writeString(classEntry.getName());
+				writeString(classEntry.getJavadocs());
+				writeSignature(classEntry.getSignature());
+				writeVarInt(classEntry.getAccess().getFlags());
+				writeNullableEntry(classEntry.getSuperClass());
+				writeVarInt(classEntry.getInterfaces().length);
+
+				for (ClassEntry interfaceEntry : classEntry.getInterfaces()) {
+					writeEntry(interfaceEntry);
+				}
+			} else if (entry instanceof ClassEntry classEntry) {
+				out.writeByte(CLASS);
+				writeNullableEntry(classEntry.getParent());
+				writeString(classEntry.getName());
+				writeString(classEntry.getJavadocs());
+			} else if (entry instanceof FieldDefEntry fieldEntry) {
+				out.writeByte(FIELD_DEF);
+				writeEntry(fieldEntry.getParent());
+				writeString(fieldEntry.getName());
+				writeString(fieldEntry.getJavadocs());
+				writeString(fieldEntry.getDesc().toString());
+				writeSignature(fieldEntry.getSignature());
+				writeVarInt(fieldEntry.getAccess().getFlags());
+			} else if (entry instanceof FieldEntry fieldEntry) {
+				out.writeByte(FIELD);
+				writeEntry(fieldEntry.getParent());
+				writeString(fieldEntry.getName());
+				writeString(fieldEntry.getJavadocs());
+				writeString(fieldEntry.getDesc().toString());
+			} else if (entry instanceof MethodDefEntry methodEntry) {
+				out.writeByte(METHOD_DEF);
+				writeEntry(methodEntry.getParent());
+				writeString(methodEntry.getName());
+				writeString(methodEntry.getJavadocs());
+				writeString(methodEntry.getDesc().toString());
+				writeSignature(methodEntry.getSignature());
+				writeVarInt(methodEntry.getAccess().getFlags());
+			} else if (entry instanceof MethodEntry methodEntry) {
+				out.writeByte(METHOD);
+				writeEntry(methodEntry.getParent());
+				writeString(methodEntry.getName());
+				writeString(methodEntry.getJavadocs());
+				writeString(methodEntry.getDesc().toString());
+			} else if (entry instanceof LocalVariableEntry localEntry) {
+				out.writeByte(localEntry instanceof LocalVariableDefEntry ? LOCAL_DEF : LOCAL);
+				writeEntry(localEntry.getParent());
+				writeString(localEntry.getName());
+				writeString(localEntry.getJavadocs());
+				writeVarInt(localEntry.getIndex());
+				out.writeBoolean(localEntry.isArgument());
+
+				if (localEntry instanceof LocalVariableDefEntry localDefEntry) {
+					writeString(localDefEntry.getDesc().toString());
+				}
+			} else {
+				throw new IOException("Don't know how to serialize entry of type " + entry.getClass().getSimpleName());
+			}
+		}
+
+		private void writeSignature(Signature signature) throws IOException {
+			writeString(signature.getSignature());
+			out.writeBoolean(signature.isType());
+		}
+
+		private void writeString(@Nullable String string) throws IOException {
+			if (string == null) {
+				writeVarInt(0);
+				return;
+			}
+
+			Integer id = strings.get(string);
+
+			if (id != null) {
+				writeVarInt(id + 2);
+				return;
+			}
+
+			strings.put(string, strings.size());
+			writeVarInt(1);
+			out.writeUTF(string);
+		}
+
+		private void writeVarInt(int value) throws IOException {
+			while ((value & ~0x7F) != 0) {
+				out.writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+
+			out.writeByte(value);
+		}
+	}
+
+	private static final class IndexReader {
+		private final DataInput in;
+		private final List<Token> tokens = new ArrayList<>();
+		private final List<EntryReference<Entry<?>, Entry<?>>> references = new ArrayList<>();
+		private final List<Entry<?>> entries = new ArrayList<>();
+		private final List<String> strings = new ArrayList<>();
+
+		IndexReader(DataInput in) {
+			this.in = in;
+		}
+
+		SourceIndex read() throws IOException {
+			byte[] source = new byte[readVarInt()];
+			in.readFully(source);
+			SourceIndex index = new SourceIndex(new String(source, StandardCharsets.UTF_8));
+
+			for (int i = readVarInt(); i > 0; i--) {
+				Entry<?> entry = readEntry();
+				index.getDeclarationToToken().put(entry, readToken());
+			}
+
+			for (int i = readVarInt(); i > 0; i--) {
+				Token token = readToken();
+				index.getTokenToReference().put(token, readReference());
+			}
+
+			for (int i = readVarInt(); i > 0; i--) {
+				EntryReference<Entry<?>, Entry<?>> reference = readReference();
+
+				for (int j = readVarInt(); j > 0; j--) {
+					index.getReferenceToTokens().put(reference, readToken());
+				}
+			}
+
+			return index;
+		}
+
+		private Token readToken() throws IOException {
+			int id = readVarInt();
+
+			if (id != 0) {
+				return tokens.get(id - 1);
+			}
+
+			Token token = new Token(readVarInt(), readVarInt(), readString());
+			tokens.add(token);
+			return token;
+		}
+
+		private EntryReference<Entry<?>, Entry<?>> readReference() throws IOException {
+			int id = readVarInt();
+
+			if (id != 0) {
+				return references.get(id - 1);
+			}
+
+			Entry<?> entry = readEntry();
+			Entry<?> context = readNullableEntry();
+			boolean declaration = in.readBoolean();
+			// only whether the reference had a source name is kept, any name gives the same result
+			String sourceName = in.readBoolean() ? entry.getName() : null;
+			ReferenceTargetType targetType = switch (ReferenceTargetType.Kind.values()[in.readUnsignedByte()]) {
+			case NONE -> ReferenceTargetType.none();
+			case UNINITIALIZED -> ReferenceTargetType.uninitialized();
+			case CLASS_TYPE -> ReferenceTargetType.classType((ClassEntry) readEntry());
+			};
+
+			EntryReference<Entry<?>, Entry<?>> reference = declaration ? EntryReference.declaration(entry, sourceName) : new EntryReference<>(entry, sourceName, context, targetType);
+			references.add(reference);
+			return reference;
+		}
+
+		@Nullable
+		private Entry<?> readNullableEntry() throws IOException {
+			return in.readBoolean() ? readEntry() : null;
+		}
+
+		private Entry<?> readEntry() throws IOException {
+			int id = readVarInt();
+
+			if (id != 0) {
+				return entries.get(id - 1);
+			}
+
+			Entry<?> entry = readNewEntry();
+			entries.add(entry);
+			return entry;
+		}
+
+		private Entry<?> readNewEntry() throws IOException {
+			int type = in.readUnsignedByte();
+
+			switch (type) {
+			case CLASS_DEF -> {
+				ClassEntry parent = (ClassEntry) readNullableEntry();
+				String name = readString();
+				String javadocs = readString();
+				Signature signature = readSignature();
+				AccessFlags access = new AccessFlags(readVarInt());
+				ClassEntry superClass = (ClassEntry) readNullableEntry();
+				ClassEntry[] interfaces = new ClassEntry[readVarInt()];
+
+				for (int i = 0; i < interfaces.length; i++) {
+					interfaces[i] = (ClassEntry) readEntry();
+				}
+
+				return new ClassDefEntry(parent, name, signature, access, superClass, interfaces, javadocs);
+			}
+			case CLASS -> {
+				return new ClassEntry((ClassEntry) readNullableEntry(), readString(), readString());
+			}
+			case FIELD_DEF -> {
+				ClassEntry parent = (ClassEntry) readEntry();
+				String name = readString();
+				String javadocs = readString();
+				TypeDescriptor desc = new TypeDescriptor(readString());
+				Signature signature = readSignature();
+				return new FieldDefEntry(parent, name, desc, signature, new AccessFlags(readVarInt()), javadocs);
+			}
+			case FIELD -> {
+				ClassEntry parent = (ClassEntry) readEntry();
+				String name = readString();
+				String javadocs = readString();
+				return new FieldEntry(parent, name, new TypeDescriptor(readString()), javadocs);
+			}
+			case METHOD_DEF -> {
+				ClassEntry parent = (ClassEntry) readEntry();
+				String name = readString();
+				String javadocs = readString();
+				MethodDescriptor desc = new MethodDescriptor(readString());
+				Signature signature = readSignature();
+				return new MethodDefEntry(parent, name, desc, signature, new AccessFlags(readVarInt()), javadocs);
+			}
+			case METHOD -> {
+				ClassEntry parent = (ClassEntry) readEntry();
+				String name = readString();
+				String javadocs = readString();
+				return new MethodEntry(parent, name, new MethodDescriptor(readString()), javadocs);
+			}
+			case LOCAL, LOCAL_DEF -> {
+				MethodEntry parent = (MethodEntry) readEntry();
+				String name = readString();
+				String javadocs = readString();
+				int index = readVarInt();
+				boolean parameter = in.readBoolean();
+
+				if (type == LOCAL_DEF) {
+					return new LocalVariableDefEntry(parent, index, name, parameter, new TypeDescriptor(readString()), javadocs);
+				}
+
+				return new LocalVariableEntry(parent, index, name, parameter, javadocs);
+			}
+			default -> throw new IOException("Unknown entry type " + type);
+			}
+		}
+
+		private Signature readSignature() throws IOException {
+			String signature = readString();
+			return in.readBoolean() ? Signature.createTypedSignature(signature) : Signature.createSignature(signature);
+		}
+
+		@Nullable
+		private String readString() throws IOException {
+			int id = readVarInt();
+
+			if (id == 0) {
+				return null;
+			} else if (id == 1) {
+				String string = in.readUTF();
+				strings.add(string);
+				return string;
+			}
+
+			return strings.get(id - 2);
+		}
+
+		private int readVarInt() throws IOException {
+			int value = 0;
+			int shift = 0;
+			int b;
+
+			do {
+				b = in.readUnsignedByte();
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+
+			return value;
+		}
+	}
+}
@@ -145,6 +145,18 @@ public class SourceIndex {
 		}
 	}
 
+	Map<Token, EntryReference<Entry<?>, Entry<?>>> getTokenToReference() {
+		return tokenToReference;
+	}
+
+	Multimap<EntryReference<Entry<?>, Entry<?>>, Token> getReferenceToTokens() {
+		return referenceToTokens;
+	}
+
+	Map<Entry<?>, Token> getDeclarationToToken() {
+		return declarationToToken;
+	}
+
 	public SourceIndex remapTo(SourceRemapper.Result result) {
 		SourceIndex remapped = new SourceIndex(result.getSource());
 
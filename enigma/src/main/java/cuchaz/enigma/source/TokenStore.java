@@ -8,6 +8,8 @@ import java.util.Map;
 import java.util.NavigableSet;
 import java.util.TreeSet;
 
+import javax.annotation.Nullable;
+
 public final class TokenStore {
 	private static final TokenStore EMPTY = new TokenStore(Collections.emptyNavigableSet(), Collections.emptyMap(), null);
 
@@ -74,6 +76,17 @@ public final class TokenStore {
 		return newPos;
 	}
 
+	@Nullable
+	RenamableTokenType getType(Token token) {
+		for (Map.Entry<RenamableTokenType, NavigableSet<Token>> entry : byType.entrySet()) {
+			if (entry.getValue().contains(token)) {
+				return entry.getKey();
+			}
+		}
+
+		return null;
+	}
+
 	public Map<RenamableTokenType, NavigableSet<Token>> getByType() {
 		return byType;
 	}
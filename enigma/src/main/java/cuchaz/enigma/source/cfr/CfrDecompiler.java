@@ -10,14 +10,12 @@ import org.benf.cfr.reader.util.AnalysisType;
 import org.benf.cfr.reader.util.getopt.Options;
 import org.benf.cfr.reader.util.getopt.OptionsImpl;
 import org.checkerframework.checker.nullness.qual.Nullable;
-import org.objectweb.asm.tree.ClassNode;
 
 import cuchaz.enigma.classprovider.ClassProvider;
 import cuchaz.enigma.source.Decompiler;
 import cuchaz.enigma.source.Source;
 import cuchaz.enigma.source.SourceSettings;
 import cuchaz.enigma.translation.mapping.EntryRemapper;
-import cuchaz.enigma.utils.AsmUtil;
 
 public class CfrDecompiler implements Decompiler {
 	// cfr doesn't add final on params so final setting is ignored
@@ -58,13 +56,13 @@ public class CfrDecompiler implements Decompiler {
 
 		@Override
 		public Pair<byte[], String> getClassFileContent(String path) {
-			ClassNode node = classProvider.get(path.substring(0, path.lastIndexOf('.')));
+			byte[] bytes = classProvider.getClassBytes(path.substring(0, path.lastIndexOf('.')));
 
-			if (node == null) {
+			if (bytes == null) {
 				return null;
 			}
 
-			return new Pair<>(AsmUtil.nodeToBytes(node), path);
+			return new Pair<>(bytes, path);
 		}
 	}
 }
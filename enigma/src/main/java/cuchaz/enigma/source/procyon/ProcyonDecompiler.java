@@ -12,7 +12,6 @@ import com.strobel.decompiler.languages.java.ast.AstBuilder;
 import com.strobel.decompiler.languages.java.ast.CompilationUnit;
 import com.strobel.decompiler.languages.java.ast.InsertParenthesesVisitor;
 import org.checkerframework.checker.nullness.qual.Nullable;
-import org.objectweb.asm.tree.ClassNode;
 
 import cuchaz.enigma.classprovider.ClassProvider;
 import cuchaz.enigma.source.Decompiler;
@@ -27,7 +26,6 @@ import cuchaz.enigma.source.procyon.transformers.ObfuscatedEnumSwitchRewriterTra
 import cuchaz.enigma.source.procyon.transformers.RemoveObjectCasts;
 import cuchaz.enigma.source.procyon.transformers.VarargsFixer;
 import cuchaz.enigma.translation.mapping.EntryRemapper;
-import cuchaz.enigma.utils.AsmUtil;
 
 public class ProcyonDecompiler implements Decompiler {
 	private final SourceSettings settings;
@@ -36,13 +34,12 @@ public class ProcyonDecompiler implements Decompiler {
 
 	public ProcyonDecompiler(ClassProvider classProvider, SourceSettings settings) {
 		ITypeLoader typeLoader = (name, buffer) -> {
-			ClassNode node = classProvider.get(name);
+			byte[] data = classProvider.getClassBytes(name);
 
-			if (node == null) {
+			if (data == null) {
 				return false;
 			}
 
-			byte[] data = AsmUtil.nodeToBytes(node);
 			buffer.reset(data.length);
 			System.arraycopy(data, 0, buffer.array(), buffer.position(), data.length);
 			buffer.position(0);
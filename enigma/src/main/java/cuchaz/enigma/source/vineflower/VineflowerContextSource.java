@@ -8,10 +8,8 @@ import java.util.List;
 
 import org.jetbrains.java.decompiler.main.extern.IContextSource;
 import org.jetbrains.java.decompiler.main.extern.IResultSaver;
-import org.objectweb.asm.tree.ClassNode;
 
 import cuchaz.enigma.classprovider.ClassProvider;
-import cuchaz.enigma.utils.AsmUtil;
 
 class VineflowerContextSource implements IContextSource {
 	private final IContextSource classpathSource = new ClasspathSource();
@@ -70,13 +68,13 @@ class VineflowerContextSource implements IContextSource {
 
 	@Override
 	public InputStream getInputStream(String resource) {
-		ClassNode node = classProvider.get(resource.substring(0, resource.lastIndexOf(".class")));
+		byte[] bytes = classProvider.getClassBytes(resource.substring(0, resource.lastIndexOf(".class")));
 
-		if (node == null) {
+		if (bytes == null) {
 			return null;
 		}
 
-		return new ByteArrayInputStream(AsmUtil.nodeToBytes(node));
+		return new ByteArrayInputStream(bytes);
 	}
 
 	@Override
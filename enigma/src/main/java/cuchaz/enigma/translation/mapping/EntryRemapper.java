@@ -6,15 +6,18 @@ import java.util.Objects;
 import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.translation.MappingTranslator;
 import cuchaz.enigma.translation.Translatable;
 import cuchaz.enigma.translation.TranslateResult;
 import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.mapping.tree.ConcurrentEntryTree;
 import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
-import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.mapping.tree.FlatEntryTree;
+import cuchaz.enigma.translation.mapping.tree.LazyEntryTree;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
@@ -31,7 +34,9 @@ public class EntryRemapper {
 
 	private final MappingValidator validator;
 
-	private EntryRemapper(JarIndex jarIndex, EntryTree<EntryMapping> obfToDeobf) {
+	private EntryRemapper(JarIndex jarIndex, EntryTree<EntryMapping> mappings) {
+		// the mappings are read by decompiler workers while the gui or the server change them
+		EntryTree<EntryMapping> obfToDeobf = isThreadSafe(mappings) ? mappings : new ConcurrentEntryTree<>(mappings);
 		this.obfToDeobf = new DeltaTrackingTree<>(obfToDeobf);
 
 		this.obfResolver = jarIndex.getEntryResolver();
@@ -47,7 +52,11 @@ public class EntryRemapper {
 	}
 
 	public static EntryRemapper empty(JarIndex index) {
-		return new EntryRemapper(index, new HashEntryTree<>());
+		return new EntryRemapper(index, new ConcurrentEntryTree<>());
+	}
+
+	private static boolean isThreadSafe(EntryTree<EntryMapping> mappings) {
+		return mappings instanceof ConcurrentEntryTree || mappings instanceof LazyEntryTree || mappings instanceof FlatEntryTree;
 	}
 
 	public void validatePutMapping(ValidationContext vc, Entry<?> obfuscatedEntry, @Nonnull EntryMapping deobfMapping) {
@@ -91,30 +100,49 @@ public class EntryRemapper {
 
 	// A little bit of a hack to also map the getter method for record fields.
 	private void mapRecordComponentGetter(ValidationContext vc, ClassEntry classEntry, FieldEntry fieldEntry, EntryMapping fieldMapping) {
-		if (!jarIndex.getEntryIndex().getDefinition(classEntry).isRecord() || jarIndex.getEntryIndex().getFieldAccess(fieldEntry).isStatic()) {
+		if (!isRecordComponent(classEntry, fieldEntry)) {
 			return;
 		}
 
+		MethodEntry methodEntry = findRecordComponentGetter(classEntry, fieldEntry);
+
+		if (methodEntry == null && fieldMapping != null) {
+			vc.raise(Message.UNKNOWN_RECORD_GETTER, fieldMapping.targetName());
+			return;
+		}
+
+		// Also remap the associated method, without the javadoc.
+		doPutMapping(vc, methodEntry, new EntryMapping(fieldMapping.targetName()), false);
+	}
+
+	/**
+	 * Gets the getter method that is renamed along with a record component field.
+	 *
+	 * @return the getter, or {@code null} if the field is not a record component or has no getter
+	 */
+	@Nullable
+	public MethodEntry getRecordComponentGetter(FieldEntry fieldEntry) {
+		ClassEntry classEntry = fieldEntry.getParent();
+		return isRecordComponent(classEntry, fieldEntry) ? findRecordComponentGetter(classEntry, fieldEntry) : null;
+	}
+
+	private boolean isRecordComponent(ClassEntry classEntry, FieldEntry fieldEntry) {
+		return jarIndex.getEntryIndex().getDefinition(classEntry).isRecord() && !jarIndex.getEntryIndex().getFieldAccess(fieldEntry).isStatic();
+	}
+
+	@Nullable
+	private MethodEntry findRecordComponentGetter(ClassEntry classEntry, FieldEntry fieldEntry) {
 		// Find all the methods in this record class
 		List<MethodEntry> classMethods = jarIndex.getEntryIndex().getMethods().stream().filter(entry -> classEntry.equals(entry.getParent())).toList();
 
-		MethodEntry methodEntry = null;
-
 		for (MethodEntry method : classMethods) {
 			// Find the matching record component getter via matching the names. TODO: Support when the record field and method names do not match
 			if (method.getName().equals(fieldEntry.getName()) && method.getDesc().toString().equals("()" + fieldEntry.getDesc())) {
-				methodEntry = method;
-				break;
+				return method;
 			}
 		}
 
-		if (methodEntry == null && fieldMapping != null) {
-			vc.raise(Message.UNKNOWN_RECORD_GETTER, fieldMapping.targetName());
-			return;
-		}
-
-		// Also remap the associated method, without the javadoc.
-		doPutMapping(vc, methodEntry, new EntryMapping(fieldMapping.targetName()), false);
+		return null;
 	}
 
 	@Nonnull
@@ -151,6 +179,10 @@ public class EntryRemapper {
 		return obfToDeobf.takeDelta();
 	}
 
+	public DeltaTrackingTree.Snapshot<EntryMapping> takeMappingSnapshot() {
+		return obfToDeobf.takeSnapshot();
+	}
+
 	public boolean isDirty() {
 		return obfToDeobf.isDirty();
 	}
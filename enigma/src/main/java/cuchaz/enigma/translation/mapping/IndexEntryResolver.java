@@ -1,5 +1,6 @@
 package cuchaz.enigma.translation.mapping;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -8,32 +9,71 @@ import java.util.Set;
 
 import javax.annotation.Nullable;
 
-import cuchaz.enigma.analysis.IndexTreeBuilder;
-import cuchaz.enigma.analysis.MethodImplementationsTreeNode;
-import cuchaz.enigma.analysis.MethodInheritanceTreeNode;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
 import cuchaz.enigma.analysis.index.BridgeMethodIndex;
 import cuchaz.enigma.analysis.index.EntryIndex;
 import cuchaz.enigma.analysis.index.InheritanceIndex;
 import cuchaz.enigma.analysis.index.JarIndex;
-import cuchaz.enigma.translation.VoidTranslator;
+import cuchaz.enigma.analysis.index.MethodEquivalenceIndex;
 import cuchaz.enigma.translation.representation.AccessFlags;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
 
+/**
+ * Resolves entries by walking the indices of a jar.
+ *
+ * <p>As the walks only depend on the index, the resolution of class members is memoized by strategy, in a bounded
+ * cache that is safe to use from multiple threads. The index must call {@link #invalidateCaches()} whenever it
+ * changes. Equivalent methods are looked up in the groups of the {@link MethodEquivalenceIndex}.
+ */
 public class IndexEntryResolver implements EntryResolver {
+	/**
+	 * The default number of results the cache keeps.
+	 */
+	public static final long DEFAULT_CACHE_SIZE = 1 << 16;
+
 	private final EntryIndex entryIndex;
 	private final InheritanceIndex inheritanceIndex;
 	private final BridgeMethodIndex bridgeMethodIndex;
 
-	private final IndexTreeBuilder treeBuilder;
+	private final MethodEquivalenceIndex equivalenceIndex;
+
+	private final Cache<ResolutionKey, List<Entry<ClassEntry>>> resolutionCache;
 
 	public IndexEntryResolver(JarIndex index) {
+		this(index, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * @param cacheSize the number of results the cache keeps, or 0 to not cache anything
+	 */
+	public IndexEntryResolver(JarIndex index, long cacheSize) {
+		Preconditions.checkArgument(cacheSize >= 0, "cacheSize must not be negative");
 		this.entryIndex = index.getEntryIndex();
 		this.inheritanceIndex = index.getInheritanceIndex();
 		this.bridgeMethodIndex = index.getBridgeMethodIndex();
+		this.equivalenceIndex = index.getMethodEquivalenceIndex();
 
-		this.treeBuilder = new IndexTreeBuilder(index);
+		this.resolutionCache = CacheBuilder.newBuilder().maximumSize(cacheSize).recordStats().build();
+	}
+
+	/**
+	 * Gets the hit, miss and eviction counts of the cache of resolved class members since it was created.
+	 */
+	public CacheStats getResolutionStats() {
+		return resolutionCache.stats();
+	}
+
+	/**
+	 * Drops every cached result, as the index they were computed from has changed.
+	 */
+	public void invalidateCaches() {
+		resolutionCache.invalidateAll();
 	}
 
 	@Override
@@ -54,7 +94,7 @@ public class IndexEntryResolver implements EntryResolver {
 			}
 
 			if (access == null || !access.isPrivate()) {
-				Collection<Entry<ClassEntry>> resolvedChildren = resolveChildEntry(classChild, strategy);
+				Collection<Entry<ClassEntry>> resolvedChildren = resolveClassChild(classChild, strategy);
 
 				if (!resolvedChildren.isEmpty()) {
 					return resolvedChildren.stream().map(resolvedChild -> (E) entry.replaceAncestor(classChild, resolvedChild)).toList();
@@ -87,6 +127,28 @@ public class IndexEntryResolver implements EntryResolver {
 		return null;
 	}
 
+	private List<Entry<ClassEntry>> resolveClassChild(Entry<ClassEntry> entry, ResolutionStrategy strategy) {
+		// two threads missing the same key both resolve it, which is cheaper than having one wait for the other
+		ResolutionKey key = new ResolutionKey(entry, strategy);
+		List<Entry<ClassEntry>> resolvedEntries = resolutionCache.getIfPresent(key);
+
+		if (resolvedEntries == null) {
+			resolvedEntries = List.copyOf(resolveChildEntry(entry, strategy));
+			resolutionCache.put(key, resolvedEntries);
+		}
+
+		// equal entries share results, but may differ in type or javadocs, so the results that were derived from the
+		// cached entry are derived from the given one again, like they would have been without the cache
+		List<Entry<ClassEntry>> rebuiltEntries = new ArrayList<>(resolvedEntries.size());
+
+		for (Entry<ClassEntry> resolvedEntry : resolvedEntries) {
+			Entry<ClassEntry> rebuiltEntry = entry.withParent(resolvedEntry.getParent());
+			rebuiltEntries.add(rebuiltEntry.equals(resolvedEntry) ? rebuiltEntry : resolvedEntry);
+		}
+
+		return rebuiltEntries;
+	}
+
 	private Set<Entry<ClassEntry>> resolveChildEntry(Entry<ClassEntry> entry, ResolutionStrategy strategy) {
 		ClassEntry ownerClass = entry.getParent();
 
@@ -166,83 +228,20 @@ public class IndexEntryResolver implements EntryResolver {
 
 	@Override
 	public Set<MethodEntry> resolveEquivalentMethods(MethodEntry methodEntry) {
-		Set<MethodEntry> set = new HashSet<>();
-		resolveEquivalentMethods(set, methodEntry);
-		return set;
-	}
-
-	private void resolveEquivalentMethods(Set<MethodEntry> methodEntries, MethodEntry methodEntry) {
-		AccessFlags access = entryIndex.getMethodAccess(methodEntry);
-
-		if (access == null) {
+		if (!entryIndex.hasMethod(methodEntry)) {
 			throw new IllegalArgumentException("Could not find method " + methodEntry);
 		}
 
-		if (!canInherit(methodEntry, access)) {
-			methodEntries.add(methodEntry);
-			return;
-		}
-
-		resolveEquivalentMethods(methodEntries, treeBuilder.buildMethodInheritance(VoidTranslator.INSTANCE, methodEntry));
-	}
-
-	private void resolveEquivalentMethods(Set<MethodEntry> methodEntries, MethodInheritanceTreeNode node) {
-		MethodEntry methodEntry = node.getMethodEntry();
-
-		if (methodEntries.contains(methodEntry)) {
-			return;
-		}
-
-		AccessFlags flags = entryIndex.getMethodAccess(methodEntry);
-
-		if (flags != null && canInherit(methodEntry, flags)) {
-			// collect the entry
-			methodEntries.add(methodEntry);
-		}
-
-		// look at bridge methods!
-		MethodEntry bridgedMethod = bridgeMethodIndex.getBridgeFromSpecialized(methodEntry);
-
-		while (bridgedMethod != null) {
-			resolveEquivalentMethods(methodEntries, bridgedMethod);
-			bridgedMethod = bridgeMethodIndex.getBridgeFromSpecialized(bridgedMethod);
-		}
+		Collection<MethodEntry> equivalentMethods = equivalenceIndex.getEquivalentMethods(methodEntry);
 
-		// look at interface methods too
-		for (MethodImplementationsTreeNode implementationsNode : treeBuilder.buildMethodImplementations(VoidTranslator.INSTANCE, methodEntry)) {
-			resolveEquivalentMethods(methodEntries, implementationsNode);
+		if (equivalentMethods.isEmpty()) {
+			// the index hasn't been processed yet
+			return new HashSet<>(Collections.singleton(methodEntry));
 		}
 
-		// recurse
-		for (int i = 0; i < node.getChildCount(); i++) {
-			resolveEquivalentMethods(methodEntries, (MethodInheritanceTreeNode) node.getChildAt(i));
-		}
-	}
-
-	private void resolveEquivalentMethods(Set<MethodEntry> methodEntries, MethodImplementationsTreeNode node) {
-		MethodEntry methodEntry = node.getMethodEntry();
-		AccessFlags flags = entryIndex.getMethodAccess(methodEntry);
-
-		if (flags != null && !flags.isPrivate() && !flags.isStatic()) {
-			// collect the entry
-			methodEntries.add(methodEntry);
-		}
-
-		// look at bridge methods!
-		MethodEntry bridgedMethod = bridgeMethodIndex.getBridgeFromSpecialized(methodEntry);
-
-		while (bridgedMethod != null) {
-			resolveEquivalentMethods(methodEntries, bridgedMethod);
-			bridgedMethod = bridgeMethodIndex.getBridgeFromSpecialized(bridgedMethod);
-		}
-
-		// recurse
-		for (int i = 0; i < node.getChildCount(); i++) {
-			resolveEquivalentMethods(methodEntries, (MethodImplementationsTreeNode) node.getChildAt(i));
-		}
+		return new HashSet<>(equivalentMethods);
 	}
 
-	private boolean canInherit(MethodEntry entry, AccessFlags access) {
-		return !entry.isConstructor() && !access.isPrivate() && !access.isStatic() && !access.isFinal();
+	private record ResolutionKey(Entry<ClassEntry> entry, ResolutionStrategy strategy) {
 	}
 }
@@ -13,12 +13,15 @@ package cuchaz.enigma.translation.mapping;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
 import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.mapping.tree.FlatEntryTree;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
@@ -35,42 +38,45 @@ public class MappingsChecker {
 	}
 
 	public Dropped dropBrokenMappings(ProgressListener progress) {
-		Dropped dropped = new Dropped();
-
-		Collection<Entry<?>> obfEntries = mappings.getAllEntries().filter(e -> e instanceof ClassEntry || e instanceof MethodEntry || e instanceof FieldEntry || e instanceof LocalVariableEntry).toList();
+		// check against a flat copy, which is cheaper to look up in and safe to share between threads, and only apply the drops to the mappings themselves
+		FlatEntryTree<EntryMapping> snapshot = FlatEntryTree.copyOf(mappings);
+		List<Entry<?>> obfEntries = snapshot.getAllEntries().filter(e -> e instanceof ClassEntry || e instanceof MethodEntry || e instanceof FieldEntry || e instanceof LocalVariableEntry).toList();
 
 		progress.init(obfEntries.size(), "Checking for dropped mappings");
 
-		int steps = 0;
+		AtomicInteger steps = new AtomicInteger();
 
-		for (Entry<?> entry : obfEntries) {
-			progress.step(steps++, entry.toString());
-			tryDropEntry(dropped, entry);
-		}
+		// the jar index and the snapshot are only read from, so the entries are checked in parallel, while the
+		// ordered stream keeps the result independent of how the work was split up
+		List<Entry<?>> brokenEntries = obfEntries.parallelStream().filter(entry -> {
+			String message = entry.toString();
 
-		dropped.apply(mappings);
+			synchronized (progress) {
+				progress.step(steps.getAndIncrement(), message);
+			}
 
-		return dropped;
-	}
+			return shouldDropEntry(snapshot, entry);
+		}).toList();
 
-	private void tryDropEntry(Dropped dropped, Entry<?> entry) {
-		if (shouldDropEntry(entry)) {
-			EntryMapping mapping = mappings.get(entry);
+		Dropped dropped = new Dropped();
 
-			if (mapping != null) {
-				dropped.drop(entry, mapping);
-			}
+		for (Entry<?> entry : brokenEntries) {
+			dropped.drop(entry, snapshot.get(entry));
 		}
+
+		dropped.apply(mappings);
+
+		return dropped;
 	}
 
-	private boolean shouldDropEntry(Entry<?> entry) {
+	private boolean shouldDropEntry(EntryTree<EntryMapping> mappings, Entry<?> entry) {
 		if (!index.getEntryIndex().hasEntry(entry)) {
 			return true;
 		}
 
 		if (entry instanceof LocalVariableEntry localVariableEntry) {
 			// Drop local variables only if the method entry is to be dropped
-			return shouldDropEntry(localVariableEntry.getParent());
+			return shouldDropEntry(mappings, localVariableEntry.getParent());
 		}
 
 		Collection<Entry<?>> resolvedEntries = index.getEntryResolver().resolveEntry(entry, ResolutionStrategy.RESOLVE_ROOT);
@@ -19,6 +19,8 @@ import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.MappingDelta;
+import cuchaz.enigma.translation.mapping.serde.binary.BinaryMappingsReader;
+import cuchaz.enigma.translation.mapping.serde.binary.BinaryMappingsWriter;
 import cuchaz.enigma.translation.mapping.serde.enigma.EnigmaMappingsReader;
 import cuchaz.enigma.translation.mapping.serde.enigma.EnigmaMappingsWriter;
 import cuchaz.enigma.translation.mapping.serde.proguard.ProguardMappingsReader;
@@ -44,7 +46,8 @@ public enum MappingFormat {
 	TSRG_FILE(null, null, FileType.TSRG, net.fabricmc.mappingio.format.MappingFormat.TSRG_FILE, false),
 	TSRG_2_FILE(null, null, FileType.TSRG, net.fabricmc.mappingio.format.MappingFormat.TSRG_2_FILE, false),
 	PROGUARD(null, ProguardMappingsReader.INSTANCE, FileType.TXT, net.fabricmc.mappingio.format.MappingFormat.PROGUARD_FILE, true),
-	RECAF(RecafMappingsWriter.INSTANCE, RecafMappingsReader.INSTANCE, FileType.TXT, null, false);
+	RECAF(RecafMappingsWriter.INSTANCE, RecafMappingsReader.INSTANCE, FileType.TXT, null, false),
+	ENIGMA_BINARY(BinaryMappingsWriter.INSTANCE, BinaryMappingsReader.INSTANCE, FileType.BINARY, null, false);
 
 	private final MappingsWriter writer;
 	private final MappingsReader reader;
@@ -118,6 +121,19 @@ public enum MappingFormat {
 		return MappingIoConverter.fromMappingIo(mappingTree, progressListener, index);
 	}
 
+	/**
+	 * Reads mappings like {@link #read(Path, ProgressListener, MappingSaveParameters, JarIndex)} does, except that
+	 * Enigma directories read without mapping-io only have the file of a class parsed once the class is accessed, see
+	 * {@link EnigmaMappingsReader#readDirectoryLazily(Path, ProgressListener, int)}.
+	 */
+	public EntryTree<EntryMapping> readLazily(Path path, ProgressListener progressListener, MappingSaveParameters saveParameters, JarIndex index) throws IOException, MappingParseException {
+		if (this == ENIGMA_DIRECTORY && !useMappingIo()) {
+			return EnigmaMappingsReader.readDirectoryLazily(path, progressListener, Runtime.getRuntime().availableProcessors());
+		}
+
+		return read(path, progressListener, saveParameters, index);
+	}
+
 	@Nullable
 	public MappingsWriter getWriter() {
 		return writer;
@@ -191,6 +207,7 @@ public enum MappingFormat {
 		public static final FileType TINY = new FileType(".tiny");
 		public static final FileType TXT = new FileType(".txt");
 		public static final FileType ZIP = new FileType(".zip");
+		public static final FileType BINARY = new FileType(".bmapping");
 
 		public FileType(String... extensions) {
 			this(List.of(extensions));
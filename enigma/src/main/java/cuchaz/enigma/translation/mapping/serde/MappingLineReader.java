@@ -0,0 +1,413 @@
+package cuchaz.enigma.translation.mapping.serde;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads a mapping file line by line and splits the lines into tokens, without turning either into strings.
+ *
+ * <p>Lines are read into a single reusable buffer, and tokens are ranges of that buffer. A token only becomes a
+ * string when asked for one, and {@link #internedToken(int)} returns the same string for every equal token of the
+ * file, so that the owners and descriptors repeated all over a mapping file are only kept once.
+ *
+ * <p>Lines and their tokens are only valid until the next call of {@link #next()}. Lines end at {@code \n},
+ * {@code \r} or {@code \r\n}, like for {@link java.io.BufferedReader#readLine()}.
+ */
+public final class MappingLineReader implements Closeable {
+	private static final int INITIAL_BUFFER_SIZE = 8192;
+	private static final int INITIAL_POOL_SIZE = 1024;
+
+	private final Reader reader;
+	private char[] buffer = new char[INITIAL_BUFFER_SIZE];
+	private int position;
+	private int limit;
+	private boolean eof;
+	private long charsRead;
+
+	private int lineStart;
+	private int lineEnd;
+	private int lineNumber;
+
+	private int[] tokenStarts = new int[8];
+	private int[] tokenEnds = new int[8];
+	private int tokenCount;
+
+	private String[] pool = new String[INITIAL_POOL_SIZE];
+	private int pooled;
+
+	public MappingLineReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Advances to the next line.
+	 *
+	 * @return {@code false} if there are no lines left
+	 */
+	public boolean next() throws IOException {
+		tokenCount = 0;
+		int scan = position;
+
+		while (true) {
+			for (int i = scan; i < limit; i++) {
+				char c = buffer[i];
+
+				if (c == '\n' || c == '\r') {
+					// a \r at the end of the buffer may be followed by a \n that hasn't been read yet
+					if (c == '\r' && i + 1 == limit && !eof) {
+						break;
+					}
+
+					lineStart = position;
+					lineEnd = i;
+					position = c == '\r' && i + 1 < limit && buffer[i + 1] == '\n' ? i + 2 : i + 1;
+					lineNumber++;
+					return true;
+				}
+
+				scan = i + 1;
+			}
+
+			if (eof) {
+				if (position == limit) {
+					return false;
+				}
+
+				lineStart = position;
+				lineEnd = limit;
+				position = limit;
+				lineNumber++;
+				return true;
+			}
+
+			scan -= fill();
+		}
+	}
+
+	/**
+	 * Reads more characters into the buffer, moving the current line to its start.
+	 *
+	 * @return how far the unread characters moved back
+	 */
+	private int fill() throws IOException {
+		int shift = position;
+
+		if (shift > 0) {
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			limit -= shift;
+			position = 0;
+		}
+
+		if (limit == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+
+		int read = reader.read(buffer, limit, buffer.length - limit);
+
+		if (read < 0) {
+			eof = true;
+		} else {
+			limit += read;
+			charsRead += read;
+		}
+
+		return shift;
+	}
+
+	/**
+	 * Gets the number of the current line, starting at 1.
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Gets the number of characters read from the file so far, which is at most a buffer ahead of the current line.
+	 */
+	public long getCharsRead() {
+		return charsRead;
+	}
+
+	public int length() {
+		return lineEnd - lineStart;
+	}
+
+	public char charAt(int index) {
+		return buffer[lineStart + index];
+	}
+
+	/**
+	 * Gets the number of tabs at the start of the line.
+	 */
+	public int countIndentation() {
+		int indentation = 0;
+
+		while (indentation < length() && charAt(indentation) == '\t') {
+			indentation++;
+		}
+
+		return indentation;
+	}
+
+	/**
+	 * Finds a character in the line.
+	 *
+	 * @return the index of the first occurrence of {@code c} at or after {@code from}, or {@code -1}
+	 */
+	public int indexOf(char c, int from) {
+		for (int i = from; i < length(); i++) {
+			if (charAt(i) == c) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Splits a part of the line at every occurrence of a separator, keeping empty tokens, like
+	 * {@code line.substring(from, to).split(separator, -1)}.
+	 */
+	public void split(int from, int to, char separator) {
+		tokenCount = 0;
+		int start = from;
+
+		for (int i = from; i < to; i++) {
+			if (charAt(i) == separator) {
+				addToken(start, i);
+				start = i + 1;
+			}
+		}
+
+		addToken(start, to);
+	}
+
+	/**
+	 * Splits a part of the line at every whitespace character, like {@code line.substring(from, to).split("\\s")}.
+	 */
+	public void splitWhitespace(int from, int to) {
+		tokenCount = 0;
+		int start = from;
+
+		for (int i = from; i < to; i++) {
+			if (isWhitespace(charAt(i))) {
+				addToken(start, i);
+				start = i + 1;
+			}
+		}
+
+		addToken(start, to);
+
+		// like String.split, drop trailing empty tokens, but keep a single empty one
+		while (tokenCount > 1 && tokenEnds[tokenCount - 1] == tokenStarts[tokenCount - 1]) {
+			tokenCount--;
+		}
+	}
+
+	/**
+	 * Gets the start of the line without the leading characters {@link String#trim()} removes.
+	 */
+	public int trimStart(int from, int to) {
+		while (from < to && charAt(from) <= ' ') {
+			from++;
+		}
+
+		return from;
+	}
+
+	/**
+	 * Gets the end of the line without the trailing characters {@link String#trim()} removes.
+	 */
+	public int trimEnd(int from, int to) {
+		while (to > from && charAt(to - 1) <= ' ') {
+			to--;
+		}
+
+		return to;
+	}
+
+	/**
+	 * Checks whether a character is whitespace, as matched by {@code \s} in a regular expression.
+	 */
+	public static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+	}
+
+	private void addToken(int start, int end) {
+		if (tokenCount == tokenStarts.length) {
+			tokenStarts = Arrays.copyOf(tokenStarts, tokenCount * 2);
+			tokenEnds = Arrays.copyOf(tokenEnds, tokenCount * 2);
+		}
+
+		tokenStarts[tokenCount] = lineStart + start;
+		tokenEnds[tokenCount] = lineStart + end;
+		tokenCount++;
+	}
+
+	public int tokenCount() {
+		return tokenCount;
+	}
+
+	public String token(int index) {
+		checkToken(index);
+		return new String(buffer, tokenStarts[index], tokenEnds[index] - tokenStarts[index]);
+	}
+
+	/**
+	 * Gets a token as a string, which is the same string for all equal tokens read by this reader.
+	 */
+	public String internedToken(int index) {
+		checkToken(index);
+		int start = tokenStarts[index];
+		int end = tokenEnds[index];
+		int hash = 0;
+
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + buffer[i];
+		}
+
+		int mask = pool.length - 1;
+
+		for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+			String pooledString = pool[slot];
+
+			if (pooledString == null) {
+				String string = new String(buffer, start, end - start);
+				pool[slot] = string;
+
+				if (++pooled * 2 > pool.length) {
+					growPool();
+				}
+
+				return string;
+			}
+
+			if (pooledString.hashCode() == hash && equals(pooledString, start, end)) {
+				return pooledString;
+			}
+		}
+	}
+
+	private static int mix(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private void growPool() {
+		String[] oldPool = pool;
+		pool = new String[oldPool.length * 2];
+		int mask = pool.length - 1;
+
+		for (String string : oldPool) {
+			if (string != null) {
+				int slot = mix(string.hashCode()) & mask;
+
+				while (pool[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+
+				pool[slot] = string;
+			}
+		}
+	}
+
+	/**
+	 * Checks whether a token equals a string, without turning the token into a string.
+	 */
+	public boolean tokenEquals(int index, String string) {
+		checkToken(index);
+		return equals(string, tokenStarts[index], tokenEnds[index]);
+	}
+
+	/**
+	 * Checks whether a token equals a string, ignoring case, like {@link String#equalsIgnoreCase(String)}.
+	 */
+	public boolean tokenEqualsIgnoreCase(int index, String string) {
+		checkToken(index);
+		int start = tokenStarts[index];
+
+		if (tokenEnds[index] - start != string.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < string.length(); i++) {
+			char a = buffer[start + i];
+			char b = string.charAt(i);
+
+			if (a != b && Character.toUpperCase(a) != Character.toUpperCase(b) && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	public boolean tokenStartsWith(int index, String prefix) {
+		checkToken(index);
+		int start = tokenStarts[index];
+		return tokenEnds[index] - start >= prefix.length() && equals(prefix, start, start + prefix.length());
+	}
+
+	/**
+	 * Parses a token as a decimal integer, like {@link Integer#parseInt(String)}.
+	 */
+	public int tokenAsInt(int index) {
+		checkToken(index);
+		int start = tokenStarts[index];
+		int end = tokenEnds[index];
+
+		// signs, and numbers that may overflow, are left to the JDK
+		if (start == end || end - start > 9 || buffer[start] < '0' || buffer[start] > '9') {
+			return Integer.parseInt(token(index));
+		}
+
+		int value = 0;
+
+		for (int i = start; i < end; i++) {
+			int digit = buffer[i] - '0';
+
+			if (digit < 0 || digit > 9) {
+				// throws the usual exception
+				return Integer.parseInt(token(index));
+			}
+
+			value = value * 10 + digit;
+		}
+
+		return value;
+	}
+
+	/**
+	 * Gets the rest of the line from the start of a token, up to {@code to}.
+	 */
+	public String rest(int index, int to) {
+		checkToken(index);
+		return new String(buffer, tokenStarts[index], lineStart + to - tokenStarts[index]);
+	}
+
+	private boolean equals(String string, int start, int end) {
+		if (end - start != string.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < string.length(); i++) {
+			if (buffer[start + i] != string.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void checkToken(int index) {
+		if (index < 0 || index >= tokenCount) {
+			throw new ArrayIndexOutOfBoundsException("Index " + index + " out of bounds for " + tokenCount + " tokens");
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
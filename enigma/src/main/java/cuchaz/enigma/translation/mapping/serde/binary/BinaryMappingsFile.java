@@ -0,0 +1,211 @@
+package cuchaz.enigma.translation.mapping.serde.binary;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import cuchaz.enigma.translation.mapping.AccessModifier;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+/**
+ * An open binary mapping file, which reads the mappings of single top-level classes on demand.
+ *
+ * <p>Opening a file only reads its string pool and class index. The section of a class is read, and the strings it
+ * uses are decoded, the first time it is asked for. Classes can be read from multiple threads at once.
+ */
+public final class BinaryMappingsFile implements Closeable {
+	private static final AccessModifier[] ACCESS_MODIFIERS = AccessModifier.values();
+
+	private final Path path;
+	private final FileChannel channel;
+	private final byte[] pool;
+	private final int[] stringOffsets;
+	private final int[] stringLengths;
+	private final String[] strings;
+	private final Map<ClassEntry, Section> sections;
+
+	private BinaryMappingsFile(Path path, FileChannel channel, byte[] pool, int[] stringOffsets, int[] stringLengths, Map<ClassEntry, Section> sections) {
+		this.path = path;
+		this.channel = channel;
+		this.pool = pool;
+		this.stringOffsets = stringOffsets;
+		this.stringLengths = stringLengths;
+		this.strings = new String[stringOffsets.length];
+		this.sections = sections;
+	}
+
+	public static BinaryMappingsFile open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+		try {
+			ByteBuffer header = read(channel, path, 0, BinaryMappingsFormat.HEADER_SIZE);
+
+			if (header.getInt() != BinaryMappingsFormat.MAGIC) {
+				throw new IOException("Not a binary mapping file: " + path);
+			}
+
+			int version = header.getInt();
+
+			if (version != BinaryMappingsFormat.FORMAT_VERSION) {
+				throw new IOException("Unsupported binary mapping format version " + version + " in " + path);
+			}
+
+			int poolSize = header.getInt();
+			int indexSize = header.getInt();
+			ByteBuffer tables = read(channel, path, BinaryMappingsFormat.HEADER_SIZE, poolSize + indexSize);
+
+			int stringCount = BinaryMappingsFormat.readVarInt(tables);
+			int[] stringOffsets = new int[stringCount];
+			int[] stringLengths = new int[stringCount];
+
+			for (int i = 0; i < stringCount; i++) {
+				stringLengths[i] = BinaryMappingsFormat.readVarInt(tables);
+				stringOffsets[i] = tables.position();
+				tables.position(tables.position() + stringLengths[i]);
+			}
+
+			byte[] pool = tables.array();
+			tables.position(poolSize);
+
+			long sectionsStart = BinaryMappingsFormat.HEADER_SIZE + (long) poolSize + indexSize;
+			int classCount = BinaryMappingsFormat.readVarInt(tables);
+			Map<ClassEntry, Section> sections = new LinkedHashMap<>();
+
+			for (int i = 0; i < classCount; i++) {
+				int name = BinaryMappingsFormat.readVarInt(tables);
+				String className = new String(pool, stringOffsets[name], stringLengths[name], StandardCharsets.UTF_8);
+				long offset = sectionsStart + BinaryMappingsFormat.readVarInt(tables);
+				sections.put(new ClassEntry(className), new Section(offset, BinaryMappingsFormat.readVarInt(tables)));
+			}
+
+			return new BinaryMappingsFile(path, channel, pool, stringOffsets, stringLengths, sections);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+
+			if (e instanceof IOException ioException) {
+				throw ioException;
+			}
+
+			throw new IOException("Corrupt binary mapping file " + path, e);
+		}
+	}
+
+	/**
+	 * Gets the top-level classes the file has mappings for, in the order they were written.
+	 */
+	public Collection<ClassEntry> getClasses() {
+		return Collections.unmodifiableSet(sections.keySet());
+	}
+
+	public boolean hasClass(ClassEntry classEntry) {
+		return sections.containsKey(classEntry);
+	}
+
+	/**
+	 * Reads the mappings of a top-level class and its members and inner classes.
+	 *
+	 * @param classEntry the top-level class
+	 * @param mappings the tree to insert the mappings into
+	 * @return {@code false} if the file has no mappings for the class
+	 */
+	public boolean readClass(ClassEntry classEntry, EntryTree<EntryMapping> mappings) throws IOException {
+		Section section = sections.get(classEntry);
+
+		if (section == null) {
+			return false;
+		}
+
+		ByteBuffer in = read(channel, path, section.offset(), section.length());
+
+		try {
+			readNode(in, null, mappings);
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupt mappings of " + classEntry.getFullName() + " in " + path, e);
+		}
+
+		return true;
+	}
+
+	private void readNode(ByteBuffer in, @Nullable Entry<?> parent, EntryTree<EntryMapping> mappings) {
+		int kind = in.get();
+		Entry<?> entry = switch (kind) {
+		case BinaryMappingsFormat.CLASS -> new ClassEntry((ClassEntry) parent, readString(in));
+		case BinaryMappingsFormat.FIELD -> new FieldEntry((ClassEntry) parent, readString(in), new TypeDescriptor(readString(in)));
+		case BinaryMappingsFormat.METHOD -> new MethodEntry((ClassEntry) parent, readString(in), new MethodDescriptor(readString(in)));
+		case BinaryMappingsFormat.LOCAL_VARIABLE -> new LocalVariableEntry((MethodEntry) parent, BinaryMappingsFormat.readVarInt(in), readString(in), in.get() != 0, null);
+		default -> throw new IllegalStateException("Unknown entry kind " + kind);
+		};
+
+		int flags = in.get() & 0xFF;
+
+		if ((flags & BinaryMappingsFormat.HAS_MAPPING) != 0) {
+			String targetName = (flags & BinaryMappingsFormat.HAS_TARGET_NAME) != 0 ? readString(in) : null;
+			String javadoc = (flags & BinaryMappingsFormat.HAS_JAVADOC) != 0 ? readString(in) : null;
+			mappings.insert(entry, new EntryMapping(targetName, ACCESS_MODIFIERS[flags >>> BinaryMappingsFormat.ACCESS_MODIFIER_SHIFT], javadoc));
+		}
+
+		int childCount = BinaryMappingsFormat.readVarInt(in);
+
+		for (int i = 0; i < childCount; i++) {
+			readNode(in, entry, mappings);
+		}
+	}
+
+	@Nullable
+	private String readString(ByteBuffer in) {
+		int id = BinaryMappingsFormat.readVarInt(in) - 1;
+
+		if (id < 0) {
+			return null;
+		}
+
+		// racing threads may both decode a string, which is harmless
+		String string = strings[id];
+
+		if (string == null) {
+			string = new String(pool, stringOffsets[id], stringLengths[id], StandardCharsets.UTF_8);
+			strings[id] = string;
+		}
+
+		return string;
+	}
+
+	private static ByteBuffer read(FileChannel channel, Path path, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Unexpected end of " + path);
+			}
+		}
+
+		return buffer.flip();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private record Section(long offset, int length) {
+	}
+}
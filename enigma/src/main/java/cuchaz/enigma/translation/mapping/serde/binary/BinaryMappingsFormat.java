@@ -0,0 +1,61 @@
+package cuchaz.enigma.translation.mapping.serde.binary;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The layout of binary mapping files.
+ *
+ * <p>A file starts with a fixed size header: the magic number, the format version, and the sizes of the string pool
+ * and of the class index. The string pool holds every name, descriptor and javadoc of the file once, as a count
+ * followed by length prefixed UTF-8 strings. The class index lists the top-level classes, each as the pool index of
+ * its name and the position and size of its section, and the sections follow it. A section holds the mapping tree of
+ * one top-level class, where each node is written as its kind, the parts of its entry relative to its parent, its
+ * mapping, and its children.
+ *
+ * <p>Within sections, strings are referenced by their index in the pool plus 1, with 0 standing for {@code null}.
+ * All counts, sizes and indices after the header are unsigned varints.
+ */
+final class BinaryMappingsFormat {
+	static final int MAGIC = 0x454E4D42; // "ENMB"
+	static final int FORMAT_VERSION = 1;
+	static final int HEADER_SIZE = 16;
+
+	static final int CLASS = 0;
+	static final int FIELD = 1;
+	static final int METHOD = 2;
+	static final int LOCAL_VARIABLE = 3;
+
+	static final int HAS_MAPPING = 1;
+	static final int HAS_TARGET_NAME = 1 << 1;
+	static final int HAS_JAVADOC = 1 << 2;
+	static final int ACCESS_MODIFIER_SHIFT = 3;
+
+	private BinaryMappingsFormat() {
+	}
+
+	static void writeVarInt(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		out.writeByte(value);
+	}
+
+	static int readVarInt(ByteBuffer in) {
+		int value = 0;
+
+		for (int shift = 0; shift < 32; shift += 7) {
+			byte b = in.get();
+			value |= (b & 0x7F) << shift;
+
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		throw new IllegalStateException("Malformed varint");
+	}
+}
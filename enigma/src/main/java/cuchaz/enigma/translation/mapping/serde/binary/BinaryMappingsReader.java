@@ -0,0 +1,37 @@
+package cuchaz.enigma.translation.mapping.serde.binary;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.serde.MappingsReader;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.utils.I18n;
+
+/**
+ * Reads all mappings of a binary mapping file. Use {@link BinaryMappingsFile} to only read the classes that are needed.
+ */
+public class BinaryMappingsReader implements MappingsReader {
+	public static final BinaryMappingsReader INSTANCE = new BinaryMappingsReader();
+
+	@Override
+	public EntryTree<EntryMapping> read(Path path, ProgressListener progress, MappingSaveParameters saveParameters) throws IOException {
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+
+		try (BinaryMappingsFile file = BinaryMappingsFile.open(path)) {
+			progress.init(file.getClasses().size(), I18n.translate("progress.mappings.loading_file"));
+			int steps = 0;
+
+			for (ClassEntry classEntry : file.getClasses()) {
+				progress.step(steps++, classEntry.getFullName());
+				file.readClass(classEntry, mappings);
+			}
+		}
+
+		return mappings;
+	}
+}
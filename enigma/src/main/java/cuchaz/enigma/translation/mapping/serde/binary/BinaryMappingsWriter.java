@@ -0,0 +1,171 @@
+package cuchaz.enigma.translation.mapping.serde.binary;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.MappingDelta;
+import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.serde.MappingsWriter;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.I18n;
+
+/**
+ * Writes mappings in the layout described by {@link BinaryMappingsFormat}. The file is always rewritten as a whole.
+ */
+public class BinaryMappingsWriter implements MappingsWriter {
+	public static final BinaryMappingsWriter INSTANCE = new BinaryMappingsWriter();
+
+	@Override
+	public void write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
+		List<EntryTreeNode<EntryMapping>> classes = mappings.getRootNodes()
+				.filter(node -> node.getEntry() instanceof ClassEntry)
+				.sorted(Comparator.comparing(node -> ((ClassEntry) node.getEntry()).getFullName()))
+				.toList();
+
+		progress.init(classes.size(), I18n.translate("progress.mappings.writing"));
+
+		StringPool strings = new StringPool();
+		ByteArrayOutputStream sections = new ByteArrayOutputStream();
+		ByteArrayOutputStream index = new ByteArrayOutputStream();
+
+		try {
+			DataOutputStream sectionOut = new DataOutputStream(sections);
+			DataOutputStream indexOut = new DataOutputStream(index);
+			BinaryMappingsFormat.writeVarInt(indexOut, classes.size());
+			int steps = 0;
+
+			for (EntryTreeNode<EntryMapping> node : classes) {
+				ClassEntry classEntry = (ClassEntry) node.getEntry();
+				progress.step(steps++, classEntry.getFullName());
+
+				int start = sectionOut.size();
+				writeNode(sectionOut, node, strings);
+
+				BinaryMappingsFormat.writeVarInt(indexOut, strings.get(classEntry.getFullName()));
+				BinaryMappingsFormat.writeVarInt(indexOut, start);
+				BinaryMappingsFormat.writeVarInt(indexOut, sectionOut.size() - start);
+			}
+
+			ByteArrayOutputStream pool = new ByteArrayOutputStream();
+			strings.writeTo(new DataOutputStream(pool));
+
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+				out.writeInt(BinaryMappingsFormat.MAGIC);
+				out.writeInt(BinaryMappingsFormat.FORMAT_VERSION);
+				out.writeInt(pool.size());
+				out.writeInt(index.size());
+				pool.writeTo(out);
+				index.writeTo(out);
+				sections.writeTo(out);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void writeNode(DataOutput out, EntryTreeNode<EntryMapping> node, StringPool strings) throws IOException {
+		Entry<?> entry = node.getEntry();
+
+		if (entry instanceof ClassEntry classEntry) {
+			out.writeByte(BinaryMappingsFormat.CLASS);
+			// inner classes only store their name within the outer class
+			writeString(out, classEntry.getName(), strings);
+		} else if (entry instanceof FieldEntry fieldEntry) {
+			out.writeByte(BinaryMappingsFormat.FIELD);
+			writeString(out, fieldEntry.getName(), strings);
+			writeString(out, fieldEntry.getDesc().toString(), strings);
+		} else if (entry instanceof MethodEntry methodEntry) {
+			out.writeByte(BinaryMappingsFormat.METHOD);
+			writeString(out, methodEntry.getName(), strings);
+			writeString(out, methodEntry.getDesc().toString(), strings);
+		} else if (entry instanceof LocalVariableEntry variableEntry) {
+			out.writeByte(BinaryMappingsFormat.LOCAL_VARIABLE);
+			BinaryMappingsFormat.writeVarInt(out, variableEntry.getIndex());
+			writeString(out, variableEntry.getName(), strings);
+			out.writeBoolean(variableEntry.isArgument());
+		} else {
+			throw new IllegalArgumentException("Cannot write mapping of " + entry);
+		}
+
+		EntryMapping mapping = node.getValue();
+
+		if (mapping == null) {
+			out.writeByte(0);
+		} else {
+			int flags = BinaryMappingsFormat.HAS_MAPPING | mapping.accessModifier().ordinal() << BinaryMappingsFormat.ACCESS_MODIFIER_SHIFT;
+
+			if (mapping.targetName() != null) {
+				flags |= BinaryMappingsFormat.HAS_TARGET_NAME;
+			}
+
+			if (mapping.javadoc() != null) {
+				flags |= BinaryMappingsFormat.HAS_JAVADOC;
+			}
+
+			out.writeByte(flags);
+
+			if (mapping.targetName() != null) {
+				writeString(out, mapping.targetName(), strings);
+			}
+
+			if (mapping.javadoc() != null) {
+				writeString(out, mapping.javadoc(), strings);
+			}
+		}
+
+		List<? extends EntryTreeNode<EntryMapping>> children = new ArrayList<>(node.getChildNodes());
+		BinaryMappingsFormat.writeVarInt(out, children.size());
+
+		for (EntryTreeNode<EntryMapping> child : children) {
+			writeNode(out, child, strings);
+		}
+	}
+
+	private static void writeString(DataOutput out, @Nullable String string, StringPool strings) throws IOException {
+		BinaryMappingsFormat.writeVarInt(out, string == null ? 0 : strings.get(string) + 1);
+	}
+
+	private static final class StringPool {
+		private final Map<String, Integer> ids = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+
+		int get(String string) {
+			return ids.computeIfAbsent(string, s -> {
+				strings.add(s);
+				return strings.size() - 1;
+			});
+		}
+
+		void writeTo(DataOutput out) throws IOException {
+			BinaryMappingsFormat.writeVarInt(out, strings.size());
+
+			for (String string : strings) {
+				byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+				BinaryMappingsFormat.writeVarInt(out, bytes.length);
+				out.write(bytes);
+			}
+		}
+	}
+}
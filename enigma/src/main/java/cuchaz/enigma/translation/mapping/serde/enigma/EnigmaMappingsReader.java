@@ -1,32 +1,45 @@
 package cuchaz.enigma.translation.mapping.serde.enigma;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.NotDirectoryException;
 import java.nio.file.Path;
 import java.util.ArrayDeque;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
 
-import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
 
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.translation.mapping.AccessModifier;
 import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.MappingPair;
 import cuchaz.enigma.translation.mapping.serde.MappingHelper;
+import cuchaz.enigma.translation.mapping.serde.MappingLineReader;
 import cuchaz.enigma.translation.mapping.serde.MappingParseException;
 import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
 import cuchaz.enigma.translation.mapping.serde.MappingsReader;
 import cuchaz.enigma.translation.mapping.serde.RawEntryMapping;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
 import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.mapping.tree.LazyEntryTree;
 import cuchaz.enigma.translation.representation.MethodDescriptor;
 import cuchaz.enigma.translation.representation.TypeDescriptor;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
@@ -53,27 +66,7 @@ public enum EnigmaMappingsReader implements MappingsReader {
 	DIRECTORY {
 		@Override
 		public EntryTree<EntryMapping> read(Path root, ProgressListener progress, MappingSaveParameters saveParameters) throws IOException, MappingParseException {
-			if (!Files.isDirectory(root)) {
-				throw new NotDirectoryException(root.toString());
-			}
-
-			EntryTree<EntryMapping> mappings = new HashEntryTree<>();
-			List<Path> files = Files.walk(root).filter(f -> !Files.isDirectory(f)).filter(f -> f.toString().endsWith(".mapping")).toList();
-
-			progress.init(files.size(), I18n.translate("progress.mappings.loading_directory"));
-			int step = 0;
-
-			for (Path file : files) {
-				progress.step(step++, root.relativize(file).toString());
-
-				if (Files.isHidden(file)) {
-					continue;
-				}
-
-				readFile(file, mappings);
-			}
-
-			return mappings;
+			return readDirectory(root, progress, Runtime.getRuntime().availableProcessors());
 		}
 	},
 	ZIP {
@@ -113,83 +106,297 @@ public enum EnigmaMappingsReader implements MappingsReader {
 		return mappings;
 	}
 
-	private static void readFile(Path path, EntryTree<EntryMapping> mappings) throws IOException, MappingParseException {
-		List<String> lines = Files.readAllLines(path, Charsets.UTF_8);
-		Deque<MappingPair<?, RawEntryMapping>> mappingStack = new ArrayDeque<>();
+	/**
+	 * Reads a directory of Enigma mapping files, parsing up to {@code parallelism} files at once.
+	 *
+	 * <p>The parsed files are merged in the order of a sequential read, so the result and the reported parse errors
+	 * don't depend on scheduling.
+	 *
+	 * @param root the directory to read
+	 * @param progress the progress listener, stepped once per file
+	 * @param parallelism the number of threads to parse files on; {@code 1} parses them on the calling thread
+	 * @return the parsed mappings
+	 * @throws MappingParseException if a mapping file cannot be parsed
+	 * @throws IOException if an IO error occurs
+	 */
+	public static EntryTree<EntryMapping> readDirectory(Path root, ProgressListener progress, int parallelism) throws IOException, MappingParseException {
+		Preconditions.checkArgument(parallelism > 0, "parallelism must be positive");
+
+		List<Path> files = listFiles(root);
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		parseFiles(root, files, EnigmaMappingsReader::parseFile, (file, parsed) -> insert(parsed, mappings), progress, parallelism);
+		return mappings;
+	}
+
+	/**
+	 * Indexes a directory of Enigma mapping files, and returns a tree that only parses the file of a top-level class
+	 * once something below the class is accessed.
+	 *
+	 * <p>Indexing only parses the lines declaring the top-level classes of each file, and the javadoc lines of those
+	 * classes. A file may hold several top-level classes, in which case loading one of them only inserts the mappings
+	 * of that class. Parse errors in the rest of a file are only found once the file is loaded, and make the tree throw
+	 * an {@link java.io.UncheckedIOException}.
+	 *
+	 * <p>The files must not be changed while the tree is in use, other than by writing the tree back to them.
+	 *
+	 * @param root the directory to index
+	 * @param progress the progress listener, stepped once per file
+	 * @param parallelism the number of threads to index files on; {@code 1} indexes them on the calling thread
+	 * @return the lazily loaded mappings
+	 * @throws MappingParseException if the class declaration of a mapping file cannot be parsed
+	 * @throws IOException if an IO error occurs
+	 */
+	public static LazyEntryTree<EntryMapping> readDirectoryLazily(Path root, ProgressListener progress, int parallelism) throws IOException, MappingParseException {
+		Preconditions.checkArgument(parallelism > 0, "parallelism must be positive");
 
-		for (int lineNumber = 0; lineNumber < lines.size(); lineNumber++) {
-			String line = lines.get(lineNumber);
-			int indentation = countIndentation(line, path, lineNumber);
+		List<Path> files = listFiles(root);
+		Map<ClassEntry, EntryMapping> roots = new HashMap<>();
+		Map<ClassEntry, List<Path>> rootFiles = new HashMap<>();
 
-			line = formatLine(line);
+		parseFiles(root, files, EnigmaMappingsReader::parseHeaders, (file, headers) -> {
+			for (MappingPair<ClassEntry, EntryMapping> header : headers) {
+				roots.put(header.getEntry(), header.getMapping());
+				rootFiles.computeIfAbsent(header.getEntry(), classEntry -> new ArrayList<>()).add(file);
+			}
+		}, progress, parallelism);
+
+		return new LazyEntryTree<>(roots, (classEntry, mappings) -> {
+			for (Path file : rootFiles.get(classEntry)) {
+				try {
+					for (MappingPair<?, EntryMapping> pair : parseFile(file)) {
+						// the other top-level classes of the file are inserted when they are loaded themselves
+						if (pair.getEntry().getTopLevelClass().equals(classEntry)) {
+							mappings.insert(pair.getEntry(), pair.getMapping());
+						}
+					}
+				} catch (MappingParseException e) {
+					throw new IOException(e.getMessage(), e);
+				}
+			}
+		});
+	}
+
+	private static List<Path> listFiles(Path root) throws IOException {
+		if (!Files.isDirectory(root)) {
+			throw new NotDirectoryException(root.toString());
+		}
+
+		try (Stream<Path> walk = Files.walk(root)) {
+			return walk.filter(f -> !Files.isDirectory(f)).filter(f -> f.toString().endsWith(".mapping")).toList();
+		}
+	}
+
+	/**
+	 * Parses files on up to {@code parallelism} threads, and passes the results to the consumer in the order of the
+	 * files, on the calling thread. Hidden files are skipped.
+	 */
+	private static <R> void parseFiles(Path root, List<Path> files, FileParser<R> parser, BiConsumer<Path, R> consumer, ProgressListener progress, int parallelism) throws IOException, MappingParseException {
+		progress.init(files.size(), I18n.translate("progress.mappings.loading_directory"));
+		int step = 0;
+
+		if (parallelism == 1 || files.size() <= 1) {
+			for (Path file : files) {
+				progress.step(step++, root.relativize(file).toString());
+
+				if (!Files.isHidden(file)) {
+					consumer.accept(file, parser.parse(file));
+				}
+			}
+
+			return;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
 
-			if (line == null) {
-				continue;
+		try {
+			List<Future<Optional<R>>> parsedFiles = new ArrayList<>(files.size());
+
+			for (Path file : files) {
+				parsedFiles.add(executor.submit(() -> Files.isHidden(file) ? null : Optional.ofNullable(parser.parse(file))));
 			}
 
-			cleanMappingStack(indentation, mappingStack, mappings);
+			for (int i = 0; i < files.size(); i++) {
+				Optional<R> parsed;
+
+				try {
+					parsed = parsedFiles.get(i).get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while reading mappings");
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof MappingParseException parseException) {
+						throw parseException;
+					} else if (e.getCause() instanceof IOException ioException) {
+						throw ioException;
+					} else if (e.getCause() instanceof RuntimeException runtimeException) {
+						throw runtimeException;
+					}
+
+					throw new RuntimeException(e.getCause());
+				}
+
+				progress.step(step++, root.relativize(files.get(i)).toString());
+
+				// hidden files are skipped
+				if (parsed != null) {
+					consumer.accept(files.get(i), parsed.orElse(null));
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void readFile(Path path, EntryTree<EntryMapping> mappings) throws IOException, MappingParseException {
+		insert(parseFile(path), mappings);
+	}
+
+	private static void insert(List<MappingPair<?, EntryMapping>> parsed, EntryTree<EntryMapping> mappings) {
+		for (MappingPair<?, EntryMapping> pair : parsed) {
+			mappings.insert(pair.getEntry(), pair.getMapping());
+		}
+	}
 
-			try {
-				MappingPair<?, RawEntryMapping> pair = parseLine(mappingStack.peek(), line);
+	/**
+	 * Parses a mapping file into the mappings it holds, in the order they have to be inserted into a tree.
+	 */
+	private static List<MappingPair<?, EntryMapping>> parseFile(Path path) throws IOException, MappingParseException {
+		Deque<MappingPair<?, RawEntryMapping>> mappingStack = new ArrayDeque<>();
+		List<MappingPair<?, EntryMapping>> mappings = new ArrayList<>();
+		Descriptors descriptors = new Descriptors();
+
+		try (MappingLineReader reader = new MappingLineReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+			while (reader.next()) {
+				int indentation = countIndentation(reader, path);
+				int end = findCommentStart(reader);
+				int start = reader.trimStart(0, end);
+				end = reader.trimEnd(start, end);
 
-				if (pair != null) {
-					mappingStack.push(pair);
+				if (start == end) {
+					continue;
+				}
+
+				cleanMappingStack(indentation, mappingStack, mappings);
+
+				try {
+					reader.splitWhitespace(start, end);
+					MappingPair<?, RawEntryMapping> pair = parseLine(mappingStack.peek(), reader, end, descriptors);
+
+					if (pair != null) {
+						mappingStack.push(pair);
+					}
+				} catch (Throwable t) {
+					throw new MappingParseException(path, reader.getLineNumber(), t);
 				}
-			} catch (Throwable t) {
-				throw new MappingParseException(path, lineNumber + 1, t);
 			}
 		}
 
 		// Clean up rest
 		cleanMappingStack(0, mappingStack, mappings);
+		return mappings;
 	}
 
-	private static void cleanMappingStack(int indentation, Deque<MappingPair<?, RawEntryMapping>> mappingStack, EntryTree<EntryMapping> mappings) {
-		while (indentation < mappingStack.size()) {
-			MappingPair<?, RawEntryMapping> pair = mappingStack.pop();
+	/**
+	 * Parses the declarations of the top-level classes of a mapping file, along with their javadoc lines. The lines
+	 * below the classes are only checked for their indentation.
+	 *
+	 * @return the classes and their mappings, in the order of the file
+	 */
+	private static List<MappingPair<ClassEntry, EntryMapping>> parseHeaders(Path path) throws IOException, MappingParseException {
+		List<MappingPair<ClassEntry, EntryMapping>> headers = new ArrayList<>();
+		MappingPair<?, RawEntryMapping> header = null;
+		Descriptors descriptors = new Descriptors();
 
-			if (pair.getMapping() != null) {
-				mappings.insert(pair.getEntry(), pair.getMapping().bake());
+		try (MappingLineReader reader = new MappingLineReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+			while (reader.next()) {
+				int indentation = countIndentation(reader, path);
+
+				if (indentation > 1) {
+					continue;
+				}
+
+				int end = findCommentStart(reader);
+				int start = reader.trimStart(0, end);
+				end = reader.trimEnd(start, end);
+
+				if (start == end) {
+					continue;
+				}
+
+				try {
+					reader.splitWhitespace(start, end);
+
+					if (indentation == 0) {
+						addHeader(header, headers);
+
+						if (!reader.tokenEqualsIgnoreCase(0, EnigmaFormat.CLASS)) {
+							throw new RuntimeException("Unexpected top-level token '" + reader.token(0).toUpperCase(Locale.ROOT) + "'");
+						}
+
+						header = parseLine(null, reader, end, descriptors);
+					} else if (reader.tokenEqualsIgnoreCase(0, EnigmaFormat.COMMENT)) {
+						parseLine(header, reader, end, descriptors);
+					}
+				} catch (Throwable t) {
+					throw new MappingParseException(path, reader.getLineNumber(), t);
+				}
 			}
 		}
-	}
 
-	@Nullable
-	private static String formatLine(String line) {
-		line = stripComment(line);
-		line = line.trim();
+		addHeader(header, headers);
+		return headers;
+	}
 
-		if (line.isEmpty()) {
-			return null;
+	private static void addHeader(@Nullable MappingPair<?, RawEntryMapping> header, List<MappingPair<ClassEntry, EntryMapping>> headers) {
+		if (header != null) {
+			headers.add(new MappingPair<>((ClassEntry) header.getEntry(), header.getMapping().bake()));
 		}
+	}
+
+	private static void cleanMappingStack(int indentation, Deque<MappingPair<?, RawEntryMapping>> mappingStack, List<MappingPair<?, EntryMapping>> mappings) {
+		while (indentation < mappingStack.size()) {
+			MappingPair<?, RawEntryMapping> pair = mappingStack.pop();
 
-		return line;
+			if (pair.getMapping() != null) {
+				mappings.add(new MappingPair<>(pair.getEntry(), pair.getMapping().bake()));
+			}
+		}
 	}
 
-	private static String stripComment(String line) {
+	/**
+	 * Finds where the comment of the current line starts.
+	 *
+	 * @return the index of the comment, or the length of the line if it has none
+	 */
+	private static int findCommentStart(MappingLineReader reader) {
 		//Dont support comments on javadoc lines
-		if (line.trim().startsWith(EnigmaFormat.COMMENT)) {
-			return line;
-		}
+		int start = reader.trimStart(0, reader.length());
+
+		if (reader.length() - start >= EnigmaFormat.COMMENT.length()) {
+			boolean javadoc = true;
 
-		int commentPos = line.indexOf('#');
+			for (int i = 0; i < EnigmaFormat.COMMENT.length() && javadoc; i++) {
+				javadoc = reader.charAt(start + i) == EnigmaFormat.COMMENT.charAt(i);
+			}
 
-		if (commentPos >= 0) {
-			return line.substring(0, commentPos);
+			if (javadoc) {
+				return reader.length();
+			}
 		}
 
-		return line;
+		int commentPos = reader.indexOf('#', 0);
+		return commentPos >= 0 ? commentPos : reader.length();
 	}
 
-	private static int countIndentation(String line, Path path, int lineNumber) throws MappingParseException {
+	private static int countIndentation(MappingLineReader reader, Path path) throws MappingParseException {
 		int indent = 0;
 
-		for (int i = 0; i < line.length(); i++) {
-			if (line.charAt(i) == ' ') {
-				throw new MappingParseException(path, lineNumber + 1, "Spaces must not be used to indent lines!");
+		for (int i = 0; i < reader.length(); i++) {
+			if (reader.charAt(i) == ' ') {
+				throw new MappingParseException(path, reader.getLineNumber(), "Spaces must not be used to indent lines!");
 			}
 
-			if (line.charAt(i) != '\t') {
+			if (reader.charAt(i) != '\t') {
 				break;
 			}
 
@@ -199,35 +406,32 @@ public enum EnigmaMappingsReader implements MappingsReader {
 		return indent;
 	}
 
-	private static MappingPair<?, RawEntryMapping> parseLine(@Nullable MappingPair<?, RawEntryMapping> parent, String line) {
-		String[] tokens = line.trim().split("\\s");
-		String keyToken = tokens[0].toUpperCase(Locale.ROOT);
+	private static MappingPair<?, RawEntryMapping> parseLine(@Nullable MappingPair<?, RawEntryMapping> parent, MappingLineReader tokens, int end, Descriptors descriptors) {
 		Entry<?> parentEntry = parent == null ? null : parent.getEntry();
 
-		switch (keyToken) {
-		case EnigmaFormat.CLASS:
+		if (tokens.tokenEqualsIgnoreCase(0, EnigmaFormat.CLASS)) {
 			return parseClass(parentEntry, tokens);
-		case EnigmaFormat.FIELD:
-			return parseField(parentEntry, tokens);
-		case EnigmaFormat.METHOD:
-			return parseMethod(parentEntry, tokens);
-		case EnigmaFormat.PARAMETER:
+		} else if (tokens.tokenEqualsIgnoreCase(0, EnigmaFormat.FIELD)) {
+			return parseField(parentEntry, tokens, descriptors);
+		} else if (tokens.tokenEqualsIgnoreCase(0, EnigmaFormat.METHOD)) {
+			return parseMethod(parentEntry, tokens, descriptors);
+		} else if (tokens.tokenEqualsIgnoreCase(0, EnigmaFormat.PARAMETER)) {
 			return parseArgument(parentEntry, tokens);
-		case EnigmaFormat.COMMENT:
-			readJavadoc(parent, tokens);
+		} else if (tokens.tokenEqualsIgnoreCase(0, EnigmaFormat.COMMENT)) {
+			readJavadoc(parent, tokens, end);
 			return null;
-		default:
-			throw new RuntimeException("Unknown token '" + keyToken + "'");
 		}
+
+		throw new RuntimeException("Unknown token '" + tokens.token(0).toUpperCase(Locale.ROOT) + "'");
 	}
 
-	private static void readJavadoc(MappingPair<?, RawEntryMapping> parent, String[] tokens) {
+	private static void readJavadoc(MappingPair<?, RawEntryMapping> parent, MappingLineReader tokens, int end) {
 		if (parent == null) {
 			throw new IllegalStateException("Javadoc has no parent!");
 		}
 
 		// Empty string to concat
-		String jdLine = tokens.length > 1 ? String.join(" ", Arrays.copyOfRange(tokens, 1, tokens.length)) : "";
+		String jdLine = tokens.tokenCount() > 1 ? joinWords(tokens.rest(1, end)) : "";
 
 		if (parent.getMapping() == null) {
 			parent.setMapping(new RawEntryMapping(parent.getEntry().getName(), AccessModifier.UNCHANGED));
@@ -236,8 +440,23 @@ public enum EnigmaMappingsReader implements MappingsReader {
 		parent.getMapping().addJavadocLine(MappingHelper.unescape(jdLine));
 	}
 
-	private static MappingPair<ClassEntry, RawEntryMapping> parseClass(@Nullable Entry<?> parent, String[] tokens) {
-		String obfuscatedName = ClassEntry.getInnerName(tokens[1]);
+	/**
+	 * Joins the words of a line with single spaces, which turns every whitespace character between them into a space.
+	 */
+	private static String joinWords(String line) {
+		char[] chars = line.toCharArray();
+
+		for (int i = 0; i < chars.length; i++) {
+			if (MappingLineReader.isWhitespace(chars[i])) {
+				chars[i] = ' ';
+			}
+		}
+
+		return new String(chars);
+	}
+
+	private static MappingPair<ClassEntry, RawEntryMapping> parseClass(@Nullable Entry<?> parent, MappingLineReader tokens) {
+		String obfuscatedName = ClassEntry.getInnerName(tokens.internedToken(1));
 		ClassEntry obfuscatedEntry;
 
 		if (parent instanceof ClassEntry) {
@@ -249,51 +468,51 @@ public enum EnigmaMappingsReader implements MappingsReader {
 		String mapping = null;
 		AccessModifier modifier = AccessModifier.UNCHANGED;
 
-		if (tokens.length == 3) {
-			AccessModifier parsedModifier = parseModifier(tokens[2]);
+		if (tokens.tokenCount() == 3) {
+			AccessModifier parsedModifier = parseModifier(tokens, 2);
 
 			if (parsedModifier != null) {
 				modifier = parsedModifier;
 				mapping = obfuscatedName;
 			} else {
-				mapping = tokens[2];
+				mapping = tokens.token(2);
 			}
-		} else if (tokens.length == 4) {
-			mapping = tokens[2];
-			modifier = parseModifier(tokens[3]);
+		} else if (tokens.tokenCount() == 4) {
+			mapping = tokens.token(2);
+			modifier = parseModifier(tokens, 3);
 		}
 
 		return new MappingPair<>(obfuscatedEntry, new RawEntryMapping(mapping, modifier));
 	}
 
-	private static MappingPair<FieldEntry, RawEntryMapping> parseField(@Nullable Entry<?> parent, String[] tokens) {
+	private static MappingPair<FieldEntry, RawEntryMapping> parseField(@Nullable Entry<?> parent, MappingLineReader tokens, Descriptors descriptors) {
 		if (!(parent instanceof ClassEntry)) {
 			throw new RuntimeException("Field must be a child of a class!");
 		}
 
 		ClassEntry ownerEntry = (ClassEntry) parent;
 
-		String obfuscatedName = tokens[1];
+		String obfuscatedName = tokens.internedToken(1);
 		String mapping = null;
 		AccessModifier modifier = AccessModifier.UNCHANGED;
 		TypeDescriptor descriptor;
 
-		if (tokens.length == 3) {
-			descriptor = new TypeDescriptor(tokens[2]);
-		} else if (tokens.length == 4) {
-			AccessModifier parsedModifier = parseModifier(tokens[3]);
+		if (tokens.tokenCount() == 3) {
+			descriptor = descriptors.type(tokens, 2);
+		} else if (tokens.tokenCount() == 4) {
+			AccessModifier parsedModifier = parseModifier(tokens, 3);
 
 			if (parsedModifier != null) {
-				descriptor = new TypeDescriptor(tokens[2]);
+				descriptor = descriptors.type(tokens, 2);
 				modifier = parsedModifier;
 			} else {
-				mapping = tokens[2];
-				descriptor = new TypeDescriptor(tokens[3]);
+				mapping = tokens.token(2);
+				descriptor = descriptors.type(tokens, 3);
 			}
-		} else if (tokens.length == 5) {
-			mapping = tokens[2];
-			modifier = parseModifier(tokens[3]);
-			descriptor = new TypeDescriptor(tokens[4]);
+		} else if (tokens.tokenCount() == 5) {
+			mapping = tokens.token(2);
+			modifier = parseModifier(tokens, 3);
+			descriptor = descriptors.type(tokens, 4);
 		} else {
 			throw new RuntimeException("Invalid field declaration");
 		}
@@ -302,35 +521,35 @@ public enum EnigmaMappingsReader implements MappingsReader {
 		return new MappingPair<>(obfuscatedEntry, new RawEntryMapping(mapping, modifier));
 	}
 
-	private static MappingPair<MethodEntry, RawEntryMapping> parseMethod(@Nullable Entry<?> parent, String[] tokens) {
+	private static MappingPair<MethodEntry, RawEntryMapping> parseMethod(@Nullable Entry<?> parent, MappingLineReader tokens, Descriptors descriptors) {
 		if (!(parent instanceof ClassEntry)) {
 			throw new RuntimeException("Method must be a child of a class!");
 		}
 
 		ClassEntry ownerEntry = (ClassEntry) parent;
 
-		String obfuscatedName = tokens[1];
+		String obfuscatedName = tokens.internedToken(1);
 		String mapping = null;
 		AccessModifier modifier = AccessModifier.UNCHANGED;
 		MethodDescriptor descriptor;
 
-		if (tokens.length == 3) {
-			descriptor = new MethodDescriptor(tokens[2]);
-		} else if (tokens.length == 4) {
-			AccessModifier parsedModifier = parseModifier(tokens[3]);
+		if (tokens.tokenCount() == 3) {
+			descriptor = descriptors.method(tokens, 2);
+		} else if (tokens.tokenCount() == 4) {
+			AccessModifier parsedModifier = parseModifier(tokens, 3);
 
 			if (parsedModifier != null) {
 				modifier = parsedModifier;
 				mapping = obfuscatedName;
-				descriptor = new MethodDescriptor(tokens[2]);
+				descriptor = descriptors.method(tokens, 2);
 			} else {
-				mapping = tokens[2];
-				descriptor = new MethodDescriptor(tokens[3]);
+				mapping = tokens.token(2);
+				descriptor = descriptors.method(tokens, 3);
 			}
-		} else if (tokens.length == 5) {
-			mapping = tokens[2];
-			modifier = parseModifier(tokens[4]);
-			descriptor = new MethodDescriptor(tokens[3]);
+		} else if (tokens.tokenCount() == 5) {
+			mapping = tokens.token(2);
+			modifier = parseModifier(tokens, 4);
+			descriptor = descriptors.method(tokens, 3);
 		} else {
 			throw new RuntimeException("Invalid method declaration");
 		}
@@ -339,24 +558,46 @@ public enum EnigmaMappingsReader implements MappingsReader {
 		return new MappingPair<>(obfuscatedEntry, new RawEntryMapping(mapping, modifier));
 	}
 
-	private static MappingPair<LocalVariableEntry, RawEntryMapping> parseArgument(@Nullable Entry<?> parent, String[] tokens) {
+	private static MappingPair<LocalVariableEntry, RawEntryMapping> parseArgument(@Nullable Entry<?> parent, MappingLineReader tokens) {
 		if (!(parent instanceof MethodEntry)) {
 			throw new RuntimeException("Method arg must be a child of a method!");
 		}
 
 		MethodEntry ownerEntry = (MethodEntry) parent;
-		LocalVariableEntry obfuscatedEntry = new LocalVariableEntry(ownerEntry, Integer.parseInt(tokens[1]), "", true, null);
-		String mapping = tokens[2];
+		LocalVariableEntry obfuscatedEntry = new LocalVariableEntry(ownerEntry, tokens.tokenAsInt(1), "", true, null);
+		String mapping = tokens.token(2);
 
 		return new MappingPair<>(obfuscatedEntry, new RawEntryMapping(mapping));
 	}
 
 	@Nullable
-	private static AccessModifier parseModifier(String token) {
-		if (token.startsWith("ACC:")) {
-			return AccessModifier.valueOf(token.substring(4));
+	private static AccessModifier parseModifier(MappingLineReader tokens, int index) {
+		if (tokens.tokenStartsWith(index, "ACC:")) {
+			return AccessModifier.valueOf(tokens.token(index).substring(4));
 		}
 
 		return null;
 	}
+
+	@FunctionalInterface
+	private interface FileParser<R> {
+		@Nullable
+		R parse(Path path) throws IOException, MappingParseException;
+	}
+
+	/**
+	 * The descriptors of a file, shared by all the entries using them.
+	 */
+	private static final class Descriptors {
+		private final Map<String, TypeDescriptor> types = new HashMap<>();
+		private final Map<String, MethodDescriptor> methods = new HashMap<>();
+
+		private TypeDescriptor type(MappingLineReader tokens, int index) {
+			return types.computeIfAbsent(tokens.internedToken(index), TypeDescriptor::new);
+		}
+
+		private MethodDescriptor method(MappingLineReader tokens, int index) {
+			return methods.computeIfAbsent(tokens.internedToken(index), MethodDescriptor::new);
+		}
+	}
 }
@@ -5,11 +5,13 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.BitSet;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.MappingPair;
+import cuchaz.enigma.translation.mapping.serde.MappingLineReader;
 import cuchaz.enigma.translation.mapping.serde.MappingParseException;
 import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
 import cuchaz.enigma.translation.mapping.serde.MappingsReader;
@@ -40,35 +42,35 @@ public final class TinyV2Reader implements MappingsReader {
 
 	@Override
 	public EntryTree<EntryMapping> read(Path path, ProgressListener progress, MappingSaveParameters saveParameters) throws IOException, MappingParseException {
-		return read(path, Files.readAllLines(path, StandardCharsets.UTF_8), progress);
+		// progress is counted in characters, of which there are at most as many as bytes
+		progress.init((int) Math.min(Files.size(path), Integer.MAX_VALUE), "progress.mappings.loading_file");
+
+		try (MappingLineReader reader = new MappingLineReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+			return read(path, reader, progress);
+		}
 	}
 
-	private EntryTree<EntryMapping> read(Path path, List<String> lines, ProgressListener progress) throws MappingParseException {
+	private EntryTree<EntryMapping> read(Path path, MappingLineReader parts, ProgressListener progress) throws IOException, MappingParseException {
 		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
-
-		progress.init(lines.size(), "progress.mappings.loading_file");
+		Map<String, MethodDescriptor> methodDescriptors = new HashMap<>();
+		Map<String, TypeDescriptor> fieldDescriptors = new HashMap<>();
 
 		BitSet state = new BitSet(STATE_SIZE);
 		@SuppressWarnings({"unchecked", "rawtypes"}) MappingPair<? extends Entry<?>, RawEntryMapping>[] holds = new MappingPair[STATE_SIZE];
 		boolean escapeNames = false;
 
-		for (int lineNumber = 0; lineNumber < lines.size(); lineNumber++) {
+		while (parts.next()) {
 			try {
-				progress.step(lineNumber, "");
-				String line = lines.get(lineNumber);
+				progress.step((int) Math.min(parts.getCharsRead(), Integer.MAX_VALUE), "");
 
-				int indent = 0;
-
-				while (line.charAt(indent) == '\t') {
-					indent++;
-				}
+				int indent = parts.countIndentation();
 
-				String[] parts = line.substring(indent).split("\t", -1);
-
-				if (parts.length == 0 || indent >= INDENT_CLEAR_START.length) {
+				if (indent == parts.length() || indent >= INDENT_CLEAR_START.length) {
 					throw new IllegalArgumentException("Invalid format");
 				}
 
+				parts.split(indent, parts.length(), '\t');
+
 				// clean and register stuff in stack
 				for (int i = INDENT_CLEAR_START[indent]; i < STATE_SIZE; i++) {
 					state.clear(i);
@@ -81,34 +83,31 @@ public final class TinyV2Reader implements MappingsReader {
 
 				switch (indent) {
 				case 0:
-					switch (parts[0]) {
-					case "tiny": // header
-						if (lineNumber != 0) {
+					if (parts.tokenEquals(0, "tiny")) { // header
+						if (parts.getLineNumber() != 1) {
 							throw new IllegalArgumentException("Header can only be on the first line");
 						}
 
-						if (parts.length < 5) {
+						if (parts.tokenCount() < 5) {
 							throw new IllegalArgumentException("Not enough header columns, needs at least 5");
 						}
 
-						if (!"2".equals(parts[1]) || !MINOR_VERSION.equals(parts[2])) {
+						if (!parts.tokenEquals(1, "2") || !parts.tokenEquals(2, MINOR_VERSION)) {
 							throw new IllegalArgumentException("Unsupported TinyV2 version, requires major " + "2" + " and minor " + MINOR_VERSION + "");
 						}
 
 						state.set(IN_HEADER);
-						break;
-					case "c": // class
+					} else if (parts.tokenEquals(0, "c")) { // class
 						state.set(IN_CLASS);
 						holds[IN_CLASS] = parseClass(parts, escapeNames);
-						break;
-					default:
+					} else {
 						unsupportKey(parts);
 					}
 
 					break;
 				case 1:
 					if (state.get(IN_HEADER)) {
-						if (parts[0].equals("esacpe-names")) {
+						if (parts.tokenEquals(0, "esacpe-names")) {
 							escapeNames = true;
 						}
 
@@ -116,19 +115,15 @@ public final class TinyV2Reader implements MappingsReader {
 					}
 
 					if (state.get(IN_CLASS)) {
-						switch (parts[0]) {
-						case "m": // method
+						if (parts.tokenEquals(0, "m")) { // method
 							state.set(IN_METHOD);
-							holds[IN_METHOD] = parseMethod(holds[IN_CLASS], parts, escapeNames);
-							break;
-						case "f": // field
+							holds[IN_METHOD] = parseMethod(holds[IN_CLASS], parts, escapeNames, methodDescriptors);
+						} else if (parts.tokenEquals(0, "f")) { // field
 							state.set(IN_FIELD);
-							holds[IN_FIELD] = parseField(holds[IN_CLASS], parts, escapeNames);
-							break;
-						case "c": // class javadoc
+							holds[IN_FIELD] = parseField(holds[IN_CLASS], parts, escapeNames, fieldDescriptors);
+						} else if (parts.tokenEquals(0, "c")) { // class javadoc
 							addJavadoc(holds[IN_CLASS], parts);
-							break;
-						default:
+						} else {
 							unsupportKey(parts);
 						}
 
@@ -138,18 +133,14 @@ public final class TinyV2Reader implements MappingsReader {
 					unsupportKey(parts);
 				case 2:
 					if (state.get(IN_METHOD)) {
-						switch (parts[0]) {
-						case "p": // parameter
+						if (parts.tokenEquals(0, "p")) { // parameter
 							state.set(IN_PARAMETER);
 							holds[IN_PARAMETER] = parseArgument(holds[IN_METHOD], parts, escapeNames);
-							break;
-						case "v": // local variable
+						} else if (parts.tokenEquals(0, "v")) { // local variable
 							// TODO add local var mapping
-							break;
-						case "c": // method javadoc
+						} else if (parts.tokenEquals(0, "c")) { // method javadoc
 							addJavadoc(holds[IN_METHOD], parts);
-							break;
-						default:
+						} else {
 							unsupportKey(parts);
 						}
 
@@ -157,11 +148,9 @@ public final class TinyV2Reader implements MappingsReader {
 					}
 
 					if (state.get(IN_FIELD)) {
-						switch (parts[0]) {
-						case "c": // field javadoc
+						if (parts.tokenEquals(0, "c")) { // field javadoc
 							addJavadoc(holds[IN_FIELD], parts);
-							break;
-						default:
+						} else {
 							unsupportKey(parts);
 						}
 
@@ -171,11 +160,9 @@ public final class TinyV2Reader implements MappingsReader {
 					unsupportKey(parts);
 				case 3:
 					if (state.get(IN_PARAMETER)) {
-						switch (parts[0]) {
-						case "c":
+						if (parts.tokenEquals(0, "c")) {
 							addJavadoc(holds[IN_PARAMETER], parts);
-							break;
-						default:
+						} else {
 							unsupportKey(parts);
 						}
 
@@ -187,7 +174,7 @@ public final class TinyV2Reader implements MappingsReader {
 					unsupportKey(parts);
 				}
 			} catch (Throwable t) {
-				throw new MappingParseException(path, lineNumber + 1, t);
+				throw new MappingParseException(path, parts.getLineNumber(), t);
 			}
 		}
 
@@ -213,55 +200,55 @@ public final class TinyV2Reader implements MappingsReader {
 		}
 	}
 
-	private void unsupportKey(String[] parts) {
-		throw new IllegalArgumentException("Unsupported key " + parts[0]);
+	private void unsupportKey(MappingLineReader parts) {
+		throw new IllegalArgumentException("Unsupported key " + parts.token(0));
 	}
 
-	private void addJavadoc(MappingPair<? extends Entry, RawEntryMapping> pair, String[] parts) {
-		if (parts.length != 2) {
+	private void addJavadoc(MappingPair<? extends Entry, RawEntryMapping> pair, MappingLineReader parts) {
+		if (parts.tokenCount() != 2) {
 			throw new IllegalArgumentException("Invalid javadoc declaration");
 		}
 
-		addJavadoc(pair, parts[1]);
+		addJavadoc(pair, parts.token(1));
 	}
 
-	private MappingPair<ClassEntry, RawEntryMapping> parseClass(String[] tokens, boolean escapeNames) {
-		ClassEntry obfuscatedEntry = new ClassEntry(unescapeOpt(tokens[1], escapeNames));
+	private MappingPair<ClassEntry, RawEntryMapping> parseClass(MappingLineReader tokens, boolean escapeNames) {
+		ClassEntry obfuscatedEntry = new ClassEntry(unescapeOpt(tokens, 1, escapeNames));
 
-		if (tokens.length <= 2) {
+		if (tokens.tokenCount() <= 2) {
 			return new MappingPair<>(obfuscatedEntry);
 		}
 
-		String token2 = unescapeOpt(tokens[2], escapeNames);
+		String token2 = unescapeOpt(tokens, 2, escapeNames);
 		String mapping = token2.substring(token2.lastIndexOf('$') + 1);
 		return new MappingPair<>(obfuscatedEntry, new RawEntryMapping(mapping));
 	}
 
-	private MappingPair<FieldEntry, RawEntryMapping> parseField(MappingPair<? extends Entry, RawEntryMapping> parent, String[] tokens, boolean escapeNames) {
+	private MappingPair<FieldEntry, RawEntryMapping> parseField(MappingPair<? extends Entry, RawEntryMapping> parent, MappingLineReader tokens, boolean escapeNames, Map<String, TypeDescriptor> descriptors) {
 		ClassEntry ownerClass = (ClassEntry) parent.getEntry();
-		TypeDescriptor descriptor = new TypeDescriptor(unescapeOpt(tokens[1], escapeNames));
+		TypeDescriptor descriptor = descriptors.computeIfAbsent(unescapeOpt(tokens, 1, escapeNames), TypeDescriptor::new);
 
-		FieldEntry obfuscatedEntry = new FieldEntry(ownerClass, unescapeOpt(tokens[2], escapeNames), descriptor);
+		FieldEntry obfuscatedEntry = new FieldEntry(ownerClass, unescapeOpt(tokens, 2, escapeNames), descriptor);
 
-		if (tokens.length <= 3) {
+		if (tokens.tokenCount() <= 3) {
 			return new MappingPair<>(obfuscatedEntry);
 		}
 
-		String mapping = unescapeOpt(tokens[3], escapeNames);
+		String mapping = unescapeOpt(tokens, 3, escapeNames);
 		return new MappingPair<>(obfuscatedEntry, new RawEntryMapping(mapping));
 	}
 
-	private MappingPair<MethodEntry, RawEntryMapping> parseMethod(MappingPair<? extends Entry, RawEntryMapping> parent, String[] tokens, boolean escapeNames) {
+	private MappingPair<MethodEntry, RawEntryMapping> parseMethod(MappingPair<? extends Entry, RawEntryMapping> parent, MappingLineReader tokens, boolean escapeNames, Map<String, MethodDescriptor> descriptors) {
 		ClassEntry ownerClass = (ClassEntry) parent.getEntry();
-		MethodDescriptor descriptor = new MethodDescriptor(unescapeOpt(tokens[1], escapeNames));
+		MethodDescriptor descriptor = descriptors.computeIfAbsent(unescapeOpt(tokens, 1, escapeNames), MethodDescriptor::new);
 
-		MethodEntry obfuscatedEntry = new MethodEntry(ownerClass, unescapeOpt(tokens[2], escapeNames), descriptor);
+		MethodEntry obfuscatedEntry = new MethodEntry(ownerClass, unescapeOpt(tokens, 2, escapeNames), descriptor);
 
-		if (tokens.length <= 3) {
+		if (tokens.tokenCount() <= 3) {
 			return new MappingPair<>(obfuscatedEntry);
 		}
 
-		String mapping = unescapeOpt(tokens[3], escapeNames);
+		String mapping = unescapeOpt(tokens, 3, escapeNames);
 		return new MappingPair<>(obfuscatedEntry, new RawEntryMapping(mapping));
 	}
 
@@ -275,27 +262,31 @@ public final class TinyV2Reader implements MappingsReader {
 		mapping.addJavadocLine(unescape(javadoc));
 	}
 
-	private MappingPair<LocalVariableEntry, RawEntryMapping> parseArgument(MappingPair<? extends Entry, RawEntryMapping> parent, String[] tokens, boolean escapeNames) {
+	private MappingPair<LocalVariableEntry, RawEntryMapping> parseArgument(MappingPair<? extends Entry, RawEntryMapping> parent, MappingLineReader tokens, boolean escapeNames) {
 		MethodEntry ownerMethod = (MethodEntry) parent.getEntry();
-		int variableIndex = Integer.parseInt(tokens[1]);
+		int variableIndex = tokens.tokenAsInt(1);
 
 		// tokens[2] is the useless obf name
 
 		LocalVariableEntry obfuscatedEntry = new LocalVariableEntry(ownerMethod, variableIndex, "", true, null);
 
-		if (tokens.length <= 3) {
+		if (tokens.tokenCount() <= 3) {
 			return new MappingPair<>(obfuscatedEntry);
 		}
 
-		String mapping = unescapeOpt(tokens[3], escapeNames);
+		String mapping = unescapeOpt(tokens, 3, escapeNames);
 		return new MappingPair<>(obfuscatedEntry, new RawEntryMapping(mapping));
 	}
 
 	private static final String TO_ESCAPE = "\\\n\r\0\t";
 	private static final String ESCAPED = "\\nr0t";
 
-	private static String unescapeOpt(String raw, boolean escapedStrings) {
-		return escapedStrings ? unescape(raw) : raw;
+	/**
+	 * Gets a token, unescaping it if names are escaped. Unescaped tokens are interned, as most of them are
+	 * owners, descriptors and obfuscated names that repeat throughout the file.
+	 */
+	private static String unescapeOpt(MappingLineReader tokens, int index, boolean escapedStrings) {
+		return escapedStrings ? unescape(tokens.token(index)) : tokens.internedToken(index);
 	}
 
 	private static String unescape(String str) {
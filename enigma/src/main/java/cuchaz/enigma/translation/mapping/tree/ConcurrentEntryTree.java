@@ -0,0 +1,184 @@
+package cuchaz.enigma.translation.mapping.tree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.mapping.EntryMap;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryResolver;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+/**
+ * An entry tree that can be read and written by several threads at once.
+ *
+ * <p>The tree is split by top-level class, and the subtree of each top-level class is never changed once it has been
+ * published. A write copies the subtree of its class, changes the copy and publishes it in place of the old one, which
+ * the backing {@link ConcurrentHashMap} does atomically for each class, so writes to different classes don't contend.
+ * Reads never block, and see the subtree of a class either entirely before or entirely after a write. Going over the
+ * whole tree is only weakly consistent across classes, like iterating over a {@link ConcurrentHashMap}.
+ *
+ * <p>As every write copies the subtree of its class, the tree suits changes of a few entries at a time, like renames.
+ * Bulk insertions should go through {@link #insertAll(EntryTree)}, which copies each class once.
+ */
+public class ConcurrentEntryTree<T> implements EntryTree<T> {
+	private final ConcurrentMap<Entry<?>, HashEntryTree<T>> classes = new ConcurrentHashMap<>();
+
+	public ConcurrentEntryTree() {
+	}
+
+	public ConcurrentEntryTree(EntryTree<T> tree) {
+		insertAll(tree);
+	}
+
+	@Override
+	public void insert(Entry<?> entry, T value) {
+		update(entry, classTree -> classTree.insert(entry, value));
+	}
+
+	/**
+	 * Inserts every value of another tree, copying each top-level class once rather than once for every entry.
+	 */
+	public void insertAll(EntryTree<T> tree) {
+		tree.getRootNodes().forEach(root -> classes.compute(root.getEntry(), (entry, classTree) -> {
+			HashEntryTree<T> copy = classTree != null ? new HashEntryTree<>(classTree) : new HashEntryTree<>();
+
+			for (EntryTreeNode<T> node : root.getNodesRecursively()) {
+				if (node.hasValue()) {
+					copy.insert(node.getEntry(), node.getValue());
+				}
+			}
+
+			return copy.isEmpty() ? null : copy;
+		}));
+	}
+
+	/**
+	 * Takes a copy of the tree, which later writes to either tree don't affect. As published subtrees are never changed,
+	 * the copy shares them with this tree, and only costs a reference for each top-level class.
+	 */
+	public ConcurrentEntryTree<T> snapshot() {
+		ConcurrentEntryTree<T> snapshot = new ConcurrentEntryTree<>();
+		snapshot.classes.putAll(classes);
+		return snapshot;
+	}
+
+	@Override
+	@Nullable
+	public T remove(Entry<?> entry) {
+		HashEntryTree<T> classTree = getClassTree(entry);
+
+		// don't copy the class if there's nothing to remove
+		if (classTree == null || classTree.findNode(entry) == null) {
+			return null;
+		}
+
+		AtomicReference<T> removed = new AtomicReference<>();
+		update(entry, copy -> removed.set(copy.remove(entry)));
+		return removed.get();
+	}
+
+	private void update(Entry<?> entry, Consumer<HashEntryTree<T>> change) {
+		classes.compute(getRoot(entry), (root, classTree) -> {
+			HashEntryTree<T> copy = classTree != null ? new HashEntryTree<>(classTree) : new HashEntryTree<>();
+			change.accept(copy);
+			return copy.isEmpty() ? null : copy;
+		});
+	}
+
+	@Override
+	@Nullable
+	public T get(Entry<?> entry) {
+		HashEntryTree<T> classTree = getClassTree(entry);
+		return classTree != null ? classTree.get(entry) : null;
+	}
+
+	@Override
+	public Collection<Entry<?>> getChildren(Entry<?> entry) {
+		HashEntryTree<T> classTree = getClassTree(entry);
+		return classTree != null ? classTree.getChildren(entry) : Collections.emptyList();
+	}
+
+	@Override
+	public Collection<Entry<?>> getSiblings(Entry<?> entry) {
+		if (entry.getParent() != null) {
+			HashEntryTree<T> classTree = getClassTree(entry);
+			return classTree != null ? classTree.getSiblings(entry) : Collections.emptySet();
+		}
+
+		Set<Entry<?>> siblings = new HashSet<>(classes.keySet());
+		siblings.remove(entry);
+		return siblings;
+	}
+
+	@Override
+	@Nullable
+	public EntryTreeNode<T> findNode(Entry<?> entry) {
+		HashEntryTree<T> classTree = getClassTree(entry);
+		return classTree != null ? classTree.findNode(entry) : null;
+	}
+
+	@Override
+	public Stream<EntryTreeNode<T>> getRootNodes() {
+		return classes.values().stream().flatMap(HashEntryTree::getRootNodes);
+	}
+
+	@Override
+	public Stream<Entry<?>> getAllEntries() {
+		return classes.values().stream().flatMap(HashEntryTree::getAllEntries);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return classes.isEmpty();
+	}
+
+	@Override
+	@Nonnull
+	public Iterator<EntryTreeNode<T>> iterator() {
+		List<EntryTreeNode<T>> nodes = new ArrayList<>();
+
+		for (HashEntryTree<T> classTree : classes.values()) {
+			classTree.forEach(nodes::add);
+		}
+
+		return nodes.iterator();
+	}
+
+	@Override
+	public ConcurrentEntryTree<T> translate(Translator translator, EntryResolver resolver, EntryMap<EntryMapping> mappings) {
+		HashEntryTree<T> translatedTree = new HashEntryTree<>();
+
+		for (EntryTreeNode<T> node : this) {
+			translatedTree.insert(translator.translate(node.getEntry()), node.getValue());
+		}
+
+		return new ConcurrentEntryTree<>(translatedTree);
+	}
+
+	@Nullable
+	private HashEntryTree<T> getClassTree(Entry<?> entry) {
+		return classes.get(getRoot(entry));
+	}
+
+	private static Entry<?> getRoot(Entry<?> entry) {
+		while (entry.getParent() != null) {
+			entry = entry.getParent();
+		}
+
+		return entry;
+	}
+}
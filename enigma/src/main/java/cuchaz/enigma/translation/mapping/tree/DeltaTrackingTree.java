@@ -2,6 +2,8 @@ package cuchaz.enigma.translation.mapping.tree;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
@@ -13,6 +15,12 @@ import cuchaz.enigma.translation.mapping.EntryResolver;
 import cuchaz.enigma.translation.mapping.MappingDelta;
 import cuchaz.enigma.translation.representation.entry.Entry;
 
+/**
+ * An entry tree that tracks the changes made to a delegate tree since the last delta was taken.
+ *
+ * <p>Changes and taking deltas are synchronized, so that writers from several threads are tracked consistently. Reads
+ * go to the delegate directly, and are as safe to use from several threads as the delegate is.
+ */
 public class DeltaTrackingTree<T> implements EntryTree<T> {
 	private final EntryTree<T> delegate;
 
@@ -21,7 +29,7 @@ public class DeltaTrackingTree<T> implements EntryTree<T> {
 
 	public DeltaTrackingTree(EntryTree<T> delegate) {
 		this.delegate = delegate;
-		this.deltaReference = new HashEntryTree<>(delegate);
+		this.deltaReference = new HashEntryTree<>();
 	}
 
 	public DeltaTrackingTree() {
@@ -29,19 +37,34 @@ public class DeltaTrackingTree<T> implements EntryTree<T> {
 	}
 
 	@Override
-	public void insert(Entry<?> entry, T value) {
+	public synchronized void insert(Entry<?> entry, T value) {
 		trackChange(entry);
 		delegate.insert(entry, value);
 	}
 
 	@Nullable
 	@Override
-	public T remove(Entry<?> entry) {
+	public synchronized T remove(Entry<?> entry) {
 		trackChange(entry);
 		return delegate.remove(entry);
 	}
 
-	public void trackChange(Entry<?> entry) {
+	public synchronized void trackChange(Entry<?> entry) {
+		Entry<?> root = getRoot(entry);
+
+		// the delta reference only keeps the top-level entries that changed, as they were before their first change
+		if (changes.findNode(root) == null) {
+			EntryTreeNode<T> node = delegate.findNode(root);
+
+			if (node != null) {
+				for (EntryTreeNode<T> child : node.getNodesRecursively()) {
+					if (child.hasValue()) {
+						deltaReference.insert(child.getEntry(), child.getValue());
+					}
+				}
+			}
+		}
+
 		changes.insert(entry, MappingDelta.PLACEHOLDER);
 	}
 
@@ -73,8 +96,9 @@ public class DeltaTrackingTree<T> implements EntryTree<T> {
 	}
 
 	@Override
-	public DeltaTrackingTree<T> translate(Translator translator, EntryResolver resolver, EntryMap<EntryMapping> mappings) {
+	public synchronized DeltaTrackingTree<T> translate(Translator translator, EntryResolver resolver, EntryMap<EntryMapping> mappings) {
 		DeltaTrackingTree<T> translatedTree = new DeltaTrackingTree<>(delegate.translate(translator, resolver, mappings));
+		translatedTree.deltaReference = deltaReference.translate(translator, resolver, mappings);
 		translatedTree.changes = changes.translate(translator, resolver, mappings);
 		return translatedTree;
 	}
@@ -94,18 +118,72 @@ public class DeltaTrackingTree<T> implements EntryTree<T> {
 		return delegate.iterator();
 	}
 
-	public MappingDelta<T> takeDelta() {
+	/**
+	 * Takes the changes since the last delta was taken. The base mappings of the delta only hold the top-level entries
+	 * that changed, as they were before, so that tracking changes doesn't need a copy of the whole tree.
+	 */
+	public synchronized MappingDelta<T> takeDelta() {
 		MappingDelta<T> delta = new MappingDelta<>(deltaReference, changes);
 		resetDelta();
 		return delta;
 	}
 
+	/**
+	 * Takes the changes since the last delta was taken, along with a copy of the mappings as they are with those
+	 * changes, which later changes don't affect. The copy can be written out on another thread while the tree keeps
+	 * being changed. If the delegate is a {@link ConcurrentEntryTree}, the copy shares its subtrees rather than copying
+	 * every entry.
+	 */
+	public synchronized Snapshot<T> takeSnapshot() {
+		EntryTree<T> mappings = delegate instanceof ConcurrentEntryTree<T> concurrentTree ? concurrentTree.snapshot() : new HashEntryTree<>(delegate);
+		return new Snapshot<>(mappings, takeDelta());
+	}
+
+	/**
+	 * Merges a delta taken from this tree back into the changes, after it failed to be saved, so that its changes are
+	 * part of the next delta. The base mappings of the delta are still what was saved last, so they become the base of
+	 * the top-level entries the delta changed, including those that changed again since it was taken.
+	 */
+	public synchronized void restoreDelta(MappingDelta<T> delta) {
+		Set<Entry<?>> restoredRoots = delta.getChangedRoots().collect(Collectors.toSet());
+		EntryTree<T> reference = new HashEntryTree<>();
+
+		for (EntryTreeNode<T> node : deltaReference) {
+			if (node.hasValue() && !restoredRoots.contains(getRoot(node.getEntry()))) {
+				reference.insert(node.getEntry(), node.getValue());
+			}
+		}
+
+		for (EntryTreeNode<T> node : delta.getBaseMappings()) {
+			if (node.hasValue()) {
+				reference.insert(node.getEntry(), node.getValue());
+			}
+		}
+
+		deltaReference = reference;
+		delta.getChanges().getAllEntries().forEach(entry -> changes.insert(entry, MappingDelta.PLACEHOLDER));
+	}
+
+	private static Entry<?> getRoot(Entry<?> entry) {
+		while (entry.getParent() != null) {
+			entry = entry.getParent();
+		}
+
+		return entry;
+	}
+
 	private void resetDelta() {
-		deltaReference = new HashEntryTree<>(delegate);
+		deltaReference = new HashEntryTree<>();
 		changes = new HashEntryTree<>();
 	}
 
-	public boolean isDirty() {
+	public synchronized boolean isDirty() {
 		return !changes.isEmpty();
 	}
+
+	/**
+	 * The mappings at the time a delta was taken, along with the delta.
+	 */
+	public record Snapshot<T>(EntryTree<T> mappings, MappingDelta<T> delta) {
+	}
 }
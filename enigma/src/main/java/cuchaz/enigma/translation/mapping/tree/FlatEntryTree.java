@@ -0,0 +1,236 @@
+package cuchaz.enigma.translation.mapping.tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.mapping.EntryMap;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryResolver;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+/**
+ * An immutable entry tree that keeps its nodes in flat arrays rather than in an object per node, for large trees that
+ * are only read from.
+ *
+ * <p>Every node gets an int id, in breadth-first order, so that the root nodes come first and the children of a node
+ * take up a contiguous range of ids. Entries and values are stored in arrays indexed by id, next to the start of the
+ * child range of each node, and entries are looked up through an open-addressed table of ids.
+ *
+ * <p>Nodes are created on demand as views over the arrays. As the tree never changes, it can be read from any number
+ * of threads at once. {@link #insert(Entry, Object)} and {@link #remove(Entry)} throw
+ * {@link UnsupportedOperationException}.
+ */
+public final class FlatEntryTree<T> implements EntryTree<T> {
+	private final Entry<?>[] entries;
+	private final Object[] values;
+	// the children of node i have the ids childStart[i] until childStart[i + 1]
+	private final int[] childStart;
+	private final int rootCount;
+	// node ids plus 1, with 0 marking empty slots
+	private final int[] table;
+
+	private FlatEntryTree(Entry<?>[] entries, Object[] values, int[] childStart, int rootCount) {
+		this.entries = entries;
+		this.values = values;
+		this.childStart = childStart;
+		this.rootCount = rootCount;
+		this.table = new int[Integer.highestOneBit(Math.max(entries.length, 1)) << 2];
+
+		int mask = table.length - 1;
+
+		for (int id = 0; id < entries.length; id++) {
+			int slot = spread(entries[id].hashCode()) & mask;
+
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+
+			table[slot] = id + 1;
+		}
+	}
+
+	/**
+	 * Copies a tree into a flat tree, keeping its structure, including nodes without a value.
+	 */
+	public static <T> FlatEntryTree<T> copyOf(EntryTree<T> tree) {
+		if (tree instanceof FlatEntryTree<T> flatTree) {
+			return flatTree;
+		}
+
+		List<EntryTreeNode<T>> nodes = new ArrayList<>(tree.getRootNodes().toList());
+		int rootCount = nodes.size();
+		int[] childStart = new int[Math.max(rootCount, 16)];
+
+		for (int id = 0; id < nodes.size(); id++) {
+			if (id + 1 >= childStart.length) {
+				childStart = Arrays.copyOf(childStart, childStart.length * 2);
+			}
+
+			childStart[id] = nodes.size();
+			nodes.addAll(nodes.get(id).getChildNodes());
+		}
+
+		int size = nodes.size();
+		childStart = Arrays.copyOf(childStart, size + 1);
+		childStart[size] = size;
+
+		Entry<?>[] entries = new Entry<?>[size];
+		Object[] values = new Object[size];
+
+		for (int id = 0; id < size; id++) {
+			EntryTreeNode<T> node = nodes.get(id);
+			entries[id] = node.getEntry();
+			values[id] = node.getValue();
+		}
+
+		return new FlatEntryTree<>(entries, values, childStart, rootCount);
+	}
+
+	@Override
+	public void insert(Entry<?> entry, T value) {
+		throw new UnsupportedOperationException("Flat entry trees are immutable");
+	}
+
+	@Override
+	public T remove(Entry<?> entry) {
+		throw new UnsupportedOperationException("Flat entry trees are immutable");
+	}
+
+	@Override
+	@Nullable
+	public T get(Entry<?> entry) {
+		int id = indexOf(entry);
+		return id != -1 ? value(id) : null;
+	}
+
+	@Override
+	public Collection<Entry<?>> getChildren(Entry<?> entry) {
+		int id = indexOf(entry);
+
+		if (id == -1) {
+			return Collections.emptyList();
+		}
+
+		return entries(childStart[id], childStart[id + 1]);
+	}
+
+	@Override
+	public Collection<Entry<?>> getSiblings(Entry<?> entry) {
+		Entry<?> parent = entry.getParent();
+		Collection<Entry<?>> generation = parent == null ? entries(0, rootCount) : getChildren(parent);
+
+		List<Entry<?>> siblings = new ArrayList<>(generation);
+		siblings.remove(entry);
+		return siblings;
+	}
+
+	@Override
+	@Nullable
+	public EntryTreeNode<T> findNode(Entry<?> entry) {
+		int id = indexOf(entry);
+		return id != -1 ? new Node(id) : null;
+	}
+
+	@Override
+	public Stream<EntryTreeNode<T>> getRootNodes() {
+		return IntStream.range(0, rootCount).mapToObj(Node::new);
+	}
+
+	@Override
+	public Stream<Entry<?>> getAllEntries() {
+		return IntStream.range(0, entries.length).filter(id -> values[id] != null).mapToObj(id -> entries[id]);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return entries.length == 0;
+	}
+
+	@Override
+	@Nonnull
+	public Iterator<EntryTreeNode<T>> iterator() {
+		return IntStream.range(0, entries.length).<EntryTreeNode<T>>mapToObj(Node::new).iterator();
+	}
+
+	@Override
+	public FlatEntryTree<T> translate(Translator translator, EntryResolver resolver, EntryMap<EntryMapping> mappings) {
+		HashEntryTree<T> translatedTree = new HashEntryTree<>();
+
+		for (int id = 0; id < entries.length; id++) {
+			translatedTree.insert(translator.translate(entries[id]), value(id));
+		}
+
+		return copyOf(translatedTree);
+	}
+
+	private int indexOf(Entry<?> entry) {
+		int mask = table.length - 1;
+
+		for (int slot = spread(entry.hashCode()) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+			int id = table[slot] - 1;
+
+			if (entries[id].equals(entry)) {
+				return id;
+			}
+		}
+
+		return -1;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T value(int id) {
+		return (T) values[id];
+	}
+
+	private List<Entry<?>> entries(int from, int to) {
+		return Collections.unmodifiableList(Arrays.asList(entries).subList(from, to));
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private final class Node implements EntryTreeNode<T> {
+		private final int id;
+
+		Node(int id) {
+			this.id = id;
+		}
+
+		@Override
+		@Nullable
+		public T getValue() {
+			return value(id);
+		}
+
+		@Override
+		public Entry<?> getEntry() {
+			return entries[id];
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return values[id] == null && childStart[id] == childStart[id + 1];
+		}
+
+		@Override
+		public Collection<Entry<?>> getChildren() {
+			return entries(childStart[id], childStart[id + 1]);
+		}
+
+		@Override
+		public Collection<? extends EntryTreeNode<T>> getChildNodes() {
+			return IntStream.range(childStart[id], childStart[id + 1]).mapToObj(Node::new).toList();
+		}
+	}
+}
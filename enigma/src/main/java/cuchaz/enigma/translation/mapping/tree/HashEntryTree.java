@@ -6,7 +6,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
@@ -36,26 +35,26 @@ public class HashEntryTree<T> implements EntryTree<T> {
 
 	@Override
 	public void insert(Entry<?> entry, T value) {
-		List<HashTreeNode<T>> path = computePath(entry, true);
-		path.get(path.size() - 1).putValue(value);
-
 		if (value == null) {
-			removeDeadAlong(path);
+			remove(entry);
+			return;
 		}
+
+		computeNode(entry).putValue(value);
 	}
 
 	@Override
 	@Nullable
 	public T remove(Entry<?> entry) {
-		List<HashTreeNode<T>> path = computePath(entry, false);
+		HashTreeNode<T> node = findNode(entry);
 
-		if (path.isEmpty()) {
+		if (node == null) {
 			return null;
 		}
 
-		T value = path.get(path.size() - 1).removeValue();
+		T value = node.removeValue();
 
-		removeDeadAlong(path);
+		removeDeadAlong(entry, node);
 
 		return value;
 	}
@@ -108,71 +107,41 @@ public class HashEntryTree<T> implements EntryTree<T> {
 	@Override
 	@Nullable
 	public HashTreeNode<T> findNode(Entry<?> target) {
-		List<Entry<?>> parentChain = target.getAncestry();
-
-		if (parentChain.isEmpty()) {
-			return null;
-		}
+		// walks up the parents recursively rather than through getAncestry(), as lookups are hot and shouldn't allocate
+		Entry<?> parent = target.getParent();
 
-		HashTreeNode<T> node = root.get(parentChain.get(0));
-
-		for (int i = 1; i < parentChain.size(); i++) {
-			if (node == null) {
-				return null;
-			}
-
-			node = node.getChild(parentChain.get(i));
+		if (parent == null) {
+			return root.get(target);
 		}
 
-		return node;
+		HashTreeNode<T> parentNode = findNode(parent);
+		return parentNode != null ? parentNode.getChild(target) : null;
 	}
 
-	private List<HashTreeNode<T>> computePath(Entry<?> target, boolean make) {
-		List<Entry<?>> ancestry = target.getAncestry();
+	private HashTreeNode<T> computeNode(Entry<?> target) {
+		Entry<?> parent = target.getParent();
 
-		if (ancestry.isEmpty()) {
-			return Collections.emptyList();
-		}
-
-		List<HashTreeNode<T>> path = new ArrayList<>(ancestry.size());
-
-		Entry<?> rootEntry = ancestry.get(0);
-		HashTreeNode<T> node = make ? root.computeIfAbsent(rootEntry, HashTreeNode::new) : root.get(rootEntry);
-
-		if (node == null) {
-			return Collections.emptyList();
+		if (parent == null) {
+			return root.computeIfAbsent(target, HashTreeNode::new);
 		}
 
-		path.add(node);
+		return computeNode(parent).computeChild(target);
+	}
 
-		for (int i = 1; i < ancestry.size(); i++) {
-			Entry<?> ancestor = ancestry.get(i);
-			node = make ? node.computeChild(ancestor) : node.getChild(ancestor);
+	private void removeDeadAlong(Entry<?> entry, HashTreeNode<T> node) {
+		while (node.isEmpty()) {
+			Entry<?> parent = entry.getParent();
 
-			if (node == null) {
-				return Collections.emptyList();
+			if (parent == null) {
+				root.remove(entry);
+				return;
 			}
 
-			path.add(node);
-		}
-
-		return path;
-	}
-
-	private void removeDeadAlong(List<HashTreeNode<T>> path) {
-		for (int i = path.size() - 1; i >= 0; i--) {
-			HashTreeNode<T> node = path.get(i);
+			HashTreeNode<T> parentNode = findNode(parent);
+			parentNode.remove(entry);
 
-			if (node.isEmpty()) {
-				if (i > 0) {
-					HashTreeNode<T> parentNode = path.get(i - 1);
-					parentNode.remove(node.getEntry());
-				} else {
-					root.remove(node.getEntry());
-				}
-			} else {
-				break;
-			}
+			entry = parent;
+			node = parentNode;
 		}
 	}
 
@@ -0,0 +1,193 @@
+package cuchaz.enigma.translation.mapping.tree;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.mapping.EntryMap;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryResolver;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+/**
+ * An entry tree that loads the subtree of a top-level class the first time anything below the class is accessed.
+ *
+ * <p>The tree starts out with an index of the top-level classes it can load, along with the values of the classes
+ * themselves, so that looking up a top-level class doesn't load its members. Everything else that touches a
+ * top-level class, including inserting below it, loads its subtree first. Going over the whole tree, like
+ * {@link #iterator()}, {@link #getAllEntries()} and {@link #getRootNodes()} do, loads every class that is left.
+ *
+ * <p>The tree is safe to use from several threads. Loaded classes are kept in a {@link ConcurrentEntryTree}, so
+ * reading them never blocks, while loading a class holds the lock of the tree until the class is complete.
+ */
+public class LazyEntryTree<T> implements EntryTree<T> {
+	private final ConcurrentEntryTree<T> tree = new ConcurrentEntryTree<>();
+	// the values are optional as classes don't need to have one
+	private final Map<Entry<?>, Optional<T>> unloadedRoots = new ConcurrentHashMap<>();
+	private final RootLoader<T> loader;
+
+	/**
+	 * Creates a tree of top-level classes that haven't been loaded yet.
+	 *
+	 * @param roots the top-level classes the loader can load, each with its value, which may be {@code null}
+	 * @param loader the loader inserting the subtree of a top-level class
+	 */
+	public LazyEntryTree(Map<ClassEntry, T> roots, RootLoader<T> loader) {
+		roots.forEach((root, value) -> this.unloadedRoots.put(root, Optional.ofNullable(value)));
+		this.loader = loader;
+	}
+
+	@Override
+	public void insert(Entry<?> entry, T value) {
+		load(entry);
+		tree.insert(entry, value);
+	}
+
+	@Override
+	@Nullable
+	public T remove(Entry<?> entry) {
+		load(entry);
+		return tree.remove(entry);
+	}
+
+	@Override
+	@Nullable
+	public T get(Entry<?> entry) {
+		if (entry.getParent() == null) {
+			Optional<T> value = unloadedRoots.get(entry);
+
+			if (value != null) {
+				return value.orElse(null);
+			}
+		}
+
+		load(entry);
+		return tree.get(entry);
+	}
+
+	@Override
+	public Collection<Entry<?>> getChildren(Entry<?> entry) {
+		load(entry);
+		return tree.getChildren(entry);
+	}
+
+	@Override
+	public Collection<Entry<?>> getSiblings(Entry<?> entry) {
+		if (entry.getParent() == null) {
+			loadAll();
+		} else {
+			load(entry);
+		}
+
+		return tree.getSiblings(entry);
+	}
+
+	@Override
+	@Nullable
+	public EntryTreeNode<T> findNode(Entry<?> entry) {
+		load(entry);
+		return tree.findNode(entry);
+	}
+
+	@Override
+	public Stream<EntryTreeNode<T>> getRootNodes() {
+		loadAll();
+		return tree.getRootNodes();
+	}
+
+	@Override
+	public Stream<Entry<?>> getAllEntries() {
+		loadAll();
+		return tree.getAllEntries();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return unloadedRoots.isEmpty() && tree.isEmpty();
+	}
+
+	@Override
+	@Nonnull
+	public Iterator<EntryTreeNode<T>> iterator() {
+		loadAll();
+		return tree.iterator();
+	}
+
+	@Override
+	public ConcurrentEntryTree<T> translate(Translator translator, EntryResolver resolver, EntryMap<EntryMapping> mappings) {
+		loadAll();
+		return tree.translate(translator, resolver, mappings);
+	}
+
+	/**
+	 * Checks whether the subtree of a top-level class has been loaded. Classes the tree can't load count as loaded.
+	 */
+	public boolean isLoaded(ClassEntry root) {
+		return !unloadedRoots.containsKey(root);
+	}
+
+	private void load(Entry<?> entry) {
+		if (unloadedRoots.isEmpty()) {
+			return;
+		}
+
+		Entry<?> root = entry;
+
+		while (root.getParent() != null) {
+			root = root.getParent();
+		}
+
+		if (root instanceof ClassEntry classEntry && unloadedRoots.containsKey(classEntry)) {
+			loadRoot(classEntry);
+		}
+	}
+
+	private synchronized void loadRoot(ClassEntry root) {
+		// another thread may have loaded the class while this one was waiting
+		if (!unloadedRoots.containsKey(root)) {
+			return;
+		}
+
+		// load into a tree of its own first, so that the class is published at once
+		HashEntryTree<T> loaded = new HashEntryTree<>();
+
+		try {
+			loader.load(root, loaded);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to load mappings of " + root.getFullName(), e);
+		}
+
+		tree.insertAll(loaded);
+
+		// only mark the class as loaded once it is published, so that readers of the class wait for it
+		unloadedRoots.remove(root);
+	}
+
+	private synchronized void loadAll() {
+		for (Entry<?> root : List.copyOf(unloadedRoots.keySet())) {
+			load(root);
+		}
+	}
+
+	@FunctionalInterface
+	public interface RootLoader<T> {
+		/**
+		 * Loads the subtree of a top-level class.
+		 *
+		 * @param root the top-level class
+		 * @param tree the tree to insert the class and everything below it into
+		 */
+		void load(ClassEntry root, EntryTree<T> tree) throws IOException;
+	}
+}
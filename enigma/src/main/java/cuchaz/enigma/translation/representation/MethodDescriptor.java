@@ -13,7 +13,6 @@ package cuchaz.enigma.translation.representation;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 import java.util.function.Function;
 
 import com.google.common.collect.Lists;
@@ -103,7 +102,8 @@ public class MethodDescriptor implements Translatable {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(this.argumentDescs.hashCode(), this.returnDesc.hashCode());
+		// same as Objects.hash(argumentDescs.hashCode(), returnDesc.hashCode()), without the varargs array and boxing
+		return 31 * (31 + this.argumentDescs.hashCode()) + this.returnDesc.hashCode();
 	}
 
 	public boolean hasClass(ClassEntry classEntry) {
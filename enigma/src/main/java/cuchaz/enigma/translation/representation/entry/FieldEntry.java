@@ -71,7 +71,8 @@ public class FieldEntry extends ParentedEntry<ClassEntry> implements Comparable<
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(this.parent, this.name, this.desc);
+		// same as Objects.hash(parent, name, desc), without the varargs array
+		return 31 * (31 * (31 + Objects.hashCode(this.parent)) + Objects.hashCode(this.name)) + Objects.hashCode(this.desc);
 	}
 
 	@Override
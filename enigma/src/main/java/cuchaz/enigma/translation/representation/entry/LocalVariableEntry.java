@@ -67,7 +67,8 @@ public class LocalVariableEntry extends ParentedEntry<MethodEntry> implements Co
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(this.parent, this.index);
+		// same as Objects.hash(parent, index), without the varargs array and boxing
+		return 31 * (31 + Objects.hashCode(this.parent)) + this.index;
 	}
 
 	@Override
@@ -75,7 +75,8 @@ public class MethodEntry extends ParentedEntry<ClassEntry> implements Comparable
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(this.parent, this.name, this.descriptor);
+		// same as Objects.hash(parent, name, descriptor), without the varargs array
+		return 31 * (31 * (31 + Objects.hashCode(this.parent)) + Objects.hashCode(this.name)) + Objects.hashCode(this.descriptor);
 	}
 
 	@Override
@@ -12,7 +12,11 @@ public class AsmUtil {
 	}
 
 	public static ClassNode bytesToNode(byte[] bytes) {
-		ClassReader r = new ClassReader(bytes);
+		return bytesToNode(bytes, 0, bytes.length);
+	}
+
+	public static ClassNode bytesToNode(byte[] bytes, int offset, int length) {
+		ClassReader r = new ClassReader(bytes, offset, length);
 		ClassNode node = new ClassNode();
 		r.accept(node, 0);
 		return node;
@@ -0,0 +1,80 @@
+package cuchaz.enigma;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+
+import com.google.common.cache.CacheStats;
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import cuchaz.enigma.classprovider.CachingClassProvider;
+import cuchaz.enigma.classprovider.ClassProvider;
+import cuchaz.enigma.classprovider.JarClassProvider;
+
+public class TestCachingClassProvider {
+	public static final Path JAR = Paths.get("build/test-obf/translation.jar");
+
+	@Test
+	public void countsHitsAndMisses() throws Exception {
+		CachingClassProvider classProvider = new CachingClassProvider(new JarClassProvider(JAR));
+		String name = classProvider.getClassNames().iterator().next();
+
+		ClassNode node = classProvider.get(name);
+		assertSame(node, classProvider.get(name));
+		classProvider.getClassBytes(name);
+
+		CacheStats stats = classProvider.getStats();
+		assertEquals(1, stats.hitCount());
+		assertEquals(2, stats.missCount());
+	}
+
+	@Test
+	public void evictsOverBudget() throws Exception {
+		JarClassProvider jcp = new JarClassProvider(JAR);
+		CachingClassProvider classProvider = new CachingClassProvider(jcp, 1024);
+
+		for (String name : jcp.getClassNames()) {
+			classProvider.get(name);
+		}
+
+		assertTrue(classProvider.getStats().evictionCount() > 0);
+	}
+
+	@Test
+	public void cachesClassesHeavierThanAStripeShare() {
+		ClassNode heavy = new ClassNode();
+		MethodNode method = new MethodNode();
+
+		for (int i = 0; i < 20000; i++) {
+			method.instructions.add(new InsnNode(Opcodes.NOP));
+		}
+
+		heavy.methods.add(method);
+
+		// the class weighs about 1 MiB, more than a sixteenth of the budget
+		CachingClassProvider classProvider = new CachingClassProvider(new ClassProvider() {
+			@Override
+			public Collection<String> getClassNames() {
+				return List.of("a");
+			}
+
+			@Override
+			public ClassNode get(String name) {
+				return heavy;
+			}
+		}, 8L << 20);
+
+		classProvider.get("a");
+		classProvider.get("a");
+		assertEquals(1, classProvider.getStats().hitCount());
+	}
+}
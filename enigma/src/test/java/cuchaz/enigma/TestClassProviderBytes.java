@@ -0,0 +1,53 @@
+package cuchaz.enigma;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+import org.objectweb.asm.tree.ClassNode;
+
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.classprovider.CachingClassProvider;
+import cuchaz.enigma.classprovider.ClasspathClassProvider;
+import cuchaz.enigma.classprovider.CombiningClassProvider;
+import cuchaz.enigma.classprovider.JarClassProvider;
+import cuchaz.enigma.classprovider.ObfuscationFixClassProvider;
+import cuchaz.enigma.utils.AsmUtil;
+
+public class TestClassProviderBytes {
+	public static final Path JAR = Paths.get("build/test-obf/translation.jar");
+
+	@Test
+	public void jarBytesMatchNodes() throws Exception {
+		JarClassProvider jcp = new JarClassProvider(JAR);
+
+		for (String name : jcp.getClassNames()) {
+			ClassNode node = AsmUtil.bytesToNode(jcp.getClassBytes(name));
+			assertEquals(name, node.name);
+			assertEquals(jcp.get(name).methods.size(), node.methods.size());
+		}
+
+		assertNull(jcp.getClassBytes("does/not/Exist"));
+	}
+
+	@Test
+	public void obfuscationFixBytes() throws Exception {
+		JarClassProvider jcp = new JarClassProvider(JAR);
+		CachingClassProvider classProvider = new CachingClassProvider(new CombiningClassProvider(jcp, new ClasspathClassProvider()));
+		JarIndex index = JarIndex.empty();
+		index.indexJar(jcp.getClassNames(), classProvider, ProgressListener.none());
+
+		ObfuscationFixClassProvider fixProvider = new ObfuscationFixClassProvider(classProvider, index);
+
+		for (String name : jcp.getClassNames()) {
+			assertArrayEquals(AsmUtil.nodeToBytes(fixProvider.get(name)), fixProvider.getClassBytes(name));
+		}
+
+		// library classes are passed through as-is
+		assertArrayEquals(classProvider.getClassBytes("java/lang/Object"), fixProvider.getClassBytes("java/lang/Object"));
+	}
+}
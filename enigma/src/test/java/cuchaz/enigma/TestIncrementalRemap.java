@@ -0,0 +1,77 @@
+package cuchaz.enigma;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import cuchaz.enigma.classprovider.ClasspathClassProvider;
+import cuchaz.enigma.source.DecompiledClassSource;
+import cuchaz.enigma.source.Decompiler;
+import cuchaz.enigma.source.Decompilers;
+import cuchaz.enigma.source.SourceIndex;
+import cuchaz.enigma.source.SourceSettings;
+import cuchaz.enigma.source.Token;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.validation.ValidationContext;
+
+public class TestIncrementalRemap {
+	public static final Path JAR = Paths.get("build/test-obf/translation.jar");
+
+	@Test
+	public void incrementalRemapMatchesFullRemap() throws IOException {
+		EnigmaProject project = Enigma.create().openJar(JAR, new ClasspathClassProvider(), ProgressListener.none());
+		Decompiler decompiler = Decompilers.CFR.create(project.getClassProvider(), new SourceSettings(false, false));
+		int renames = 0;
+
+		for (ClassEntry classEntry : project.getJarIndex().getEntryIndex().getClasses()) {
+			if (classEntry.isInnerClass()) {
+				continue;
+			}
+
+			SourceIndex index = decompiler.getSource(classEntry.getFullName(), null).index();
+			index.resolveReferences(project.getMapper().getObfResolver());
+			DecompiledClassSource source = new DecompiledClassSource(classEntry, index).remapSource(project, project.getMapper().getDeobfuscator());
+
+			for (Entry<?> declaration : declarations(index)) {
+				if ((declaration instanceof MethodEntry method && method.isConstructor()) || !project.isRenamable(declaration)) {
+					continue;
+				}
+
+				ValidationContext vc = new ValidationContext();
+				project.getMapper().putMapping(vc, declaration, new EntryMapping("renamed" + renames++));
+
+				if (!vc.canProceed()) {
+					continue;
+				}
+
+				source = source.remapEntries(project, project.getMapper().getDeobfuscator(), project.getMapper().getObfResolver().resolveEquivalentEntries(declaration));
+				DecompiledClassSource expected = new DecompiledClassSource(classEntry, index).remapSource(project, project.getMapper().getDeobfuscator());
+
+				assertEquals(expected.toString(), source.toString());
+				assertEquals(tokens(expected.getIndex().referenceTokens()), tokens(source.getIndex().referenceTokens()));
+				assertEquals(expected.getHighlightedTokens(), source.getHighlightedTokens());
+			}
+		}
+	}
+
+	private static List<Entry<?>> declarations(SourceIndex index) {
+		List<Entry<?>> list = new ArrayList<>();
+		index.declarations().forEach(list::add);
+		return list;
+	}
+
+	private static List<String> tokens(Iterable<Token> tokens) {
+		List<String> list = new ArrayList<>();
+		tokens.forEach(token -> list.add(token + token.text));
+		return list;
+	}
+}
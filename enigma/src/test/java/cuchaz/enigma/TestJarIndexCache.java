@@ -0,0 +1,92 @@
+package cuchaz.enigma;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.analysis.index.JarIndexCache;
+import cuchaz.enigma.classprovider.CachingClassProvider;
+import cuchaz.enigma.classprovider.JarClassProvider;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.Utils;
+
+public class TestJarIndexCache {
+	public static final Path JAR = Paths.get("build/test-obf/translation.jar");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void loadMatchesIndex() throws Exception {
+		JarIndexCache cache = new JarIndexCache(folder.getRoot().toPath());
+		byte[] checksum = Utils.zipSha1(JAR);
+
+		assertNull(cache.load(checksum, ProgressListener.none()));
+
+		JarClassProvider jcp = new JarClassProvider(JAR);
+		JarIndex indexed = JarIndex.empty();
+		cache.indexAndStore(checksum, indexed, jcp.getClassNames(), new CachingClassProvider(jcp), ProgressListener.none(), 2);
+
+		JarIndex loaded = cache.load(checksum, ProgressListener.none());
+		assertNotNull(loaded);
+
+		assertEquals(new ArrayList<>(indexed.getEntryIndex().getClasses()), new ArrayList<>(loaded.getEntryIndex().getClasses()));
+		assertEquals(new ArrayList<>(indexed.getEntryIndex().getMethods()), new ArrayList<>(loaded.getEntryIndex().getMethods()));
+		assertEquals(new ArrayList<>(indexed.getEntryIndex().getFields()), new ArrayList<>(loaded.getEntryIndex().getFields()));
+		assertEquals(indexed.getChildrenByClass(), loaded.getChildrenByClass());
+		assertEquals(indexed.getBridgeMethodIndex().getBridgeToSpecialized(), loaded.getBridgeMethodIndex().getBridgeToSpecialized());
+
+		for (ClassEntry classEntry : indexed.getEntryIndex().getClasses()) {
+			assertEquals(indexed.getEntryIndex().getClassAccess(classEntry), loaded.getEntryIndex().getClassAccess(classEntry));
+			assertEquals(indexed.getInheritanceIndex().getParents(classEntry), loaded.getInheritanceIndex().getParents(classEntry));
+			assertEquals(indexed.getReferenceIndex().getReferencesToClass(classEntry), loaded.getReferenceIndex().getReferencesToClass(classEntry));
+			assertEquals(indexed.isIndexed(classEntry.getFullName()), loaded.isIndexed(classEntry.getFullName()));
+		}
+
+		for (MethodEntry methodEntry : indexed.getEntryIndex().getMethods()) {
+			assertEquals(indexed.getEntryIndex().getMethodAccess(methodEntry), loaded.getEntryIndex().getMethodAccess(methodEntry));
+			assertEquals(indexed.getReferenceIndex().getReferencesToMethod(methodEntry), loaded.getReferenceIndex().getReferencesToMethod(methodEntry));
+		}
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedIndexes() throws Exception {
+		Path directory = folder.getRoot().toPath();
+		Path recent = directory.resolve("01-recent.index");
+		Path older = directory.resolve("02-older.index");
+		Path unused = directory.resolve("03-unused.index");
+		Files.write(recent, new byte[100]);
+		Files.write(older, new byte[100]);
+		Files.write(unused, new byte[100]);
+
+		Instant now = Instant.now();
+		Files.setLastModifiedTime(older, FileTime.from(now.minus(Duration.ofDays(1))));
+		Files.setLastModifiedTime(unused, FileTime.from(now.minus(Duration.ofDays(100))));
+
+		JarIndexCache cache = new JarIndexCache(directory);
+		cache.evict(1000, Duration.ofDays(30));
+		assertTrue(Files.exists(recent));
+		assertTrue(Files.exists(older));
+		assertFalse(Files.exists(unused));
+
+		cache.evict(150, Duration.ofDays(30));
+		assertTrue(Files.exists(recent));
+		assertFalse(Files.exists(older));
+	}
+}
@@ -21,6 +21,7 @@ import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -33,10 +34,12 @@ import cuchaz.enigma.analysis.EntryReference;
 import cuchaz.enigma.analysis.index.EntryIndex;
 import cuchaz.enigma.analysis.index.InheritanceIndex;
 import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.analysis.index.MethodEquivalenceIndex;
 import cuchaz.enigma.classprovider.CachingClassProvider;
 import cuchaz.enigma.classprovider.JarClassProvider;
 import cuchaz.enigma.translation.mapping.EntryResolver;
 import cuchaz.enigma.translation.mapping.IndexEntryResolver;
+import cuchaz.enigma.translation.mapping.ResolutionStrategy;
 import cuchaz.enigma.translation.representation.AccessFlags;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
@@ -120,6 +123,36 @@ public class TestJarIndexInheritanceTree {
 		assertThat(entries, containsInAnyOrder(newMethod(subClassB, "b", "()V")));
 	}
 
+	@Test
+	public void methodEquivalenceGroups() {
+		MethodEquivalenceIndex equivalenceIndex = index.getMethodEquivalenceIndex();
+		int doBaseThings = equivalenceIndex.getGroup(newMethod(baseClass, "a", "()V"));
+
+		assertThat(equivalenceIndex.getGroup(newMethod(subClassAA, "a", "()V")), is(doBaseThings));
+		assertThat(equivalenceIndex.getGroup(newMethod(subClassB, "a", "()V")), is(doBaseThings));
+		assertThat(equivalenceIndex.getGroup(newMethod(baseClass, "a", "()Ljava/lang/String;")), not(doBaseThings));
+		assertThat(equivalenceIndex.getGroup(newMethod(subClassB, "b", "()V")), not(doBaseThings));
+		assertThat(equivalenceIndex.getGroupMethods(doBaseThings), containsInAnyOrder(newMethod(baseClass, "a", "()V"), newMethod(subClassAA, "a", "()V"), newMethod(subClassB, "a", "()V")));
+
+		assertThat(equivalenceIndex.getGroup(newMethod(baseClass, "z", "()V")), is(-1));
+	}
+
+	@Test
+	public void cachedResolutions() {
+		IndexEntryResolver resolver = new IndexEntryResolver(index);
+		MethodEntry getName = newMethod(baseClass, "a", "()Ljava/lang/String;");
+		MethodEntry overriddenGetName = newMethod(subClassAA, "a", "()Ljava/lang/String;");
+
+		assertThat(resolver.resolveEntry(overriddenGetName, ResolutionStrategy.RESOLVE_ROOT), contains(getName));
+		assertThat(resolver.resolveEntry(overriddenGetName, ResolutionStrategy.RESOLVE_ROOT), contains(getName));
+		assertThat(resolver.getResolutionStats().hitCount(), is(1L));
+
+		// callers own the returned sets
+		resolver.resolveEquivalentMethods(getName).clear();
+		assertThat(resolver.resolveEquivalentMethods(overriddenGetName), containsInAnyOrder(getName, overriddenGetName));
+		assertThat(resolver.resolveEquivalentMethods(getName), containsInAnyOrder(getName, overriddenGetName));
+	}
+
 	@Test
 	@SuppressWarnings("unchecked")
 	public void fieldReferences() {
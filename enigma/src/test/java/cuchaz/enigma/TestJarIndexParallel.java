@@ -0,0 +1,66 @@
+package cuchaz.enigma;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import cuchaz.enigma.analysis.index.EntryIndex;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.classprovider.CachingClassProvider;
+import cuchaz.enigma.classprovider.JarClassProvider;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+public class TestJarIndexParallel {
+	public static final Path JAR = Paths.get("build/test-obf/translation.jar");
+
+	private static JarIndex index(int parallelism) throws Exception {
+		JarClassProvider jcp = new JarClassProvider(JAR);
+		JarIndex index = JarIndex.empty();
+		index.indexJar(jcp.getClassNames(), new CachingClassProvider(jcp), ProgressListener.none(), parallelism);
+		return index;
+	}
+
+	@Test
+	public void parallelMatchesSequential() throws Exception {
+		JarIndex sequential = index(1);
+		JarIndex parallel = index(4);
+
+		EntryIndex sequentialEntries = sequential.getEntryIndex();
+		EntryIndex parallelEntries = parallel.getEntryIndex();
+		assertEquals(new ArrayList<>(sequentialEntries.getClasses()), new ArrayList<>(parallelEntries.getClasses()));
+		assertEquals(new ArrayList<>(sequentialEntries.getMethods()), new ArrayList<>(parallelEntries.getMethods()));
+		assertEquals(new ArrayList<>(sequentialEntries.getFields()), new ArrayList<>(parallelEntries.getFields()));
+
+		for (ClassEntry classEntry : sequentialEntries.getClasses()) {
+			assertEquals(sequentialEntries.getClassAccess(classEntry), parallelEntries.getClassAccess(classEntry));
+			assertEquals(list(sequential.getInheritanceIndex().getParents(classEntry)), list(parallel.getInheritanceIndex().getParents(classEntry)));
+			assertEquals(list(sequential.getReferenceIndex().getReferencesToClass(classEntry)), list(parallel.getReferenceIndex().getReferencesToClass(classEntry)));
+			assertEquals(sequential.getChildrenByClass().get(classEntry), parallel.getChildrenByClass().get(classEntry));
+		}
+
+		for (MethodEntry methodEntry : sequentialEntries.getMethods()) {
+			assertEquals(list(sequential.getReferenceIndex().getReferencesToMethod(methodEntry)), list(parallel.getReferenceIndex().getReferencesToMethod(methodEntry)));
+			assertEquals(list(sequential.getReferenceIndex().getMethodsReferencedBy(methodEntry)), list(parallel.getReferenceIndex().getMethodsReferencedBy(methodEntry)));
+		}
+
+		for (FieldEntry fieldEntry : sequentialEntries.getFields()) {
+			assertEquals(list(sequential.getReferenceIndex().getReferencesToField(fieldEntry)), list(parallel.getReferenceIndex().getReferencesToField(fieldEntry)));
+		}
+
+		assertEquals(sequential.getBridgeMethodIndex().getBridgeToSpecialized(), parallel.getBridgeMethodIndex().getBridgeToSpecialized());
+		assertEquals(list(sequential.getPackageVisibilityIndex().getPartitions()), list(parallel.getPackageVisibilityIndex().getPartitions()));
+	}
+
+	private static <T> List<T> list(Iterable<T> iterable) {
+		List<T> list = new ArrayList<>();
+		iterable.forEach(list::add);
+		return list;
+	}
+}
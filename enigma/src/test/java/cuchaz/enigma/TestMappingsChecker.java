@@ -0,0 +1,80 @@
+package cuchaz.enigma;
+
+import static cuchaz.enigma.TestEntryFactory.newClass;
+import static cuchaz.enigma.TestEntryFactory.newField;
+import static cuchaz.enigma.TestEntryFactory.newMethod;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.classprovider.CachingClassProvider;
+import cuchaz.enigma.classprovider.JarClassProvider;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.MappingsChecker;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+public class TestMappingsChecker {
+	public static final Path JAR = Paths.get("build/test-obf/inheritanceTree.jar");
+
+	private final ClassEntry baseClass = newClass("a");
+	private final ClassEntry subClassAA = newClass("d");
+	private final FieldEntry nameField = newField(baseClass, "a", "Ljava/lang/String;");
+	private final MethodEntry getName = newMethod(baseClass, "a", "()Ljava/lang/String;");
+	private final MethodEntry overriddenGetName = newMethod(subClassAA, "a", "()Ljava/lang/String;");
+	private final ClassEntry missingClass = newClass("zz");
+	private final FieldEntry missingField = newField(baseClass, "zz", "I");
+
+	@Test
+	public void dropsBrokenMappings() throws Exception {
+		JarClassProvider jcp = new JarClassProvider(JAR);
+		JarIndex index = JarIndex.empty();
+		index.indexJar(jcp.getClassNames(), new CachingClassProvider(jcp), ProgressListener.none());
+
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(baseClass, new EntryMapping("Base"));
+		mappings.insert(nameField, new EntryMapping("name"));
+		mappings.insert(getName, new EntryMapping("getName"));
+		mappings.insert(overriddenGetName, new EntryMapping("getName"));
+		mappings.insert(missingClass, new EntryMapping("Missing"));
+		mappings.insert(missingField, new EntryMapping("missing"));
+
+		List<Integer> steps = new ArrayList<>();
+		MappingsChecker.Dropped dropped = new MappingsChecker(index, mappings).dropBrokenMappings(new ProgressListener() {
+			@Override
+			public void init(int totalWork, String title) {
+			}
+
+			@Override
+			public void step(int numDone, String message) {
+				steps.add(numDone);
+			}
+		});
+
+		Map<Entry<?>, String> droppedMappings = dropped.getDroppedMappings();
+		assertEquals(Set.of(overriddenGetName, missingClass, missingField), droppedMappings.keySet());
+		assertEquals("Missing", droppedMappings.get(missingClass));
+		assertEquals(IntStream.range(0, 6).boxed().toList(), steps);
+
+		assertNull(mappings.get(overriddenGetName));
+		assertNull(mappings.findNode(missingClass));
+		assertNull(mappings.get(missingField));
+		assertEquals("Base", mappings.get(baseClass).targetName());
+		assertEquals("name", mappings.get(nameField).targetName());
+		assertEquals("getName", mappings.get(getName).targetName());
+	}
+}
@@ -0,0 +1,161 @@
+package cuchaz.enigma;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cuchaz.enigma.analysis.EntryReference;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.classprovider.CachingClassProvider;
+import cuchaz.enigma.classprovider.JarClassProvider;
+import cuchaz.enigma.source.Decompiler;
+import cuchaz.enigma.source.Decompilers;
+import cuchaz.enigma.source.Source;
+import cuchaz.enigma.source.SourceCache;
+import cuchaz.enigma.source.SourceIndex;
+import cuchaz.enigma.source.SourceSettings;
+import cuchaz.enigma.source.Token;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.utils.Utils;
+
+public class TestSourceCache {
+	public static final Path JAR = Paths.get("build/test-obf/translation.jar");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void cachedSourceMatchesDecompiled() throws Exception {
+		JarClassProvider jcp = new JarClassProvider(JAR);
+		SourceSettings settings = new SourceSettings(false, false);
+		Decompiler decompiler = Decompilers.CFR.create(new CachingClassProvider(jcp), settings);
+		SourceCache cache = new SourceCache(folder.getRoot().toPath(), Utils.zipSha1(JAR));
+
+		for (String className : jcp.getClassNames()) {
+			SourceIndex decompiled = cache.wrap(decompiler, "test", settings).getSource(className, null).index();
+			SourceIndex cached = cache.wrap(decompiler, "test", settings).getSource(className, null).index();
+			assertNotSame(decompiled, cached);
+
+			assertEquals(decompiled.getSource(), cached.getSource());
+			assertEquals(tokens(decompiled.referenceTokens()), tokens(cached.referenceTokens()));
+
+			for (Token token : decompiled.referenceTokens()) {
+				EntryReference<Entry<?>, Entry<?>> reference = decompiled.getReference(token);
+				assertEquals(reference, cached.getReference(token));
+				assertEquals(reference.isNamed(), cached.getReference(token).isNamed());
+				assertEquals(decompiled.getReferenceTokens(reference), cached.getReferenceTokens(reference));
+			}
+
+			for (Entry<?> declaration : decompiled.declarations()) {
+				assertEquals(decompiled.getDeclarationToken(declaration), cached.getDeclarationToken(declaration));
+			}
+		}
+	}
+
+	@Test
+	public void cachedSourceIsNotDecompiledAgain() {
+		AtomicInteger decompiled = new AtomicInteger();
+		Decompiler decompiler = (className, remapper) -> {
+			decompiled.incrementAndGet();
+			return new TestSource(className);
+		};
+
+		SourceSettings settings = new SourceSettings(false, false);
+		SourceCache cache = new SourceCache(folder.getRoot().toPath(), new byte[] {1});
+		assertEquals("class a {}", cache.wrap(decompiler, "test", settings).getSource("a", null).asString());
+		assertEquals(1, decompiled.get());
+
+		assertEquals("class a {}", cache.wrap(decompiler, "test", settings).getSource("a", null).asString());
+		assertEquals(1, decompiled.get());
+	}
+
+	@Test
+	public void renamedRecordComponentMissesCache() {
+		AtomicInteger decompiled = new AtomicInteger();
+		Decompiler decompiler = (className, remapper) -> {
+			decompiled.incrementAndGet();
+			return new TestSource(className);
+		};
+
+		// record component docs are written into the class javadoc along with the name of the component
+		FieldEntry component = FieldEntry.parse("a", "b", "I");
+		EntryRemapper remapper = EntryRemapper.empty(JarIndex.empty());
+		remapper.getObfToDeobf().insert(component, new EntryMapping("first", "Docs"));
+
+		SourceSettings settings = new SourceSettings(false, false);
+		SourceCache cache = new SourceCache(folder.getRoot().toPath(), new byte[] {1});
+		cache.wrap(decompiler, "test", settings).getSource("a", remapper).index();
+		cache.wrap(decompiler, "test", settings).getSource("a", remapper).index();
+		assertEquals(1, decompiled.get());
+
+		remapper.getObfToDeobf().insert(component, new EntryMapping("second", "Docs"));
+		cache.wrap(decompiler, "test", settings).getSource("a", remapper).index();
+		assertEquals(2, decompiled.get());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedSources() throws Exception {
+		Path directory = folder.getRoot().toPath();
+		Path recent = Files.createDirectories(directory.resolve("01")).resolve("recent.src");
+		Path older = Files.createDirectories(directory.resolve("02")).resolve("older.src");
+		Path unused = directory.resolve("02").resolve("unused.src");
+		Files.write(recent, new byte[100]);
+		Files.write(older, new byte[100]);
+		Files.write(unused, new byte[100]);
+
+		Instant now = Instant.now();
+		Files.setLastModifiedTime(older, FileTime.from(now.minus(Duration.ofDays(1))));
+		Files.setLastModifiedTime(unused, FileTime.from(now.minus(Duration.ofDays(100))));
+
+		SourceCache cache = new SourceCache(directory, new byte[] {1});
+		cache.evict(1000, Duration.ofDays(30));
+		assertTrue(Files.exists(recent));
+		assertTrue(Files.exists(older));
+		assertFalse(Files.exists(unused));
+
+		cache.evict(150, Duration.ofDays(30));
+		assertTrue(Files.exists(recent));
+		assertFalse(Files.exists(older));
+	}
+
+	private static List<Token> tokens(Iterable<Token> tokens) {
+		List<Token> list = new ArrayList<>();
+		tokens.forEach(list::add);
+		return list;
+	}
+
+	private record TestSource(String className) implements Source {
+		@Override
+		public String asString() {
+			return index().getSource();
+		}
+
+		@Override
+		public Source withJavadocs(EntryRemapper remapper) {
+			return this;
+		}
+
+		@Override
+		public SourceIndex index() {
+			return new SourceIndex("class " + className + " {}");
+		}
+	}
+}
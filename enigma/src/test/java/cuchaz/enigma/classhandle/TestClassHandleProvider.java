@@ -0,0 +1,214 @@
+package cuchaz.enigma.classhandle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import cuchaz.enigma.Enigma;
+import cuchaz.enigma.EnigmaProject;
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.classprovider.ClassProvider;
+import cuchaz.enigma.classprovider.ClasspathClassProvider;
+import cuchaz.enigma.events.ClassHandleListener;
+import cuchaz.enigma.source.DecompiledClassSource;
+import cuchaz.enigma.source.DecompilerService;
+import cuchaz.enigma.source.Source;
+import cuchaz.enigma.source.SourceIndex;
+import cuchaz.enigma.source.Token;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.validation.ValidationContext;
+
+public class TestClassHandleProvider {
+	private static final ClassEntry BASE_CLASS = new ClassEntry("cuchaz/enigma/inputs/inheritanceTree/BaseClass");
+	private static final ClassEntry SUBCLASS_A = new ClassEntry("cuchaz/enigma/inputs/inheritanceTree/SubclassA");
+	private static final ClassEntry SUBCLASS_B = new ClassEntry("cuchaz/enigma/inputs/inheritanceTree/SubclassB");
+	private static final ClassEntry SUBSUBCLASS_AA = new ClassEntry("cuchaz/enigma/inputs/inheritanceTree/SubsubclassAA");
+
+	private final EnigmaProject project = createProject();
+	private final Map<ClassEntry, AtomicInteger> decompiles = new ConcurrentHashMap<>();
+	private final Map<ClassEntry, CountDownLatch> blocked = new ConcurrentHashMap<>();
+
+	@Test(timeout = 10000)
+	public void reopeningRetainedClassReusesSource() throws Exception {
+		ClassHandleProvider provider = new ClassHandleProvider(project, decompilerService(), 1, 1 << 20);
+		ClassHandle handle = provider.openClass(BASE_CLASS);
+		DecompiledClassSource source = handle.getSource().get().unwrap();
+		handle.close();
+
+		ClassHandle reopened = provider.openClass(BASE_CLASS);
+		assertSame(source, reopened.getSource().get().unwrap());
+		assertEquals(1, decompiles(BASE_CLASS));
+		provider.destroy();
+	}
+
+	@Test(timeout = 10000)
+	public void reopeningRetainedClassAppliesNewMappings() throws Exception {
+		ClassHandleProvider provider = new ClassHandleProvider(project, decompilerService(), 1, 1 << 20);
+		ClassHandle handle = provider.openClass(BASE_CLASS);
+		handle.getSource().get();
+		handle.close();
+
+		project.getMapper().putMapping(new ValidationContext(), BASE_CLASS, new EntryMapping("cuchaz/enigma/inputs/inheritanceTree/Renamed"));
+		provider.invalidateMapped();
+
+		ClassHandle reopened = provider.openClass(BASE_CLASS);
+		assertEquals("class Renamed {}", awaitSource(reopened, source -> source.contains("Renamed")));
+		assertEquals(1, decompiles(BASE_CLASS));
+		provider.destroy();
+	}
+
+	@Test(timeout = 10000)
+	public void reopeningRetainedClassAppliesNewJavadoc() throws Exception {
+		ClassHandleProvider provider = new ClassHandleProvider(project, decompilerService(), 1, 1 << 20);
+		ClassHandle handle = provider.openClass(BASE_CLASS);
+		handle.getSource().get();
+		handle.close();
+
+		project.getMapper().putMapping(new ValidationContext(), BASE_CLASS, new EntryMapping(null, "Docs"));
+		provider.invalidateJavadoc();
+
+		ClassHandle reopened = provider.openClass(BASE_CLASS);
+		assertEquals("/** Docs */\nclass BaseClass {}", awaitSource(reopened, source -> source.contains("Docs")));
+		assertEquals(1, decompiles(BASE_CLASS));
+		provider.destroy();
+	}
+
+	@Test(timeout = 10000)
+	public void evictingRetainedClassCancelsItsStages() throws Exception {
+		// nothing fits, so every closed class is evicted right away
+		ClassHandleProvider provider = new ClassHandleProvider(project, decompilerService(), 1, 0);
+		ClassHandle handle = provider.openClass(BASE_CLASS);
+		handle.getSource().get();
+
+		// occupies the only decompile slot
+		CountDownLatch blocker = new CountDownLatch(1);
+		blocked.put(SUBCLASS_B, blocker);
+		provider.openClass(SUBCLASS_B);
+
+		while (decompiles(SUBCLASS_B) == 0) {
+			Thread.sleep(10);
+		}
+
+		// queues a second decompile, which the eviction should drop
+		handle.invalidate();
+		handle.close();
+
+		blocker.countDown();
+		provider.destroy();
+		assertEquals(1, decompiles(BASE_CLASS));
+	}
+
+	@Test(timeout = 10000)
+	public void renameOnlyRemapsClassesNamingTheEntry() throws Exception {
+		ClassHandleProvider provider = new ClassHandleProvider(project, decompilerService(), 1, 1 << 20);
+		Set<ClassEntry> remapped = ConcurrentHashMap.newKeySet();
+		ClassHandleListener listener = new ClassHandleListener() {
+			@Override
+			public void onInvalidate(ClassHandle h, InvalidationType t) {
+				remapped.add(h.getRef());
+			}
+		};
+
+		for (ClassEntry classEntry : List.of(BASE_CLASS, SUBCLASS_A, SUBCLASS_B, SUBSUBCLASS_AA)) {
+			ClassHandle handle = provider.openClass(classEntry);
+			handle.getSource().get();
+			handle.addListener(listener);
+		}
+
+		// declared by BaseClass, overridden by SubsubclassAA and called by SubclassB, but not named in SubclassA
+		MethodEntry getName = MethodEntry.parse(BASE_CLASS.getFullName(), "getName", "()Ljava/lang/String;");
+		project.getMapper().putMapping(new ValidationContext(), getName, new EntryMapping("renamed"));
+		provider.invalidateRenamed(getName);
+
+		assertEquals(Set.of(BASE_CLASS, SUBCLASS_B, SUBSUBCLASS_AA), remapped);
+		provider.destroy();
+	}
+
+	private static EnigmaProject createProject() {
+		ClassProvider classProvider = new ClasspathClassProvider();
+		JarIndex index = JarIndex.empty();
+		Set<String> classNames = Set.of(BASE_CLASS.getFullName(), SUBCLASS_A.getFullName(), SUBCLASS_B.getFullName(), SUBSUBCLASS_AA.getFullName());
+		index.indexJar(classNames, classProvider, ProgressListener.none());
+		return new EnigmaProject(Enigma.create(), Paths.get("inheritanceTree.jar"), classProvider, index, new byte[20]);
+	}
+
+	private DecompilerService decompilerService() {
+		return (classProvider, settings) -> (className, remapper) -> {
+			ClassEntry classEntry = new ClassEntry(className);
+			decompiles.computeIfAbsent(classEntry, e -> new AtomicInteger()).incrementAndGet();
+			CountDownLatch blocker = blocked.get(classEntry);
+
+			if (blocker != null) {
+				try {
+					blocker.await();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+
+			return new TestSource(classEntry, null);
+		};
+	}
+
+	private int decompiles(ClassEntry classEntry) {
+		AtomicInteger count = decompiles.get(classEntry);
+		return count == null ? 0 : count.get();
+	}
+
+	/**
+	 * Waits for the mapped source of a class to be updated, as reopened classes still hand out their old source
+	 * until then.
+	 */
+	private static String awaitSource(ClassHandle handle, Predicate<String> updated) throws Exception {
+		while (true) {
+			String source = handle.getSource().get().unwrap().toString();
+
+			if (updated.test(source)) {
+				return source;
+			}
+
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * A source declaring nothing but its class, and the class javadoc.
+	 */
+	private record TestSource(ClassEntry classEntry, @Nullable String javadoc) implements Source {
+		@Override
+		public String asString() {
+			String declaration = "class " + classEntry.getSimpleName() + " {}";
+			return javadoc != null ? "/** " + javadoc + " */\n" + declaration : declaration;
+		}
+
+		@Override
+		public Source withJavadocs(EntryRemapper remapper) {
+			return new TestSource(classEntry, remapper.getDeobfMapping(classEntry).javadoc());
+		}
+
+		@Override
+		public SourceIndex index() {
+			String source = asString();
+			SourceIndex index = new SourceIndex(source);
+			int start = source.indexOf("class ") + "class ".length();
+			index.addDeclaration(new Token(start, start + classEntry.getSimpleName().length(), classEntry.getSimpleName()), classEntry);
+			return index;
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package cuchaz.enigma.classhandle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class TestDecompileScheduler {
+	private static final DecompileScheduler.Owner FOCUSED = () -> ClassHandle.Priority.FOCUSED;
+	private static final DecompileScheduler.Owner BACKGROUND = () -> ClassHandle.Priority.BACKGROUND;
+
+	@Test(timeout = 10000)
+	public void runsFocusedFirst() throws Exception {
+		DecompileScheduler scheduler = new DecompileScheduler(1);
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		List<String> order = new CopyOnWriteArrayList<>();
+
+		// occupies the only decompile slot
+		scheduler.submit(BACKGROUND, DecompileScheduler.Stage.DECOMPILE, () -> true, () -> {
+			started.countDown();
+			awaitUninterruptibly(blocked);
+			return null;
+		});
+		started.await();
+
+		scheduler.submit(BACKGROUND, DecompileScheduler.Stage.DECOMPILE, () -> true, () -> order.add("background"));
+		scheduler.submit(FOCUSED, DecompileScheduler.Stage.DECOMPILE, () -> true, () -> order.add("focused"));
+		blocked.countDown();
+
+		scheduler.shutdown();
+		scheduler.awaitTermination(5, TimeUnit.SECONDS);
+		assertEquals(List.of("focused", "background"), order);
+	}
+
+	@Test(timeout = 10000)
+	public void dropsSupersededTasks() throws Exception {
+		DecompileScheduler scheduler = new DecompileScheduler(1);
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicBoolean current = new AtomicBoolean(true);
+		AtomicBoolean ran = new AtomicBoolean();
+
+		scheduler.submit(FOCUSED, DecompileScheduler.Stage.DECOMPILE, () -> true, () -> {
+			started.countDown();
+			awaitUninterruptibly(blocked);
+			return null;
+		});
+		started.await();
+
+		CompletableFuture<Boolean> superseded = scheduler.submit(FOCUSED, DecompileScheduler.Stage.DECOMPILE, current::get, () -> ran.getAndSet(true));
+		current.set(false);
+		blocked.countDown();
+
+		assertNull(superseded.get());
+		assertFalse(ran.get());
+		scheduler.shutdown();
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,245 @@
+package cuchaz.enigma.classprovider;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestMappedZipFile {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void readsDeflatedEntriesWithDataDescriptors() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("deflated.zip");
+
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(path))) {
+			// deflated entries of unknown size are followed by a data descriptor
+			out.putNextEntry(new ZipEntry("a/"));
+			writeDeflated(out, "a/A.class", "class A".getBytes(StandardCharsets.UTF_8));
+			writeDeflated(out, "a/Empty.class", new byte[0]);
+			writeDeflated(out, "a/Large.class", randomBytes(200 * 1024));
+			writeDeflated(out, "a/Repetitive.class", new byte[300 * 1024]);
+		}
+
+		assertSameEntries(path);
+	}
+
+	@Test
+	public void readsStoredEntries() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("stored.zip");
+
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(path))) {
+			writeStored(out, "A.class", "class A".getBytes(StandardCharsets.UTF_8));
+			writeStored(out, "Empty.class", new byte[0]);
+			writeStored(out, "Large.class", randomBytes(200 * 1024));
+			writeDeflated(out, "Deflated.class", "class Deflated".getBytes(StandardCharsets.UTF_8));
+		}
+
+		assertSameEntries(path);
+	}
+
+	@Test
+	public void readsZip64EndOfCentralDirectory() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("many.zip");
+
+		// more entries than the plain end of central directory can count
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(path))) {
+			for (int i = 0; i < 0x10000 + 10; i++) {
+				writeStored(out, "C" + i + ".class", new byte[] {(byte) i});
+			}
+		}
+
+		assertSameEntries(path);
+	}
+
+	@Test
+	public void readsZip64ExtraFields() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("zip64.zip");
+		Files.write(path, zip64("A.class", randomBytes(1000)));
+
+		assertSameEntries(path);
+	}
+
+	@Test
+	public void rejectsTruncatedArchives() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("truncated.zip");
+		byte[] bytes = deflatedArchive();
+
+		for (int length : new int[] {0, 10, bytes.length / 2, bytes.length - 1}) {
+			Files.write(path, Arrays.copyOf(bytes, length));
+			assertThrows(ZipException.class, () -> new MappedZipFile(path).close());
+		}
+	}
+
+	@Test
+	public void rejectsCorruptCentralDirectory() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("corrupt.zip");
+		byte[] bytes = deflatedArchive();
+		ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		int end = bytes.length - 22;
+
+		// point the central directory past the end of the file
+		buffer.putInt(end + 16, bytes.length + 100);
+		Files.write(path, bytes);
+		assertThrows(ZipException.class, () -> new MappedZipFile(path).close());
+
+		// point the central directory at the first local header
+		buffer.putInt(end + 16, 0);
+		Files.write(path, bytes);
+		assertThrows(ZipException.class, () -> new MappedZipFile(path).close());
+	}
+
+	@Test
+	public void rejectsCorruptEntries() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("corrupt.zip");
+		byte[] bytes = deflatedArchive();
+		// the first entry is A.class
+		bytes[0] = 0;
+		Files.write(path, bytes);
+
+		try (MappedZipFile zipFile = new MappedZipFile(path)) {
+			assertThrows(ZipException.class, () -> zipFile.read("A.class"));
+			assertArrayEquals(randomBytes(1000), zipFile.read("B.class"));
+		}
+
+		bytes = deflatedArchive();
+		ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		int compressed = 30 + buffer.getShort(26) + buffer.getShort(28);
+		Arrays.fill(bytes, compressed, compressed + 8, (byte) 0xFF);
+		Files.write(path, bytes);
+
+		try (MappedZipFile zipFile = new MappedZipFile(path)) {
+			assertThrows(ZipException.class, () -> zipFile.read("A.class"));
+			assertNull(zipFile.read("Missing.class"));
+		}
+	}
+
+	private static void assertSameEntries(Path path) throws IOException {
+		Map<String, byte[]> expected = new HashMap<>();
+
+		try (ZipFile zipFile = new ZipFile(path.toFile())) {
+			for (ZipEntry entry : Collections.list(zipFile.entries())) {
+				if (!entry.isDirectory()) {
+					expected.put(entry.getName(), zipFile.getInputStream(entry).readAllBytes());
+				}
+			}
+		}
+
+		try (MappedZipFile zipFile = new MappedZipFile(path)) {
+			assertEquals(expected.keySet(), zipFile.getEntryNames());
+
+			for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+				assertArrayEquals(entry.getKey(), entry.getValue(), zipFile.read(entry.getKey()));
+
+				ByteBuffer shared = zipFile.readShared(entry.getKey());
+				byte[] sharedBytes = new byte[shared.remaining()];
+				shared.get(sharedBytes);
+				assertArrayEquals(entry.getKey(), entry.getValue(), sharedBytes);
+			}
+		}
+	}
+
+	private static byte[] deflatedArchive() throws IOException {
+		Path path = Files.createTempFile("enigma", ".zip");
+
+		try {
+			try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(path))) {
+				writeDeflated(out, "A.class", randomBytes(1000));
+				writeDeflated(out, "B.class", randomBytes(1000));
+			}
+
+			return Files.readAllBytes(path);
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	private static void writeDeflated(ZipOutputStream out, String name, byte[] contents) throws IOException {
+		out.putNextEntry(new ZipEntry(name));
+		out.write(contents);
+		out.closeEntry();
+	}
+
+	private static void writeStored(ZipOutputStream out, String name, byte[] contents) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(contents);
+
+		ZipEntry entry = new ZipEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(contents.length);
+		entry.setCompressedSize(contents.length);
+		entry.setCrc(crc.getValue());
+
+		out.putNextEntry(entry);
+		out.write(contents);
+		out.closeEntry();
+	}
+
+	/**
+	 * Builds an archive with one stored entry whose sizes and offset are all moved into zip64 extra fields, as
+	 * they would be in an archive over 4 GiB.
+	 */
+	private static byte[] zip64(String name, byte[] contents) {
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		CRC32 crc = new CRC32();
+		crc.update(contents);
+
+		int offset = 16;
+		ByteBuffer buffer = ByteBuffer.allocate(offset + 30 + nameBytes.length + 20 + contents.length + 46 + nameBytes.length + 28 + 56 + 20 + 22)
+				.order(ByteOrder.LITTLE_ENDIAN);
+
+		// local header, after some leading bytes so that its offset isn't 0
+		buffer.position(offset);
+		buffer.putInt(0x04034b50).putShort((short) 45).putShort((short) 0).putShort((short) 0).putInt(0)
+				.putInt((int) crc.getValue()).putInt(-1).putInt(-1)
+				.putShort((short) nameBytes.length).putShort((short) 20).put(nameBytes)
+				.putShort((short) 1).putShort((short) 16).putLong(contents.length).putLong(contents.length)
+				.put(contents);
+
+		// central directory header
+		int directory = buffer.position();
+		buffer.putInt(0x02014b50).putShort((short) 45).putShort((short) 45).putShort((short) 0).putShort((short) 0).putInt(0)
+				.putInt((int) crc.getValue()).putInt(-1).putInt(-1)
+				.putShort((short) nameBytes.length).putShort((short) 28).putShort((short) 0)
+				.putShort((short) 0).putShort((short) 0).putInt(0).putInt(-1).put(nameBytes)
+				.putShort((short) 1).putShort((short) 24).putLong(contents.length).putLong(contents.length).putLong(offset);
+
+		// zip64 end of central directory, its locator and the end of central directory
+		int zip64End = buffer.position();
+		buffer.putInt(0x06064b50).putLong(44).putShort((short) 45).putShort((short) 45).putInt(0).putInt(0)
+				.putLong(1).putLong(1).putLong(zip64End - directory).putLong(directory);
+		buffer.putInt(0x07064b50).putInt(0).putLong(zip64End).putInt(1);
+		buffer.putInt(0x06054b50).putShort((short) 0).putShort((short) 0).putShort((short) -1).putShort((short) -1)
+				.putInt(-1).putInt(-1).putShort((short) 0);
+
+		return buffer.array();
+	}
+
+	private static byte[] randomBytes(int length) {
+		byte[] bytes = new byte[length];
+		new Random(length).nextBytes(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,40 @@
+package cuchaz.enigma.translation.mapping;
+
+import java.io.InputStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.translation.mapping.serde.MappingFileNameFormat;
+import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.serde.enigma.EnigmaMappingsReader;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+public class TestMappings {
+	/**
+	 * Copies the mappings of the translation test inputs to {@code translation.mappings} in a file system, such as
+	 * an in-memory one, and reads them.
+	 */
+	public static EntryTree<EntryMapping> readTranslationMappings(FileSystem fs) throws Exception {
+		Path file = fs.getPath("translation.mappings");
+
+		try (InputStream in = TestMappings.class.getResourceAsStream("/translation.mappings")) {
+			Files.write(file, in.readAllBytes());
+		}
+
+		return EnigmaMappingsReader.FILE.read(file, ProgressListener.none(), new MappingSaveParameters(MappingFileNameFormat.BY_OBF));
+	}
+
+	/**
+	 * Collects the values of a tree by entry, so that trees of different types can be compared.
+	 */
+	public static <T> Map<Entry<?>, T> toMap(EntryTree<T> tree) {
+		Map<Entry<?>, T> map = new HashMap<>();
+		tree.getAllEntries().forEach(entry -> map.put(entry, tree.get(entry)));
+		return map;
+	}
+}
@@ -117,4 +117,9 @@ public class TestReadWriteCycle {
 	public void testTinyV2() throws IOException, MappingParseException {
 		testReadWriteCycle(MappingFormat.TINY_V2, true, ".tinyv2");
 	}
+
+	@Test
+	public void testEnigmaBinary() throws IOException, MappingParseException {
+		testReadWriteCycle(MappingFormat.ENIGMA_BINARY, true, ".bmapping");
+	}
 }
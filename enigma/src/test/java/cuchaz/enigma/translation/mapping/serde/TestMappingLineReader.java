@@ -0,0 +1,137 @@
+package cuchaz.enigma.translation.mapping.serde;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestMappingLineReader {
+	@Test
+	public void linesMatchBufferedReader() throws IOException {
+		Random random = new Random(42);
+		String alphabet = "ab\t \r\n";
+
+		for (int run = 0; run < 200; run++) {
+			StringBuilder text = new StringBuilder();
+			int length = random.nextInt(run < 100 ? 50 : 40000);
+
+			for (int i = 0; i < length; i++) {
+				text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+
+			assertEquals(readLines(new BufferedReader(new StringReader(text.toString()))), readLines(new MappingLineReader(new TrickleReader(text.toString(), 1 + random.nextInt(16)))));
+		}
+	}
+
+	@Test
+	public void splitMatchesStringSplit() throws IOException {
+		for (String line : new String[] {"c\ta\tb", "c\ta\t\t", "\t\tp\t1\t\tx", ""}) {
+			MappingLineReader reader = new MappingLineReader(new StringReader(line + "\n"));
+			assertTrue(reader.next());
+			int indentation = reader.countIndentation();
+			reader.split(indentation, reader.length(), '\t');
+			assertArrayEquals(line.substring(indentation).split("\t", -1), tokens(reader));
+		}
+
+		for (String line : new String[] {"CLASS a b", "FIELD a  b I", "COMMENT x\ty", "ARG 1 x"}) {
+			MappingLineReader reader = new MappingLineReader(new StringReader(line));
+			assertTrue(reader.next());
+			reader.splitWhitespace(0, reader.length());
+			assertArrayEquals(line.split("\\s"), tokens(reader));
+		}
+	}
+
+	@Test
+	public void tokens() throws IOException {
+		MappingLineReader reader = new MappingLineReader(new StringReader("m\t(I)V\ta\t12\nm\t(I)V\tb\t-3\n"));
+
+		assertTrue(reader.next());
+		reader.split(0, reader.length(), '\t');
+		String descriptor = reader.internedToken(1);
+		assertTrue(reader.tokenEquals(0, "m"));
+		assertTrue(reader.tokenEqualsIgnoreCase(0, "M"));
+		assertTrue(reader.tokenStartsWith(1, "(I"));
+		assertEquals(12, reader.tokenAsInt(3));
+
+		assertTrue(reader.next());
+		reader.split(0, reader.length(), '\t');
+		assertSame(descriptor, reader.internedToken(1));
+		assertEquals(-3, reader.tokenAsInt(3));
+		assertEquals("b\t-3", reader.rest(2, reader.length()));
+		assertEquals(2, reader.getLineNumber());
+
+		assertFalse(reader.next());
+	}
+
+	private static List<String> readLines(BufferedReader reader) throws IOException {
+		List<String> lines = new ArrayList<>();
+
+		for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+			lines.add(line);
+		}
+
+		return lines;
+	}
+
+	private static List<String> readLines(MappingLineReader reader) throws IOException {
+		List<String> lines = new ArrayList<>();
+
+		while (reader.next()) {
+			reader.split(0, reader.length(), '\n');
+			lines.add(reader.token(0));
+		}
+
+		return lines;
+	}
+
+	private static String[] tokens(MappingLineReader reader) {
+		String[] tokens = new String[reader.tokenCount()];
+
+		for (int i = 0; i < tokens.length; i++) {
+			tokens[i] = reader.token(i);
+		}
+
+		return tokens;
+	}
+
+	/**
+	 * Hands out at most a few characters at a time, so lines end up split across reads.
+	 */
+	private static final class TrickleReader extends Reader {
+		private final String text;
+		private final int chunk;
+		private int position;
+
+		private TrickleReader(String text, int chunk) {
+			this.text = text;
+			this.chunk = chunk;
+		}
+
+		@Override
+		public int read(char[] buffer, int offset, int length) {
+			if (position == text.length()) {
+				return -1;
+			}
+
+			int read = Math.min(Math.min(length, chunk), text.length() - position);
+			text.getChars(position, position + read, buffer, offset);
+			position += read;
+			return read;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package cuchaz.enigma.translation.mapping.serde.binary;
+
+import static cuchaz.enigma.translation.mapping.TestMappings.readTranslationMappings;
+import static cuchaz.enigma.translation.mapping.TestMappings.toMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.jimfs.Jimfs;
+import org.junit.Test;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.translation.mapping.AccessModifier;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.serde.MappingFileNameFormat;
+import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+public class TestBinaryMappings {
+	private static final MappingSaveParameters PARAMETERS = new MappingSaveParameters(MappingFileNameFormat.BY_OBF);
+
+	@Test
+	public void roundTrip() throws Exception {
+		try (FileSystem fs = Jimfs.newFileSystem()) {
+			EntryTree<EntryMapping> mappings = readTranslationMappings(fs);
+			MethodEntry method = MethodEntry.parse("a", "a", "(ILjava/lang/String;)V");
+			mappings.insert(new ClassEntry("a$b"), new EntryMapping(null, AccessModifier.PUBLIC, "An inner class.\nWith a second line \u00fc"));
+			mappings.insert(FieldEntry.parse("a", "z", "I"), new EntryMapping("mapped", AccessModifier.PRIVATE));
+			mappings.insert(method, new EntryMapping("method", AccessModifier.PROTECTED, "Does things."));
+			mappings.insert(new LocalVariableEntry(method, 2, "", true, null), new EntryMapping("text", "the text"));
+			mappings.insert(new LocalVariableEntry(method, 5, "", false, null), new EntryMapping("local"));
+			mappings.insert(MethodEntry.parse("a", "b", "()V"), EntryMapping.DEFAULT);
+
+			Path file = fs.getPath("mappings.bmapping");
+			BinaryMappingsWriter.INSTANCE.write(mappings, file, ProgressListener.none(), PARAMETERS);
+
+			assertEquals(toMap(mappings), toMap(BinaryMappingsReader.INSTANCE.read(file, ProgressListener.none(), PARAMETERS)));
+		}
+	}
+
+	@Test
+	public void readSingleClass() throws Exception {
+		try (FileSystem fs = Jimfs.newFileSystem()) {
+			EntryTree<EntryMapping> mappings = readTranslationMappings(fs);
+			Path file = fs.getPath("mappings.bmapping");
+			BinaryMappingsWriter.INSTANCE.write(mappings, file, ProgressListener.none(), PARAMETERS);
+
+			try (BinaryMappingsFile binary = BinaryMappingsFile.open(file)) {
+				ClassEntry outer = new ClassEntry("g");
+				assertTrue(binary.hasClass(outer));
+				assertFalse(binary.hasClass(new ClassEntry("g$a")));
+
+				EntryTree<EntryMapping> loaded = new HashEntryTree<>();
+				assertTrue(binary.readClass(outer, loaded));
+				assertFalse(binary.readClass(new ClassEntry("nonexistent"), loaded));
+
+				Map<Entry<?>, EntryMapping> expected = new HashMap<>();
+				toMap(mappings).forEach((entry, mapping) -> {
+					if (entry.getTopLevelClass().equals(outer)) {
+						expected.put(entry, mapping);
+					}
+				});
+
+				assertEquals(expected, toMap(loaded));
+				assertEquals("A_InnerInnerClass", loaded.get(new ClassEntry("g$a$a")).targetName());
+				assertNull(loaded.get(new ClassEntry("a")));
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsOtherFiles() throws Exception {
+		try (FileSystem fs = Jimfs.newFileSystem()) {
+			Path file = fs.getPath("mappings.bmapping");
+			Files.write(file, List.of("CLASS a b", "CLASS c d"));
+			BinaryMappingsFile.open(file).close();
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package cuchaz.enigma.translation.mapping.serde.enigma;
+
+import static cuchaz.enigma.translation.mapping.TestMappings.readTranslationMappings;
+import static cuchaz.enigma.translation.mapping.TestMappings.toMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import com.google.common.jimfs.Jimfs;
+import org.junit.Test;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.serde.MappingFileNameFormat;
+import cuchaz.enigma.translation.mapping.serde.MappingParseException;
+import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.LazyEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+
+public class TestEnigmaDirectoryReader {
+	private static final MappingSaveParameters PARAMETERS = new MappingSaveParameters(MappingFileNameFormat.BY_OBF);
+
+	@Test
+	public void parallelReadMatchesSequentialRead() throws Exception {
+		try (FileSystem fs = Jimfs.newFileSystem()) {
+			Path directory = fs.getPath("mappings");
+			EntryTree<EntryMapping> mappings = readTranslationMappings(fs);
+			EnigmaMappingsWriter.DIRECTORY.write(mappings, directory, ProgressListener.none(), PARAMETERS);
+
+			Map<Entry<?>, EntryMapping> sequential = toMap(EnigmaMappingsReader.readDirectory(directory, ProgressListener.none(), 1));
+			Map<Entry<?>, EntryMapping> parallel = toMap(EnigmaMappingsReader.readDirectory(directory, ProgressListener.none(), 4));
+
+			assertEquals(sequential, parallel);
+		}
+	}
+
+	@Test
+	public void parallelReadReportsBrokenFile() throws Exception {
+		try (FileSystem fs = Jimfs.newFileSystem()) {
+			Path directory = fs.getPath("mappings");
+			Files.createDirectories(directory);
+			Files.writeString(directory.resolve("a.mapping"), "CLASS a A\n", StandardCharsets.UTF_8);
+			Files.writeString(directory.resolve("b.mapping"), "CLASS b B\n\tUNKNOWN c\n", StandardCharsets.UTF_8);
+
+			try {
+				EnigmaMappingsReader.readDirectory(directory, ProgressListener.none(), 4);
+				fail("Expected a parse error");
+			} catch (MappingParseException e) {
+				assertTrue(e.getMessage(), e.getMessage().startsWith("Line 2: "));
+				assertTrue(e.getMessage(), e.getMessage().endsWith("b.mapping"));
+			}
+		}
+	}
+
+	@Test
+	public void lazyReadLoadsClassesOnDemand() throws Exception {
+		try (FileSystem fs = Jimfs.newFileSystem()) {
+			Path directory = writeTestMappings(fs);
+			EntryTree<EntryMapping> eager = EnigmaMappingsReader.readDirectory(directory, ProgressListener.none(), 1);
+			LazyEntryTree<EntryMapping> lazy = EnigmaMappingsReader.readDirectoryLazily(directory, ProgressListener.none(), 4);
+
+			ClassEntry outer = new ClassEntry("g");
+			ClassEntry inner = new ClassEntry("g$a$a");
+			assertEquals(eager.get(outer), lazy.get(outer));
+			assertFalse(lazy.isLoaded(outer));
+
+			assertEquals(eager.get(inner), lazy.get(inner));
+			assertTrue(lazy.isLoaded(outer));
+			assertFalse(lazy.isLoaded(new ClassEntry("a")));
+
+			assertEquals(toMap(eager), toMap(lazy));
+			assertTrue(lazy.isLoaded(new ClassEntry("a")));
+		}
+	}
+
+	@Test
+	public void lazyReadIndexesEveryTopLevelClass() throws Exception {
+		try (FileSystem fs = Jimfs.newFileSystem()) {
+			Path directory = fs.getPath("mappings");
+			Files.createDirectories(directory);
+			Files.writeString(directory.resolve("a.mapping"), "CLASS a A\n\tCOMMENT First\n\tFIELD a field I\nCLASS b B\n\tFIELD a other I\n\tCOMMENT Second\n", StandardCharsets.UTF_8);
+
+			EntryTree<EntryMapping> eager = EnigmaMappingsReader.readDirectory(directory, ProgressListener.none(), 1);
+			LazyEntryTree<EntryMapping> lazy = EnigmaMappingsReader.readDirectoryLazily(directory, ProgressListener.none(), 1);
+
+			ClassEntry first = new ClassEntry("a");
+			ClassEntry second = new ClassEntry("b");
+			assertEquals(eager.get(first), lazy.get(first));
+			assertEquals(eager.get(second), lazy.get(second));
+			assertEquals("Second", lazy.get(second).javadoc());
+			assertFalse(lazy.isLoaded(second));
+
+			assertEquals("field", lazy.get(FieldEntry.parse("a", "a", "I")).targetName());
+			assertFalse(lazy.isLoaded(second));
+
+			assertEquals(toMap(eager), toMap(lazy));
+		}
+	}
+
+	@Test
+	public void lazyTreeSavesChangedClasses() throws Exception {
+		try (FileSystem fs = Jimfs.newFileSystem()) {
+			Path directory = writeTestMappings(fs);
+			DeltaTrackingTree<EntryMapping> mappings = new DeltaTrackingTree<>(EnigmaMappingsReader.readDirectoryLazily(directory, ProgressListener.none(), 1));
+
+			ClassEntry renamed = new ClassEntry("a");
+			FieldEntry field = FieldEntry.parse("b", "a", "I");
+			mappings.insert(renamed, new EntryMapping("deobf/A_Renamed"));
+			mappings.insert(field, new EntryMapping("renamedField"));
+
+			MappingSaveParameters parameters = new MappingSaveParameters(MappingFileNameFormat.BY_DEOBF);
+			EnigmaMappingsWriter.DIRECTORY.write(mappings, mappings.takeDelta(), directory, ProgressListener.none(), parameters);
+
+			assertFalse(Files.exists(directory.resolve("deobf/A_Basic.mapping")));
+			assertTrue(Files.exists(directory.resolve("deobf/A_Renamed.mapping")));
+
+			EntryTree<EntryMapping> reread = EnigmaMappingsReader.readDirectory(directory, ProgressListener.none(), 1);
+			assertEquals("deobf/A_Renamed", reread.get(renamed).targetName());
+			assertEquals("renamedField", reread.get(field).targetName());
+			assertEquals(toMap(mappings), toMap(reread));
+		}
+	}
+
+	@Test
+	public void failedSaveIsSavedWithNextChanges() throws Exception {
+		try (FileSystem fs = Jimfs.newFileSystem()) {
+			Path directory = writeTestMappings(fs);
+			DeltaTrackingTree<EntryMapping> mappings = new DeltaTrackingTree<>(EnigmaMappingsReader.readDirectoryLazily(directory, ProgressListener.none(), 1));
+
+			ClassEntry renamed = new ClassEntry("a");
+			mappings.insert(renamed, new EntryMapping("deobf/A_Failed"));
+			// the snapshot fails to be saved
+			mappings.restoreDelta(mappings.takeSnapshot().delta());
+
+			mappings.insert(renamed, new EntryMapping("deobf/A_Renamed"));
+			MappingSaveParameters parameters = new MappingSaveParameters(MappingFileNameFormat.BY_DEOBF);
+			EnigmaMappingsWriter.DIRECTORY.write(mappings, mappings.takeDelta(), directory, ProgressListener.none(), parameters);
+
+			assertFalse(Files.exists(directory.resolve("deobf/A_Basic.mapping")));
+			assertFalse(Files.exists(directory.resolve("deobf/A_Failed.mapping")));
+			assertTrue(Files.exists(directory.resolve("deobf/A_Renamed.mapping")));
+		}
+	}
+
+	private static Path writeTestMappings(FileSystem fs) throws Exception {
+		Path directory = fs.getPath("mappings");
+		EnigmaMappingsWriter.DIRECTORY.write(readTranslationMappings(fs), directory, ProgressListener.none(), new MappingSaveParameters(MappingFileNameFormat.BY_DEOBF));
+		return directory;
+	}
+}
@@ -0,0 +1,109 @@
+package cuchaz.enigma.translation.mapping.tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+public class TestConcurrentEntryTree {
+	private static final ClassEntry OUTER = new ClassEntry("a");
+	private static final ClassEntry INNER = new ClassEntry("a$b");
+	private static final MethodEntry METHOD = MethodEntry.parse("a$b", "c", "(I)V");
+
+	@Test
+	public void insertAndRemove() {
+		HashEntryTree<String> source = new HashEntryTree<>();
+		source.insert(OUTER, "outer");
+		source.insert(METHOD, "method");
+
+		ConcurrentEntryTree<String> tree = new ConcurrentEntryTree<>(source);
+		EntryTreeNode<String> before = tree.findNode(OUTER);
+
+		tree.insert(new ClassEntry("x"), "x");
+		tree.insert(INNER, "inner");
+
+		assertEquals("inner", tree.get(INNER));
+		assertEquals("method", tree.get(METHOD));
+		assertEquals(Set.of(OUTER, new ClassEntry("x")), tree.getRootNodes().map(EntryTreeNode::getEntry).collect(Collectors.toSet()));
+		assertEquals(List.of(new ClassEntry("x")), List.copyOf(tree.getSiblings(OUTER)));
+
+		// published classes are never changed
+		assertNull(before.getChildNodes().iterator().next().getValue());
+
+		assertEquals("method", tree.remove(METHOD));
+		assertNull(tree.remove(METHOD));
+		assertEquals("outer", tree.remove(OUTER));
+		assertEquals("inner", tree.remove(INNER));
+		assertNull(tree.findNode(OUTER));
+
+		tree.remove(new ClassEntry("x"));
+		assertTrue(tree.isEmpty());
+	}
+
+	@Test
+	public void snapshot() {
+		ConcurrentEntryTree<String> tree = new ConcurrentEntryTree<>();
+		tree.insert(OUTER, "outer");
+		tree.insert(METHOD, "method");
+
+		ConcurrentEntryTree<String> snapshot = tree.snapshot();
+		tree.insert(METHOD, "renamed");
+		tree.remove(OUTER);
+		tree.insert(new ClassEntry("x"), "x");
+		snapshot.insert(INNER, "inner");
+
+		assertEquals("outer", snapshot.get(OUTER));
+		assertEquals("method", snapshot.get(METHOD));
+		assertNull(snapshot.get(new ClassEntry("x")));
+
+		assertEquals("renamed", tree.get(METHOD));
+		assertNull(tree.get(OUTER));
+		assertNull(tree.get(INNER));
+	}
+
+	@Test
+	public void concurrentWrites() throws Exception {
+		ConcurrentEntryTree<String> tree = new ConcurrentEntryTree<>();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+
+			for (int thread = 0; thread < 4; thread++) {
+				int offset = thread;
+
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 1000; i++) {
+						// every thread writes to every class
+						tree.insert(FieldEntry.parse("c" + i % 10, "f" + offset + "_" + i, "I"), "field");
+						tree.get(FieldEntry.parse("c" + (i + 1) % 10, "f0_" + i, "I"));
+					}
+				}));
+			}
+
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+
+		assertEquals(4000, tree.getAllEntries().count());
+		assertEquals(10, tree.getRootNodes().count());
+	}
+}
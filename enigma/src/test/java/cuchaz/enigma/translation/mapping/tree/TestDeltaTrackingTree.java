@@ -0,0 +1,72 @@
+package cuchaz.enigma.translation.mapping.tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import cuchaz.enigma.translation.mapping.MappingDelta;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+
+public class TestDeltaTrackingTree {
+	private static final ClassEntry FIRST = new ClassEntry("a");
+	private static final ClassEntry SECOND = new ClassEntry("b");
+	private static final FieldEntry FIELD = FieldEntry.parse("a", "c", "I");
+
+	@Test
+	public void takeSnapshot() {
+		for (EntryTree<String> delegate : List.<EntryTree<String>>of(new ConcurrentEntryTree<>(), new HashEntryTree<>())) {
+			DeltaTrackingTree<String> tree = new DeltaTrackingTree<>(delegate);
+			tree.insert(FIRST, "first");
+			tree.takeDelta();
+
+			tree.insert(FIELD, "field");
+			tree.insert(SECOND, "second");
+
+			DeltaTrackingTree.Snapshot<String> snapshot = tree.takeSnapshot();
+			assertFalse(tree.isDirty());
+
+			tree.insert(FIELD, "renamed");
+			tree.remove(SECOND);
+			assertTrue(tree.isDirty());
+
+			assertEquals("field", snapshot.mappings().get(FIELD));
+			assertEquals("second", snapshot.mappings().get(SECOND));
+			assertEquals("first", snapshot.mappings().get(FIRST));
+
+			// the base mappings of the delta hold the changed classes as they were before
+			assertEquals(List.<Entry<?>>of(FIRST, SECOND), snapshot.delta().getChangedRoots().sorted((a, b) -> a.getName().compareTo(b.getName())).toList());
+			assertEquals("first", snapshot.delta().getBaseMappings().get(FIRST));
+			assertNull(snapshot.delta().getBaseMappings().get(FIELD));
+		}
+	}
+
+	@Test
+	public void restoreDelta() {
+		DeltaTrackingTree<String> tree = new DeltaTrackingTree<>(new ConcurrentEntryTree<>());
+		tree.insert(FIRST, "first");
+		tree.insert(SECOND, "second");
+		tree.takeDelta();
+
+		// the snapshot fails to be saved, and the first class changes again meanwhile
+		tree.insert(FIRST, "renamed");
+		DeltaTrackingTree.Snapshot<String> failed = tree.takeSnapshot();
+		tree.insert(FIRST, "renamedAgain");
+		tree.insert(FIELD, "field");
+		tree.restoreDelta(failed.delta());
+
+		// the saved mappings are still the base of the next delta
+		MappingDelta<String> delta = tree.takeDelta();
+		assertEquals("first", delta.getBaseMappings().get(FIRST));
+		assertNull(delta.getBaseMappings().get(SECOND));
+		assertEquals(List.<Entry<?>>of(FIRST), delta.getChangedRoots().toList());
+		assertTrue(delta.getChanges().contains(FIELD));
+		assertFalse(tree.isDirty());
+	}
+}
@@ -0,0 +1,85 @@
+package cuchaz.enigma.translation.mapping.tree;
+
+import static cuchaz.enigma.translation.mapping.TestMappings.toMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import cuchaz.enigma.translation.MappingTranslator;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.VoidEntryResolver;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+public class TestFlatEntryTree {
+	private static final ClassEntry OUTER = new ClassEntry("a");
+	private static final ClassEntry INNER = new ClassEntry("a$b");
+	private static final ClassEntry OTHER = new ClassEntry("c");
+	private static final FieldEntry FIELD = FieldEntry.parse("a", "f", "I");
+	private static final MethodEntry METHOD = MethodEntry.parse("a$b", "m", "(I)V");
+	private static final LocalVariableEntry PARAMETER = new LocalVariableEntry(METHOD, 1, "", true, null);
+
+	@Test
+	public void copyKeepsStructure() {
+		HashEntryTree<String> tree = createTree();
+		FlatEntryTree<String> flat = FlatEntryTree.copyOf(tree);
+
+		assertEquals(toMap(tree), toMap(flat));
+		assertEquals(Set.of(OUTER, OTHER), flat.getRootNodes().map(EntryTreeNode::getEntry).collect(Collectors.toSet()));
+		assertEquals(Set.of(INNER, FIELD), Set.copyOf(flat.getChildren(OUTER)));
+		assertEquals(List.of(OTHER), List.copyOf(flat.getSiblings(OUTER)));
+		assertEquals(List.of(INNER), List.copyOf(flat.getSiblings(FIELD)));
+
+		assertNull(flat.get(INNER));
+		assertFalse(flat.findNode(INNER).hasValue());
+		assertEquals(List.of(PARAMETER), List.copyOf(flat.findNode(METHOD).getChildren()));
+		assertEquals("parameter", flat.findNode(METHOD).getChildNodes().iterator().next().getValue());
+		assertEquals(5, flat.findNode(OUTER).getNodesRecursively().size());
+
+		assertNull(flat.findNode(MethodEntry.parse("a$b", "n", "()V")));
+		assertTrue(flat.getChildren(new ClassEntry("x")).isEmpty());
+		assertTrue(FlatEntryTree.copyOf(new HashEntryTree<>()).isEmpty());
+	}
+
+	@Test
+	public void translate() {
+		HashEntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(OUTER, new EntryMapping("x"));
+		MappingTranslator translator = new MappingTranslator(mappings, VoidEntryResolver.INSTANCE);
+
+		EntryTree<String> translated = FlatEntryTree.copyOf(createTree()).translate(translator, VoidEntryResolver.INSTANCE, mappings);
+
+		assertEquals("outer", translated.get(new ClassEntry("x")));
+		assertEquals("parameter", translated.get(translator.translate(PARAMETER)));
+		assertNull(translated.get(OUTER));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void rejectsChanges() {
+		FlatEntryTree.copyOf(createTree()).insert(OTHER, "changed");
+	}
+
+	private static HashEntryTree<String> createTree() {
+		HashEntryTree<String> tree = new HashEntryTree<>();
+		tree.insert(OUTER, "outer");
+		tree.insert(FIELD, "field");
+		tree.insert(METHOD, "method");
+		tree.insert(PARAMETER, "parameter");
+		tree.insert(OTHER, "other");
+
+		for (int i = 0; i < 100; i++) {
+			tree.insert(FieldEntry.parse("c", "f" + i, "I"), "field" + i);
+		}
+
+		return tree;
+	}
+}
@@ -0,0 +1,61 @@
+package cuchaz.enigma.translation.mapping.tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+public class TestHashEntryTree {
+	private static final ClassEntry OUTER = new ClassEntry("a");
+	private static final ClassEntry INNER = new ClassEntry("a$b");
+	private static final MethodEntry METHOD = MethodEntry.parse("a$b", "c", "(I)V");
+	private static final LocalVariableEntry PARAMETER = new LocalVariableEntry(METHOD, 1, "", true, null);
+
+	@Test
+	public void insertAndFind() {
+		HashEntryTree<String> tree = new HashEntryTree<>();
+		tree.insert(PARAMETER, "parameter");
+
+		assertEquals("parameter", tree.get(PARAMETER));
+		assertNull(tree.get(METHOD));
+		assertEquals(METHOD, tree.findNode(METHOD).getEntry());
+		assertEquals(List.of(INNER), List.copyOf(tree.getChildren(OUTER)));
+		assertNull(tree.findNode(MethodEntry.parse("a$b", "d", "()V")));
+		assertNull(tree.findNode(new ClassEntry("x$b")));
+	}
+
+	@Test
+	public void removeDropsEmptyParents() {
+		HashEntryTree<String> tree = new HashEntryTree<>();
+		tree.insert(INNER, "inner");
+		tree.insert(PARAMETER, "parameter");
+
+		assertEquals("parameter", tree.remove(PARAMETER));
+		assertNull(tree.findNode(METHOD));
+		assertEquals("inner", tree.get(INNER));
+		assertNull(tree.remove(PARAMETER));
+
+		tree.insert(INNER, null);
+		assertNull(tree.findNode(OUTER));
+		assertTrue(tree.isEmpty());
+	}
+
+	@Test
+	public void removeKeepsNodesWithChildren() {
+		HashEntryTree<String> tree = new HashEntryTree<>();
+		tree.insert(METHOD, "method");
+		tree.insert(PARAMETER, "parameter");
+
+		assertEquals("method", tree.remove(METHOD));
+		assertFalse(tree.findNode(METHOD).hasValue());
+		assertEquals("parameter", tree.get(PARAMETER));
+	}
+}